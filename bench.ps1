@@ -0,0 +1,48 @@
+# bench.ps1 - Compila y ejecuta los benchmarks JMH del modelo (PowerShell)
+# Uso: ./bench.ps1 [filtro JMH] [opciones extra de JMH]
+#   ./bench.ps1                          -> todos los benchmarks
+#   ./bench.ps1 GameModelBenchmark       -> solo el tick completo
+#   ./bench.ps1 Collision -p balls=1000  -> colisiones con 1000 bolas
+# Requisitos: JDK y los jars de JMH en lib/jmh (jmh-core, jmh-generator-annprocess,
+#             jopt-simple y commons-math3; ver README).
+# Resultado: bench/results/<commit>.json (para comparar entre commits) y el perfil de GC
+#            (-prof gc: bytes asignados por operación) en la salida.
+
+param(
+    [string]$filter = ".*",
+    [Parameter(ValueFromRemainingArguments = $true)]
+    [string[]]$jmhArgs
+)
+
+$lib = "lib/jmh"
+$out = "out-bench"
+$results = "bench/results"
+
+if (!(Test-Path $lib)) {
+    Write-Error "No existe $lib. Descarga los jars de JMH (ver README, sección Benchmarks)."
+    exit 1
+}
+$cp = (Get-ChildItem -Path $lib -Filter *.jar | ForEach-Object { $_.FullName }) -join [IO.Path]::PathSeparator
+
+foreach ($dir in @($out, $results)) {
+    if (!(Test-Path $dir)) { New-Item -ItemType Directory -Path $dir | Out-Null }
+}
+
+Write-Host "Compilando juego + benchmarks..." -ForegroundColor Cyan
+$files = @(Get-ChildItem -Recurse -Filter *.java -Path src, bench/src | ForEach-Object { $_.FullName })
+# el procesador de anotaciones de JMH genera las clases de los benchmarks y el fichero BenchmarkList
+& javac -encoding UTF-8 -cp $cp -processorpath $cp -d $out @files
+if ($LASTEXITCODE -ne 0) {
+    Write-Error "Compilación fallida. Revisa los errores anteriores."
+    exit $LASTEXITCODE
+}
+
+# nombre del fichero de resultados: commit actual (o "local" si no hay git)
+$commit = (git rev-parse --short HEAD 2>$null)
+if (-not $commit) { $commit = "local" }
+$json = "$results/$commit.json"
+
+Write-Host "Ejecutando JMH (resultados en $json)..." -ForegroundColor Green
+& java -cp "$out$([IO.Path]::PathSeparator)$cp" org.openjdk.jmh.Main $filter -prof gc -rf json -rff $json @jmhArgs
+
+# Fin
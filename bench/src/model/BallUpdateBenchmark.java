@@ -0,0 +1,65 @@
+/*
+ * BallUpdateBenchmark: integración de una bola automática y de la bola de jugador
+ * - Ball.step recorre las n bolas del store (sin colisiones).
+ * - PlayerBall.update mide la lógica de control en modo directo (WASD) y en modo nave.
+ */
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BallUpdateBenchmark {
+    @Param({"1000", "100000"})
+    public int balls;
+
+    private GameModel model;
+    private BallStore store;
+    private Room room;
+    private int width;
+    private int height;
+    private PlayerBall player;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = BenchWorlds.build(balls, 50);
+        model.addPlayerBall();
+        store = model.store();
+        room = model.getRoom();
+        player = model.getPlayerBalls().get(0);
+        player.setDirectMovement(1, 0);
+        width = model.getWidth();
+        height = model.getHeight();
+    }
+
+    @Benchmark
+    public double ballStep() {
+        BallStore s = store;
+        for (int i = 0; i < s.size; i++) {
+            if (!s.isPlayer(i)) Ball.step(s, i, 16, width, height, room);
+        }
+        return s.x[0];
+    }
+
+    @Benchmark
+    public int playerUpdateDirect() {
+        player.setDirectControl(true);
+        player.update(16, width, height, room);
+        return player.getX();
+    }
+
+    @Benchmark
+    public int playerUpdateShip() {
+        player.setDirectControl(false);
+        player.setForward(true);
+        player.setRotationInput(1);
+        player.update(16, width, height, room);
+        return player.getX();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * BenchWorlds: mundos reproducibles para los benchmarks
+ * - Tamaño calculado a partir del número de bolas y la densidad (bolas por megapíxel),
+ *   con la proporción de la ventana del juego (10:7).
+ * - Semilla fija para que dos commits midan exactamente la misma escena.
+ * - withRoomGrid: la misma rejilla de habitaciones que HeadlessRunner --rooms=N --capacity=C.
+ */
+package model;
+
+final class BenchWorlds {
+    static final long SEED = 42L;
+
+    private BenchWorlds() { }
+
+    static GameModel build(int balls, int densityPerMpx) {
+        double area = balls / (double) densityPerMpx * 1_000_000.0;
+        int width = Math.max(400, (int) Math.sqrt(area * 10.0 / 7.0));
+        int height = Math.max(400, (int) (width * 7.0 / 10.0));
+        GameModel model = new GameModel(width, height);
+        model.store().setRandom(new SimRandom(SEED));
+        model.addBalls(balls);
+        return model;
+    }
+
+    // mundo de width x height con n habitaciones extra repartidas como en HeadlessRunner
+    // (saltando las que pisan o rozan la central) y después las bolas
+    static GameModel withRoomGrid(int balls, int width, int height, int n, int capacity) {
+        GameModel model = new GameModel(width, height);
+        model.store().setRandom(new SimRandom(SEED));
+        int cols = Math.max(1, (int) Math.ceil(Math.sqrt(n * (double) width / height)));
+        int rows = Math.max(1, (n + cols - 1) / cols);
+        int cellW = width / cols;
+        int cellH = height / rows;
+        int gap = 2 * Ball.MAX_RADIUS + 2;
+        int size = Math.max(20, Math.min(cellW, cellH) - gap);
+        java.awt.Rectangle central = new java.awt.Rectangle(model.getRoom().getBounds());
+        central.grow(gap, gap);
+        int added = 0;
+        for (int r = 0; r < rows && added < n; r++) {
+            for (int c = 0; c < cols && added < n; c++) {
+                int x = c * cellW + (cellW - size) / 2;
+                int y = r * cellH + (cellH - size) / 2;
+                if (central.intersects(x, y, size, size)) continue;
+                model.addRoom(x, y, size, size, capacity);
+                added++;
+            }
+        }
+        model.addBalls(balls);
+        return model;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * CollisionBenchmark: solo el bucle de colisiones (GameModel.handleCollisions)
+ * - Antes de cada llamada restauramos posiciones y velocidades guardadas: si no,
+ *   los solapes se resolverían en la primera iteración y luego mediríamos un mundo "quieto".
+ *   La restauración (System.arraycopy) es O(n) y pesa poco frente a las colisiones.
+ */
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int balls;
+
+    @Param({"50", "400"})
+    public int density;
+
+    @Param({"GRID", "BRUTE_FORCE"})
+    public Broadphase broadphase;
+
+    private GameModel model;
+    private BallStore store;
+    private double[] x0, y0, vx0, vy0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = BenchWorlds.build(balls, density);
+        model.setBroadphase(broadphase);
+        store = model.store();
+        int n = store.size;
+        x0 = java.util.Arrays.copyOf(store.x, n);
+        y0 = java.util.Arrays.copyOf(store.y, n);
+        vx0 = java.util.Arrays.copyOf(store.vx, n);
+        vy0 = java.util.Arrays.copyOf(store.vy, n);
+    }
+
+    @Benchmark
+    public double handleCollisions() {
+        int n = x0.length;
+        System.arraycopy(x0, 0, store.x, 0, n);
+        System.arraycopy(y0, 0, store.y, 0, n);
+        System.arraycopy(vx0, 0, store.vx, 0, n);
+        System.arraycopy(vy0, 0, store.vy, 0, n);
+        model.handleCollisions();
+        return store.x[0];
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * GameModelBenchmark: un tick completo de física (GameModel.update)
+ * - Parámetros: número de bolas, densidad (bolas por megapíxel) y motor (pasos o eventos).
+ * - Se deja "asentar" el mundo unos ticks antes de medir para no medir solo solapes iniciales.
+ */
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameModelBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    public int balls;
+
+    @Param({"50", "400"})
+    public int density;
+
+    @Param({"GRID"})
+    public Broadphase broadphase;
+
+    // con 400 bolas/MP EVENT_DRIVEN va por pasos (game.physics.eventMaxDensity); 0 para medirlo igual
+    @Param({"TIME_STEP", "EVENT_DRIVEN"})
+    public SimulationMode mode;
+
+    private GameModel model;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = BenchWorlds.build(balls, density);
+        model.setBroadphase(broadphase);
+        model.setSimulationMode(mode);
+        for (int i = 0; i < 30; i++) model.update(16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        model.setParallelism(1);
+    }
+
+    @Benchmark
+    public int update() {
+        model.update(16);
+        return model.count();
+    }
+}
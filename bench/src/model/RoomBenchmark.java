@@ -0,0 +1,88 @@
+/*
+ * RoomBenchmark: interacción con la habitación
+ * - intersects/contains: las comprobaciones geométricas puras.
+ * - roomInteraction: la lógica completa (entrar/salir/rebotar) para bolas repartidas
+ *   alrededor de la habitación, que es el caso caro (tryEnter/tryLeave).
+ *   Antes de cada invocación se vuelve al mismo punto de partida (posición, velocidad,
+ *   ninguna bola dentro, habitación vacía y sin cola): así todas miden la misma mezcla,
+ *   la primera bola de dentro entra y el resto de las de dentro rebotan y se ponen en cola.
+ */
+package model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoomBenchmark {
+    private static final int POINTS = 1024;
+
+    private Room room;
+    private final int[] px = new int[POINTS];
+    private final int[] py = new int[POINTS];
+    private final int[] pr = new int[POINTS];
+    private final double[] pvx = new double[POINTS];
+    private final double[] pvy = new double[POINTS];
+    private BallStore store;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        room = new Room(350, 200, 300, 300);
+        Random rng = new Random(BenchWorlds.SEED);
+        for (int i = 0; i < POINTS; i++) {
+            px[i] = 300 + rng.nextInt(400);
+            py[i] = 150 + rng.nextInt(400);
+            pr[i] = Ball.MIN_RADIUS + rng.nextInt(Ball.MAX_RADIUS - Ball.MIN_RADIUS + 1);
+        }
+        store = new BallStore(POINTS);
+        store.setRandom(new SimRandom(BenchWorlds.SEED));
+        for (int i = 0; i < POINTS; i++) {
+            Ball.spawn(store, 1000, 700);
+            store.x[i] = px[i];
+            store.y[i] = py[i];
+            pvx[i] = store.vx[i];
+            pvy[i] = store.vy[i];
+        }
+    }
+
+    // roomInteraction cambia bolas y habitación: deshacerlo fuera de la medida
+    // (Level.Invocation: cada invocación son 1024 bolas, bastante más que el coste del setup)
+    @Setup(Level.Invocation)
+    public void resetRoomState() {
+        room = new Room(350, 200, 300, 300);
+        BallStore s = store;
+        for (int i = 0; i < POINTS; i++) {
+            s.x[i] = px[i];
+            s.y[i] = py[i];
+            s.vx[i] = pvx[i];
+            s.vy[i] = pvy[i];
+            s.leaveRoom(i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void intersects(Blackhole bh) {
+        for (int i = 0; i < POINTS; i++) bh.consume(room.intersects(px[i], py[i], pr[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void contains(Blackhole bh) {
+        for (int i = 0; i < POINTS; i++) bh.consume(room.contains(px[i], py[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void roomInteraction() {
+        BallStore s = store;
+        for (int i = 0; i < POINTS; i++) Ball.roomInteraction(s, i, room);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * RoomGridBenchmark: un tick con muchas habitaciones pequeñas y casi llenas
+ * - La escena de HeadlessRunner --balls=300 --width=3000 --height=2000 --rooms=20 --capacity=2:
+ *   pocas bolas por área (el motor de eventos debería ganar) pero con bolas encajadas entre
+ *   habitaciones llenas, que es donde el motor de eventos se atascaba (~70 ticks/s frente a
+ *   ~1200 por pasos).
+ * - Con EVENT_DRIVEN, GameModel pasa a pasos mientras se atasque: comparar con TIME_STEP.
+ * - Se dejan 600 ticks de calentamiento para que las habitaciones se llenen y haya colas.
+ */
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoomGridBenchmark {
+    @Param({"TIME_STEP", "EVENT_DRIVEN"})
+    public SimulationMode mode;
+
+    private GameModel model;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = BenchWorlds.withRoomGrid(300, 3000, 2000, 20, 2);
+        model.setSimulationMode(mode);
+        for (int i = 0; i < 600; i++) model.update(16);
+    }
+
+    @Benchmark
+    public int update() {
+        model.update(16);
+        return model.count();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * RoomIndexBenchmark: coste de las habitaciones por bola según cuántas haya
+ * - Mundo fijo de 4000x3000 con BALLS bolas y 'rooms' habitaciones en rejilla.
+ * - interact: la búsqueda en RoomIndex + entrar/salir/rebotar. Con el índice, el
+ *   tiempo por bola debería salir parecido con 1, 100 o 1000 habitaciones.
+ */
+package model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoomIndexBenchmark {
+    private static final int BALLS = 4096;
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+
+    @Param({"1", "100", "1000"})
+    public int rooms;
+
+    @Param({"1", "4"})
+    public int capacity;
+
+    private GameModel model;
+    private BallStore store;
+    private RoomIndex index;
+    private final double[] px = new double[BALLS];
+    private final double[] py = new double[BALLS];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = new GameModel(WIDTH, HEIGHT);
+        store = model.store();
+        store.setRandom(new SimRandom(BenchWorlds.SEED));
+        // rejilla de habitaciones (la central ya cuenta como una)
+        int extra = rooms - 1;
+        if (extra > 0) {
+            int cols = (int) Math.ceil(Math.sqrt(extra * (double) WIDTH / HEIGHT));
+            int rows = (extra + cols - 1) / cols;
+            int cellW = WIDTH / cols;
+            int cellH = HEIGHT / rows;
+            int size = Math.max(10, Math.min(cellW, cellH) - 2 * Ball.MAX_RADIUS - 2);
+            for (int k = 0; k < extra; k++) {
+                int c = k % cols;
+                int r = k / cols;
+                model.addRoom(c * cellW + (cellW - size) / 2, r * cellH + (cellH - size) / 2, size, size, capacity);
+            }
+        }
+        model.addBalls(BALLS);
+        for (int i = 0; i < BALLS; i++) {
+            px[i] = store.x[i];
+            py[i] = store.y[i];
+        }
+        index = new RoomIndex();
+        index.rebuild(model.getRooms(), WIDTH, HEIGHT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BALLS)
+    public void interact() {
+        BallStore s = store;
+        RoomIndex idx = index;
+        for (int i = 0; i < BALLS; i++) {
+            // misma posición en cada invocación para medir siempre la misma escena
+            s.x[i] = px[i];
+            s.y[i] = py[i];
+            idx.interact(s, i);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * SpawnClearBenchmark: escena de estrés que crea y borra muchas bolas seguidas
+ * - addBalls(n) + getSnapshot() + clearBalls() por operación.
+ * - Lo interesante es gc.alloc.rate.norm (-prof gc): con el pool de asas y la lista
+ *   reutilizada, tras el calentamiento debería quedarse cerca de cero bytes por operación.
+ */
+package model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpawnClearBenchmark {
+    @Param({"1000", "50000"})
+    public int balls;
+
+    private GameModel model;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = new GameModel(4000, 3000);
+        model.store().setRandom(new SimRandom(BenchWorlds.SEED));
+    }
+
+    @Benchmark
+    public void spawnAndClear(Blackhole bh) {
+        model.addBalls(balls);
+        bh.consume(model.getSnapshot().size());
+        model.clearBalls();
+    }
+}
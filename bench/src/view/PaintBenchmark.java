@@ -0,0 +1,66 @@
+/*
+ * PaintBenchmark: GamePanel.paintComponent sobre una imagen (sin ventana, java.awt.headless)
+ * - Mundo de 1000x700 con N bolas avanzado unos ticks (hay bolas en la habitación) y la bola
+ *   de jugador, para que salgan bordes, HUD y, con hud=true, el texto de métricas (F3).
+ * - Lo que importa es gc.alloc.rate.norm (-prof gc): con RenderState / HudText / OvalShape
+ *   el pintado nuestro no crea objetos; lo que queda (~230 B/op, ~280 con hud) lo crea Java2D
+ *   dentro de cada drawImage y tiene que ser igual con 1k que con 10k bolas. Si crece con
+ *   las bolas, algo por bola está creando objetos.
+ * - backend=raster: RasterRenderer (casillas en paralelo en el common pool; ahí sí se crean
+ *   unas pocas tareas por frame, pero no dependen del número de bolas).
+ */
+package view;
+
+import model.GameModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Dgame.seed=42"})
+public class PaintBenchmark {
+    @Param({"1000", "10000", "50000"})
+    public int balls;
+
+    @Param({"false", "true"})
+    public boolean hud;
+
+    @Param({"java2d", "raster"})
+    public String backend;
+
+    private GamePanel panel;
+    private BufferedImage image;
+    private Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        GameModel model = new GameModel(1000, 700);
+        model.addBalls(balls);
+        model.addPlayerBall();
+        for (int i = 0; i < 100; i++) model.update(16);
+        model.publishSnapshot(0.5);
+        panel = new GamePanel(model);
+        panel.setSize(1000, 700);
+        panel.setShowMetrics(hud);
+        panel.setRasterRendering("raster".equals(backend));
+        image = new BufferedImage(1000, 700, BufferedImage.TYPE_INT_ARGB);
+        g = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        panel.paintComponent(g);
+        return image;
+    }
+}
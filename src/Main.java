@@ -7,11 +7,12 @@ import imagenes.ImageAssets;
 
 public class Main {
     public static void main(String[] args) {
+        // Cargo imágenes por defecto (fondo y texturas) en segundo plano: la ventana sale ya
+        // y ImageManager las va poniendo cuando están
+        ImageAssets.loadDefaultsAsync();
+
         // Ejecutar GUI en EDT
         SwingUtilities.invokeLater(() -> {
-            // Cargo imágenes por defecto (fondo y texturas)
-            ImageAssets.loadDefaults();
-
             // Modelo y vista
             GameModel model = new GameModel(1000, 700);
             MainFrame frame = new MainFrame(model);
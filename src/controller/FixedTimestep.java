@@ -0,0 +1,74 @@
+/*
+ * FixedTimestep: acumulador de paso fijo para la física
+ * - El tiempo real del frame se acumula y se consume en pasos de stepMs exactos,
+ *   así un parón (GC, planificador) no mete un dt enorme que haga atravesar paredes.
+ * - Como mucho maxSubsteps pasos por frame; si sobra tiempo se descarta y se cuenta
+ *   como sobrecarga (la simulación va más lenta que el reloj, pero no explota).
+ * - alpha() = fracción de paso pendiente, para interpolar el dibujo entre los dos últimos pasos.
+ */
+package controller;
+
+import java.util.function.DoubleConsumer;
+
+public class FixedTimestep {
+    private final double stepMs;
+    private final int maxSubsteps;
+
+    private double accumulator = 0.0;
+    // estadísticas de sobrecarga
+    private long overloadedFrames = 0;
+    private double droppedMs = 0.0;
+    private long totalSteps = 0;
+
+    public FixedTimestep(double stepMs, int maxSubsteps) {
+        if (stepMs <= 0) throw new IllegalArgumentException("stepMs debe ser > 0");
+        if (maxSubsteps < 1) throw new IllegalArgumentException("maxSubsteps debe ser >= 1");
+        this.stepMs = stepMs;
+        this.maxSubsteps = maxSubsteps;
+    }
+
+    // Lee -Dgame.physics.stepMs (16 por defecto) y -Dgame.physics.maxSubsteps (5 por defecto)
+    public static FixedTimestep fromProperties() {
+        double step = parseDouble(System.getProperty("game.physics.stepMs"), 16.0);
+        int max = (int) parseDouble(System.getProperty("game.physics.maxSubsteps"), 5);
+        return new FixedTimestep(step > 0 ? step : 16.0, Math.max(1, max));
+    }
+
+    private static double parseDouble(String s, double def) {
+        if (s == null) return def;
+        try {
+            return Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    // añade el tiempo real del frame y ejecuta los pasos que toquen; devuelve cuántos
+    public int advance(double frameMs, DoubleConsumer step) {
+        accumulator += Math.max(0.0, frameMs);
+        int steps = 0;
+        while (accumulator >= stepMs && steps < maxSubsteps) {
+            step.accept(stepMs);
+            accumulator -= stepMs;
+            steps++;
+        }
+        totalSteps += steps;
+        if (accumulator >= stepMs) {
+            // no nos da tiempo: tiramos los pasos sobrantes y nos quedamos con la fracción
+            double keep = accumulator % stepMs;
+            droppedMs += accumulator - keep;
+            accumulator = keep;
+            overloadedFrames++;
+        }
+        return steps;
+    }
+
+    // fracción [0, 1) entre el penúltimo y el último paso
+    public double alpha() { return accumulator / stepMs; }
+
+    public double getStepMs() { return stepMs; }
+    public int getMaxSubsteps() { return maxSubsteps; }
+    public long getOverloadedFrames() { return overloadedFrames; }
+    public double getDroppedMs() { return droppedMs; }
+    public long getTotalSteps() { return totalSteps; }
+}
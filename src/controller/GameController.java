@@ -2,12 +2,18 @@
 package controller;
 
 import model.GameModel;
+import model.SessionRecorder;
+import net.GameServer;
 import view.MainFrame;
 import view.ImageManager;
 import util.Debug;
+import util.GameEvents;
+import util.Metrics;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
@@ -23,11 +29,21 @@ public class GameController {
     // flag para controlar si los bucles deben seguir
     private volatile boolean running = false;
 
+    // física a paso fijo (configurable con -Dgame.physics.stepMs / maxSubsteps)
+    private final FixedTimestep timestep = FixedTimestep.fromProperties();
+
+    // grabación de la sesión (-Dgame.record=fichero); null si no se graba
+    private volatile SessionRecorder recorder;
+
+    // servidor multijugador (-Dgame.server.port=N); null si no hay
+    private GameServer server;
+
     public GameController(GameModel model, MainFrame frame) {
         this.model = model;
         this.frame = frame;
         Debug.log("Controller", "Inicializando controlador");
         wireActions(); // conecto botones y acciones
+        registerGauges(); // valores del modelo para JMX
 
         // START: mostramos la pantalla de inicio -> al pulsar INICIAR se llama a start()
         frame.getStartPanel().setStartAction(() -> {
@@ -41,6 +57,7 @@ public class GameController {
         if (running) return; // ya está en marcha
         running = true;
         startLoops(); // lanzo hilos de física y generación
+        frame.getGamePanel().startRendering(); // solo en modo activo (-Dgame.render=active)
         // pedimos foco al panel para que las teclas funcionen (esto se hace en EDT)
         SwingUtilities.invokeLater(() -> frame.getGamePanel().requestFocusInWindow());
     }
@@ -51,7 +68,7 @@ public class GameController {
         // botón: añadir bola automática
         frame.getSidePanel().addButton.addActionListener(e -> {
             model.addBall();
-            Debug.log("Controller", "Se añadió una bola automática. Total=" + model.count());
+            if (Debug.isEnabled()) Debug.log("Controller", "Se añadió una bola automática. Total={}", model.count());
             frame.getGamePanel().requestFocusInWindow();
         });
         // botón: añadir bola controlable (solo 1)
@@ -84,7 +101,7 @@ public class GameController {
                     ImageManager.setBackground(img);
                     // repaint en EDT para evitar concurrencia con Swing
                     SwingUtilities.invokeLater(frame.getGamePanel()::repaint);
-                    Debug.log("Controller", "Fondo cargado: " + file.getName());
+                    Debug.log("Controller", "Fondo cargado: {}", file.getName());
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(frame, "No se pudo cargar la imagen: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -103,13 +120,83 @@ public class GameController {
                     ImageManager.setBallTexture(img);
                     // repintar para que se vea la textura nueva
                     SwingUtilities.invokeLater(frame.getGamePanel()::repaint);
-                    Debug.log("Controller", "Textura de bola cargada: " + file.getName());
+                    Debug.log("Controller", "Textura de bola cargada: {}", file.getName());
                 } catch (Exception ex) {
                     JOptionPane.showMessageDialog(frame, "No se pudo cargar la imagen: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
             frame.getGamePanel().requestFocusInWindow();
         });
+
+        // guardar el mundo entero en un checkpoint (bolas, habitaciones y límites)
+        frame.getSidePanel().saveWorldButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser(new File("."));
+            chooser.setSelectedFile(new File("mundo.ckp"));
+            int res = chooser.showSaveDialog(frame);
+            if (res == JFileChooser.APPROVE_OPTION) {
+                File file = chooser.getSelectedFile();
+                try {
+                    long t0 = System.nanoTime();
+                    model.saveCheckpoint(file.toPath());
+                    Debug.log("Controller", "Mundo guardado en {} ({} bolas, {} ms)",
+                            file.getName(), model.count(), (System.nanoTime() - t0) / 1_000_000);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(frame, "No se pudo guardar el mundo: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+            frame.getGamePanel().requestFocusInWindow();
+        });
+
+        // cargar un checkpoint: sustituye el mundo actual
+        frame.getSidePanel().loadWorldButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser(new File("."));
+            int res = chooser.showOpenDialog(frame);
+            if (res == JFileChooser.APPROVE_OPTION) {
+                File file = chooser.getSelectedFile();
+                try {
+                    long t0 = System.nanoTime();
+                    model.loadCheckpoint(file.toPath());
+                    SwingUtilities.invokeLater(frame.getGamePanel()::repaint);
+                    Debug.log("Controller", "Mundo cargado de {} ({} bolas, {} ms)",
+                            file.getName(), model.count(), (System.nanoTime() - t0) / 1_000_000);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(frame, "No se pudo cargar el mundo: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+            frame.getGamePanel().requestFocusInWindow();
+        });
+    }
+
+    public FixedTimestep getTimestep() { return timestep; }
+
+    // empieza a grabar en 'file' (si ya se grababa, cierra la grabación anterior)
+    public void startRecording(String file) {
+        stopRecording();
+        try {
+            recorder = new SessionRecorder(model, Paths.get(file), timestep.getStepMs());
+            Debug.log("Controller", "Grabando sesión en {}", file);
+        } catch (IOException ex) {
+            Debug.log("Controller", "No se pudo grabar la sesión: {}", ex.getMessage());
+        }
+    }
+
+    public void stopRecording() {
+        SessionRecorder r = recorder;
+        if (r == null) return;
+        recorder = null;
+        try {
+            r.close();
+            Debug.log("Controller", "Sesión grabada: frames={}, bytes={}, descartados={}",
+                    r.getFramesWritten(), r.getBytesWritten(), r.getDroppedFrames());
+        } catch (IOException ex) {
+            Debug.log("Controller", "Error al cerrar la grabación: {}", ex.getMessage());
+        }
+    }
+
+    // valores que se leen al consultarlos por JMX (no cuestan nada mientras nadie mira)
+    private void registerGauges() {
+        Metrics.gauge("balls", model::count);
+        Metrics.gauge("collision.pairs.tick", model::getLastCollisionPairs);
     }
 
     @SuppressWarnings("unused")
@@ -117,34 +204,80 @@ public class GameController {
     private void startLoops() {
         Debug.log("Controller", "Arrancando bucles");
         final int frameMs = 16; // ~60 fps (objetivo)
-        // runnable que calcula dt real y actualiza el modelo
+        // en modo determinista la generación va por ticks (cada ~2 s simulados), no por reloj
+        final long spawnEverySteps = Math.max(1, Math.round(2000.0 / timestep.getStepMs()));
+        if (model.isDeterministic()) {
+            Debug.log("Controller", "Modo determinista, semilla={}", model.getSeed());
+        }
+        String recordFile = System.getProperty("game.record");
+        if (recordFile != null && recorder == null) startRecording(recordFile);
+        String serverPort = System.getProperty("game.server.port");
+        if (serverPort != null && server == null) {
+            try {
+                server = new GameServer(model, System.getProperty("game.server.host", "127.0.0.1"), Integer.parseInt(serverPort.trim()));
+                Debug.log("Controller", "Servidor de red en el puerto {}", server.getPort());
+            } catch (IOException | NumberFormatException ex) {
+                Debug.log("Controller", "No se pudo arrancar el servidor: {}", ex.getMessage());
+            }
+        }
+        final GameServer net = server;
+        // runnable que mide el tiempo real y lo consume en pasos fijos de física
         executor.scheduleAtFixedRate(new Runnable() {
             long last = System.nanoTime();
             int frames = 0;
+            long lastOverloads = 0;
             @Override
             public void run() {
                 if (!running) return; // si nos pidieron parar salimos
                 long now = System.nanoTime();
                 long delta = now - last;
                 last = now;
-                // convertimos a milisegundos reales para el modelo (dt en ms)
-                double dtMs = Math.max(1, delta / 1_000_000.0);
-                model.update(dtMs); // actualizamos física
+                // tiempo real del frame en ms; el acumulador lo trocea en pasos de stepMs
+                double frameMsReal = delta / 1_000_000.0;
+                timestep.advance(frameMsReal, step -> {
+                    GameEvents.TickEvent event = new GameEvents.TickEvent();
+                    event.begin();
+                    model.update(step);
+                    if (model.isDeterministic() && model.getTick() % spawnEverySteps == 0) model.addBall();
+                    SessionRecorder r = recorder;
+                    if (r != null) r.onTick();
+                    if (net != null) net.onTick();
+                    if (event.shouldCommit()) {
+                        event.tick = model.getTick();
+                        event.balls = model.count();
+                        event.stepMs = step;
+                        event.commit();
+                    }
+                });
                 frames++;
                 if (frames >= 60) {
                     frames = 0;
-                    Debug.log("Physics", "update dt=" + dtMs + " ms");
+                    long overloads = timestep.getOverloadedFrames();
+                    // los argumentos se empaquetan (boxing) aunque no se escriba: solo con debug
+                    if (Debug.isEnabled()) {
+                        Debug.log("Physics", "frame={} ms, paso={} ms, sobrecargas={}, descartado total={} ms",
+                                frameMsReal, timestep.getStepMs(), overloads - lastOverloads, timestep.getDroppedMs());
+                        // el checksum recorre todo el mundo: solo si de verdad se va a escribir
+                        if (model.isDeterministic()) {
+                            Debug.log("Physics", "tick={} checksum={}", model.getTick(), Long.toHexString(model.checksum()));
+                        }
+                    }
+                    lastOverloads = overloads;
                 }
-                // pedimos repintado en EDT (sí o sí en Swing)
-                SwingUtilities.invokeLater(frame.getGamePanel()::repaint);
+                // publicamos la foto para pintar (con la fracción para interpolar entre los dos últimos pasos)
+                model.publishSnapshot(timestep.alpha());
+                Metrics.FRAME.record(System.nanoTime() - now);
+                // pedimos un frame: en Swing como mucho uno pendiente (si el EDT va atrasado no
+                // se amontonan); en modo activo lo pinta el hilo de render a su ritmo
+                frame.getGamePanel().requestFrame();
             }
         }, 0, frameMs, TimeUnit.MILLISECONDS);
 
         // generador: cada 2s añadimos una bola automática (se puede quitar si no quieres)
         executor.scheduleAtFixedRate(() -> {
-            if (!running) return;
+            if (!running || model.isDeterministic()) return;
             model.addBall();
-            Debug.log("Controller", "Bola generada automáticamente. Total=" + model.count());
+            if (Debug.isEnabled()) Debug.log("Controller", "Bola generada automáticamente. Total={}", model.count());
         }, 2, 2, TimeUnit.SECONDS);
     }
 
@@ -153,5 +286,8 @@ public class GameController {
         Debug.log("Controller", "Shutdown solicitado");
         running = false;
         executor.shutdownNow();
+        frame.getGamePanel().stopRendering();
+        stopRecording();
+        if (server != null) server.close();
     }
 }
@@ -0,0 +1,248 @@
+/*
+ * HeadlessRunner: simulación sin ventana (sin Swing ni X11)
+ * - Crea un GameModel con tamaño, bolas y semilla dados y lo avanza a paso fijo
+ *   lo más rápido posible, sin dibujar.
+ * - Al final imprime ticks/s, actualizaciones de bola/s, p50/p99 del tick y la habitación.
+ * Uso:
+ *   java -cp out controller.HeadlessRunner --balls=10000 --width=4000 --height=3000 --seed=42 --seconds=60
+ * Opciones: --width --height --balls --seed --seconds (simulados) o --ticks, --step (ms),
+ *           --threads, --broadphase=grid|brute, --engine=step|event,
+ *           --rooms=N (habitaciones extra en rejilla) y --capacity=C (plazas de cada una),
+ *           --deterministic y --checksum-every=N (imprime el checksum cada N ticks, con las franjas
+ *           de colisión en paralelo: sin --deterministic salen de los hilos y cambian el checksum),
+ *           --record=fichero (graba la sesión; --keyframe-every=N) e imprime el sobrecoste,
+ *           --load=fichero (arranca desde un checkpoint) y --save=fichero (lo guarda al final;
+ *           por pasos y con --deterministic, cargar y seguir da los mismos checksums),
+ *           --serve=puerto (servidor de red en 127.0.0.1, a tiempo real; ver net.LoadGenerator)
+ */
+package controller;
+
+import model.Ball;
+import model.Broadphase;
+import model.GameModel;
+import model.Room;
+import model.SessionRecorder;
+import model.SimulationMode;
+import net.GameServer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+public class HeadlessRunner {
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        Map<String, String> opts = parseArgs(args);
+
+        int width = intOpt(opts, "width", 1000);
+        int height = intOpt(opts, "height", 700);
+        int balls = intOpt(opts, "balls", 1000);
+        long seed = Long.parseLong(opts.getOrDefault("seed", "42"));
+        double stepMs = Double.parseDouble(opts.getOrDefault("step", "16"));
+        double seconds = Double.parseDouble(opts.getOrDefault("seconds", "60"));
+        long ticks = opts.containsKey("ticks")
+                ? Long.parseLong(opts.get("ticks"))
+                : Math.max(1, Math.round(seconds * 1000.0 / stepMs));
+        if (ticks < 1) {
+            System.err.println("--ticks tiene que ser 1 o más (se pidió " + ticks + ")");
+            System.err.println("Uso: java -cp out controller.HeadlessRunner [--ticks=N | --seconds=S] [--balls=N] ...");
+            System.exit(2);
+        }
+
+        GameModel model = new GameModel(width, height, seed);
+        if (opts.containsKey("threads")) model.setParallelism(intOpt(opts, "threads", 1));
+        if ("brute".equalsIgnoreCase(opts.get("broadphase"))) model.setBroadphase(Broadphase.BRUTE_FORCE);
+        if ("grid".equalsIgnoreCase(opts.get("broadphase"))) model.setBroadphase(Broadphase.GRID);
+        if ("event".equalsIgnoreCase(opts.get("engine"))) model.setSimulationMode(SimulationMode.EVENT_DRIVEN);
+        if (opts.containsKey("deterministic")) model.setDeterministic(true);
+        long checksumEvery = Long.parseLong(opts.getOrDefault("checksum-every", "0"));
+        if (opts.containsKey("load")) {
+            long t0 = System.nanoTime();
+            boolean exact = model.loadCheckpoint(Paths.get(opts.get("load")));
+            balls = model.count();
+            width = model.getWidth();
+            height = model.getHeight();
+            System.out.printf(Locale.ROOT, "Checkpoint cargado en %.1f ms%n", (System.nanoTime() - t0) / 1e6);
+            if (!exact) {
+                System.out.println("Aviso: checkpoint antiguo (aleatorio desde la semilla, colas vacías): "
+                        + "los checksums no son comparables con la partida original");
+            } else if (model.getSimulationMode() == SimulationMode.EVENT_DRIVEN) {
+                System.out.println("Aviso: por eventos la cola de eventos se recalcula al cargar: "
+                        + "los checksums no son comparables con la partida original");
+            }
+        } else {
+            addRoomGrid(model, intOpt(opts, "rooms", 0), intOpt(opts, "capacity", 1));
+            model.addBalls(balls);
+        }
+
+        System.out.printf(Locale.ROOT, "Mundo %dx%d, %d bolas, %d habitaciones, semilla %d, paso %.2f ms, %d ticks (%s, %s, %d hilo(s))%n",
+                width, height, balls, model.getRooms().size(), seed, stepMs, ticks,
+                model.getSimulationMode(), model.getBroadphase(), model.getParallelism());
+
+        SessionRecorder recorder = opts.containsKey("record")
+                ? new SessionRecorder(model, Paths.get(opts.get("record")), stepMs, intOpt(opts, "keyframe-every", 300), 1)
+                : null;
+
+        GameServer server = null;
+        if (opts.containsKey("serve")) {
+            server = new GameServer(model, opts.getOrDefault("host", "127.0.0.1"), intOpt(opts, "serve", 7777));
+            System.out.printf(Locale.ROOT, "Servidor escuchando en el puerto %d (a tiempo real)%n", server.getPort());
+        }
+
+        // tiempos por tick (ns); en runs muy largos guardamos solo el último millón (anillo),
+        // así que el máximo se lleva aparte para no perder el de los ticks ya pisados
+        int maxSamples = (int) Math.min(ticks, 1_000_000);
+        long[] samples = new long[maxSamples];
+        long maxNs = 0;
+        long start = System.nanoTime();
+        for (long t = 0; t < ticks; t++) {
+            long t0 = System.nanoTime();
+            model.update(stepMs);
+            if (recorder != null) recorder.onTick();
+            if (server != null) server.onTick();
+            long el = System.nanoTime() - t0;
+            samples[(int) (t % maxSamples)] = el;
+            if (el > maxNs) maxNs = el;
+            // con servidor vamos a tiempo real: esperamos al siguiente paso
+            if (server != null) {
+                long next = start + (long) ((t + 1) * stepMs * 1e6);
+                long wait = next - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+            }
+            if (checksumEvery > 0 && (t + 1) % checksumEvery == 0) {
+                System.out.printf(Locale.ROOT, "tick %d checksum %016x (franjas=%d)%n", model.getTick(), model.checksum(),
+                        model.getCollisionStrips());
+            }
+        }
+        long totalNs = System.nanoTime() - start;
+        int strips = model.getCollisionStrips(); // antes de parar el pool
+        model.setParallelism(1); // paramos el pool si lo había
+
+        Arrays.sort(samples);
+        double secs = totalNs / 1e9;
+        System.out.printf(Locale.ROOT, "Tiempo real: %.3f s (simulado: %.1f s)%n", secs, ticks * stepMs / 1000.0);
+        System.out.printf(Locale.ROOT, "Ticks/s: %.1f%n", ticks / secs);
+        System.out.printf(Locale.ROOT, "Actualizaciones de bola/s: %.0f%n", (double) ticks * model.count() / secs);
+        System.out.printf(Locale.ROOT, "Tick p50: %.3f ms, p99: %.3f ms%s, max: %.3f ms%n",
+                percentile(samples, 0.50) / 1e6, percentile(samples, 0.99) / 1e6,
+                ticks > maxSamples ? " (últimos " + maxSamples + " ticks)" : "", maxNs / 1e6);
+        printRoomStats(model);
+        if (recorder != null) printRecordStats(recorder, totalNs, ticks, model.count());
+        if (server != null) printServerStats(server, stepMs);
+        System.out.printf(Locale.ROOT, "Checksum final (tick %d): %016x (franjas=%d%s)%n", model.getTick(),
+                model.checksum(), strips, model.isDeterministic() ? "" : ", dependen de --threads");
+        if (opts.containsKey("save")) {
+            long t0 = System.nanoTime();
+            model.saveCheckpoint(Paths.get(opts.get("save")));
+            System.out.printf(Locale.ROOT, "Checkpoint guardado en %.1f ms%n", (System.nanoTime() - t0) / 1e6);
+        }
+    }
+
+    // n habitaciones cuadradas repartidas en rejilla (saltando las que pisan o rozan la central)
+    private static void addRoomGrid(GameModel model, int n, int capacity) {
+        if (n <= 0) return;
+        int w = model.getWidth();
+        int h = model.getHeight();
+        int cols = Math.max(1, (int) Math.ceil(Math.sqrt(n * (double) w / h)));
+        int rows = Math.max(1, (n + cols - 1) / cols);
+        int cellW = w / cols;
+        int cellH = h / rows;
+        // margen de una bola entre habitaciones: si no, una bola puede quedar encajada entre dos llenas
+        int gap = 2 * Ball.MAX_RADIUS + 2;
+        int size = Math.max(20, Math.min(cellW, cellH) - gap);
+        java.awt.Rectangle central = new java.awt.Rectangle(model.getRoom().getBounds());
+        central.grow(gap, gap);
+        int added = 0;
+        for (int r = 0; r < rows && added < n; r++) {
+            for (int c = 0; c < cols && added < n; c++) {
+                int x = c * cellW + (cellW - size) / 2;
+                int y = r * cellH + (cellH - size) / 2;
+                if (central.intersects(x, y, size, size)) continue;
+                model.addRoom(x, y, size, size, capacity);
+                added++;
+            }
+        }
+    }
+
+    // el tiempo de captura cuenta dentro del tick; el resto lo hace el hilo escritor
+    private static void printRecordStats(SessionRecorder recorder, long totalNs, long ticks, int balls) throws IOException {
+        recorder.close();
+        long frames = recorder.getFramesWritten();
+        System.out.printf(Locale.ROOT, "Grabación: %d frames, %.1f MB, %.2f bytes/bola/frame, descartados=%d, "
+                        + "captura %.1f us/tick (%.2f%% del tiempo)%n",
+                frames, recorder.getBytesWritten() / 1e6,
+                frames == 0 || balls == 0 ? 0.0 : (double) recorder.getBytesWritten() / frames / balls,
+                recorder.getDroppedFrames(), recorder.getCaptureNanos() / 1e3 / ticks,
+                100.0 * recorder.getCaptureNanos() / totalNs);
+    }
+
+    private static void printServerStats(GameServer server, double stepMs) {
+        long n = Math.max(1, server.getBroadcastCount());
+        // segundos-cliente = STATEs enviados * duración del paso
+        double clientSecs = server.getClientUpdates() * stepMs / 1000.0;
+        System.out.printf(Locale.ROOT, "Servidor: %d clientes (máx), reparto %.3f ms/tick (máx %.3f ms) en el hilo de red, "
+                        + "%.1f MB enviados, %.0f bytes/cliente/s, envíos saltados=%d%n",
+                server.getMaxClientCount(), server.getBroadcastNanos() / 1e6 / n, server.getMaxBroadcastNanos() / 1e6,
+                server.getBytesSent() / 1e6, clientSecs == 0 ? 0.0 : server.getBytesSent() / clientSecs,
+                server.getSkippedUpdates());
+        server.close();
+    }
+
+    // totales de todas las habitaciones + la central
+    private static void printRoomStats(GameModel model) {
+        List<Room> rooms = model.getRooms();
+        long entries = 0, rejections = 0, contended = 0, expired = 0, maxQueue = 0;
+        int occupied = 0, queued = 0;
+        for (Room r : rooms) {
+            entries += r.getEntryCount();
+            rejections += r.getRejectionCount();
+            contended += r.getContendedCount();
+            expired += r.getQueueExpiredCount();
+            maxQueue = Math.max(maxQueue, r.getMaxQueueLength());
+            occupied += r.getOccupancy();
+            queued += r.getQueueLength();
+        }
+        Room room = model.getRoom();
+        System.out.printf(Locale.ROOT, "Habitación central: %d/%d, cola=%d, entradas=%d, rechazos=%d, carreras perdidas=%d%n",
+                room.getOccupancy(), room.getCapacity(), room.getQueueLength(), room.getEntryCount(),
+                room.getRejectionCount(), room.getContendedCount());
+        System.out.printf(Locale.ROOT, "Habitaciones (%d): ocupantes=%d, en cola=%d, cola máx=%d, entradas=%d, rechazos=%d, "
+                        + "carreras perdidas=%d, caducados en cola=%d%n",
+                rooms.size(), occupied, queued, maxQueue, entries, rejections, contended, expired);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    // --clave=valor (o --clave valor)
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (!a.startsWith("--")) continue;
+            String key = a.substring(2);
+            String value = "true";
+            int eq = key.indexOf('=');
+            if (eq >= 0) {
+                value = key.substring(eq + 1);
+                key = key.substring(0, eq);
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                value = args[++i];
+            }
+            map.put(key.toLowerCase(Locale.ROOT), value);
+        }
+        return map;
+    }
+
+    private static int intOpt(Map<String, String> opts, String key, int def) {
+        String v = opts.get(key);
+        return v == null ? def : Integer.parseInt(v.trim());
+    }
+}
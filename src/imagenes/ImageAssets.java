@@ -1,65 +1,162 @@
 /*
  * ImageAssets: carga imágenes por defecto (fondo y asteroides)
+ * - loadDefaultsAsync(): lee y decodifica fondo y texturas en paralelo (hilos "asset-loader")
+ *   y las va pasando a ImageManager según están; la ventana sale sin esperar.
+ * - Antes de decodificar, mira en AssetCache si ya hay escalados de esos mismos PNG (por hash):
+ *   el fondo a los tamaños de ventana usados y el atlas de bolas. Así el primer frame no espera
+ *   al PNG grande ni a getScaledInstance; el original se sigue decodificando detrás para
+ *   poder escalar a otros tamaños.
  */
 package imagenes;
 
+import util.Debug;
+import view.AssetCache;
 import view.ImageManager;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ImageAssets {
-    // Llama a este método al iniciar la app para cargar imágenes por defecto del classpath
+    // dónde buscar cada imagen, por orden de preferencia (classpath y luego fichero)
+    private static final String[] BACKGROUND = {
+            "/imagenes/fondo.png", "/imagenes/Space-Background-Image-2.png",
+            "src/imagenes/Space-Background-Image-2.png", "src/imagenes/fondo.png"};
+    private static final String[] ASTEROID1 = {"/imagenes/asteroid1.png", "src/imagenes/asteroid1.png"};
+    private static final String[] ASTEROID2 = {"/imagenes/asteroid2.png", "src/imagenes/asteroid2.png"};
+    private static final String[] BALL = {"/imagenes/bola.png", "src/imagenes/bola.png"};
+
+    // cuántos tamaños de fondo de otras ejecuciones se traen de disco al arrancar
+    private static final int CACHED_BACKGROUNDS = 2;
+
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(3, r -> {
+        Thread t = new Thread(r, "asset-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // bytes de una imagen encontrada y su hash (clave de AssetCache)
+    private record Source(String path, byte[] bytes, String hash) { }
+
+    // Llama a este método al iniciar la app para cargar imágenes por defecto (espera a que acaben)
     public static void loadDefaults() {
-        // 1) Fondo (orden de preferencia)
-        BufferedImage bg = loadFromClasspath("/imagenes/fondo.png");
-        if (bg == null) {
-            bg = loadFromClasspath("/imagenes/Space-Background-Image-2.png");
-            if (bg == null) {
-                bg = loadFromFileIfExists("src/imagenes/Space-Background-Image-2.png");
-                if (bg == null) {
-                    bg = loadFromFileIfExists("src/imagenes/fondo.png");
-                }
+        loadDefaultsAsync().join();
+    }
+
+    // Igual, pero sin esperar: fondo y texturas en paralelo; se completa cuando ya están puestas
+    public static CompletableFuture<Void> loadDefaultsAsync() {
+        long start = System.nanoTime();
+        CompletableFuture<Void> background = CompletableFuture.runAsync(ImageAssets::loadBackground, LOADER);
+        CompletableFuture<Source> a1 = CompletableFuture.supplyAsync(() -> find(ASTEROID1), LOADER);
+        CompletableFuture<Source> a2 = CompletableFuture.supplyAsync(() -> find(ASTEROID2), LOADER);
+        CompletableFuture<BufferedImage> i1 = a1.thenApplyAsync(ImageAssets::decode, LOADER);
+        CompletableFuture<BufferedImage> i2 = a2.thenApplyAsync(ImageAssets::decode, LOADER);
+        // con los hashes ya se puede traer el atlas de disco, mientras se decodifican
+        CompletableFuture.allOf(a1, a2).thenRun(() -> {
+            List<Source> found = new ArrayList<>();
+            for (Source src : Arrays.asList(a1.join(), a2.join())) {
+                if (src != null) found.add(src);
+            }
+            if (!found.isEmpty() && AssetCache.isEnabled()) ImageManager.preloadBallAtlas(texturesKey(found), found.size());
+        });
+        CompletableFuture<Void> textures = CompletableFuture.allOf(i1, i2).thenRun(() ->
+                setTextures(Arrays.asList(a1.join(), a2.join()), Arrays.asList(i1.join(), i2.join())));
+        return CompletableFuture.allOf(background, textures).whenComplete((v, e) -> {
+            if (e != null) Debug.log("Assets", "Fallo cargando imágenes: {}", e);
+            Debug.log("Assets", "Imágenes cargadas en {} ms", (System.nanoTime() - start) / 1_000_000);
+        });
+    }
+
+    // 1) Fondo: primero lo que haya escalado en disco, luego el original
+    private static void loadBackground() {
+        Source src = find(BACKGROUND);
+        if (src == null) return;
+        if (AssetCache.isEnabled()) {
+            List<BufferedImage> cached = AssetCache.loadRecent("bg-" + src.hash() + "-", CACHED_BACKGROUNDS);
+            if (!cached.isEmpty()) {
+                ImageManager.setPreScaledBackgrounds(src.hash(), cached);
+                Debug.log("Assets", "Fondo: {} tamaños sacados de la cache", cached.size());
             }
         }
-        if (bg != null) ImageManager.setBackground(bg);
+        BufferedImage bg = decode(src);
+        if (bg != null) ImageManager.setBackground(bg, src.hash());
+    }
 
-        // 2) Texturas de bola por defecto: intentamos varias (asteroides)
-        ImageManager.clearBallTextures();
-        BufferedImage a1 = loadFromClasspath("/imagenes/asteroid1.png");
-        if (a1 == null) a1 = loadFromFileIfExists("src/imagenes/asteroid1.png");
-        if (a1 != null) ImageManager.addBallTexture(a1);
+    // 2) Texturas de bola por defecto (asteroides), todas de una vez para que salga un solo atlas
+    private static void setTextures(List<Source> sources, List<BufferedImage> images) {
+        List<BufferedImage> found = new ArrayList<>();
+        List<Source> used = new ArrayList<>();
+        for (int k = 0; k < images.size(); k++) {
+            if (images.get(k) == null) continue;
+            found.add(images.get(k));
+            used.add(sources.get(k));
+        }
+        // Si no hay ninguna cargada, mantenemos compatibilidad con bola.png
+        if (found.isEmpty()) {
+            Source ball = find(BALL);
+            BufferedImage img = decode(ball);
+            if (img != null) {
+                found.add(img);
+                used.add(ball);
+            }
+        }
+        ImageManager.setBallTextures(found, found.isEmpty() ? null : texturesKey(used));
+    }
 
-        BufferedImage a2 = loadFromClasspath("/imagenes/asteroid2.png");
-        if (a2 == null) a2 = loadFromFileIfExists("src/imagenes/asteroid2.png");
-        if (a2 != null) ImageManager.addBallTexture(a2);
+    // clave del conjunto de texturas (en orden: el orden es el de las variantes)
+    private static String texturesKey(List<Source> sources) {
+        StringBuilder key = new StringBuilder();
+        for (Source src : sources) key.append(src.hash()).append(',');
+        return AssetCache.hash(key.toString().getBytes(StandardCharsets.UTF_8));
+    }
 
-        // Si no hay ninguna cargada, mantenemos compatibilidad con bola.png
-        if (ImageManager.getBallTexturesCount() == 0) {
-            BufferedImage ball = loadFromClasspath("/imagenes/bola.png");
-            if (ball == null) ball = loadFromFileIfExists("src/imagenes/bola.png");
-            if (ball != null) ImageManager.addBallTexture(ball);
+    // la primera que exista de paths (empiezan por "/": classpath; si no, fichero)
+    private static Source find(String[] paths) {
+        for (String path : paths) {
+            byte[] bytes = path.startsWith("/") ? readFromClasspath(path) : readFromFileIfExists(path);
+            if (bytes != null) return new Source(path, bytes, AssetCache.hash(bytes));
+        }
+        return null;
+    }
+
+    private static BufferedImage decode(Source src) {
+        if (src == null) return null;
+        try {
+            long t0 = System.nanoTime();
+            BufferedImage img = ImageIO.read(new ByteArrayInputStream(src.bytes()));
+            Debug.log("Assets", "{} decodificada en {} ms", src.path(), (System.nanoTime() - t0) / 1_000_000);
+            return img;
+        } catch (Exception e) {
+            return null; // si falla, devolvemos null y la vista usa fallback
         }
     }
 
     // Pequeña utilidad para leer una imagen del classpath
-    private static BufferedImage loadFromClasspath(String path) {
+    private static byte[] readFromClasspath(String path) {
         try (InputStream is = ImageAssets.class.getResourceAsStream(path)) {
             if (is == null) return null; // no está el recurso
-            return ImageIO.read(is);
+            return is.readAllBytes();
         } catch (Exception e) {
-            return null; // si falla, devolvemos null y la vista usa fallback
+            return null;
         }
     }
 
     // Leer desde archivo si existe
-    private static BufferedImage loadFromFileIfExists(String path) {
+    private static byte[] readFromFileIfExists(String path) {
         try {
             File f = new File(path);
             if (!f.exists()) return null;
-            return ImageIO.read(f);
+            return Files.readAllBytes(f.toPath());
         } catch (Exception e) {
             return null;
         }
@@ -3,117 +3,149 @@
  * - Representa una bola que se mueve sola y rebota en paredes y habitación.
  * - Unidades: velocidad en px/ms y aceleración en px/ms^2 para que sea "de verdad".
  * - variantIndex: número aleatorio para elegir qué textura usar (asteroid1/asteroid2, etc.).
+ * - El estado vive en BallStore (arrays paralelos); Ball es solo un asa (store + índice).
+ *   La física está en métodos estáticos sobre (store, i) para que GameModel recorra
+ *   los arrays directamente sin crear objetos.
  */
 package model;
 
 import java.awt.Color;
-import java.util.Random;
 
 // Bola automática: posición, velocidad (px/ms) y aceleración (px/ms^2)
 public class Ball {
-    private static final Random RNG = new Random();
-    private static final int MIN_RADIUS = 10;
-    private static final int MAX_RADIUS = 30;
-
-    // posición y velocidad
-    protected double x;
-    protected double y;
-    protected double vx; // ahora protected para que subclases puedan acceder
-    protected double vy;
-    // Aceleración en px/ms^2 (puede ser positiva o negativa)
-    protected double ax;
-    protected double ay;
-    private final int radius; // radio en píxeles
-    private final Color color; // color para dibujar
-    private boolean inRoom = false; // true si la bola está dentro de la habitación
+    public static final int MIN_RADIUS = 10;
+    public static final int MAX_RADIUS = 30;
 
     // Límite de velocidad para evitar que sean demasiado rápidas (px/ms)
     private static final double MAX_SPEED = 0.8; // 800 px/s
 
-    // Índice de variante para textura (para elegir entre varias imágenes)
-    private final int variantIndex;
+    // dónde está el estado de esta bola (el índice cambia si otra bola se borra)
+    final BallStore store;
+    int slot;
+    private Color color; // cache del Color (solo si alguien lo pide)
 
-    public Ball(int boundsWidth, int boundsHeight) {
+    // asa sobre un hueco ya existente del store
+    Ball(BallStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
+    }
+
+    // crea una bola nueva con estado aleatorio dentro de los límites y devuelve su índice
+    static int spawn(BallStore s, int boundsWidth, int boundsHeight) {
+        int i = s.allocate();
+        SimStream rng = s.rng.spawn();
         // Elegimos un radio aleatorio para que no todas sean iguales
-        this.radius = RNG.nextInt(MAX_RADIUS - MIN_RADIUS + 1) + MIN_RADIUS;
+        int radius = rng.nextInt(MAX_RADIUS - MIN_RADIUS + 1) + MIN_RADIUS;
+        s.radius[i] = radius;
         // Posicionamos la bola dentro de los límites teniendo en cuenta el radio
-        this.x = RNG.nextInt(Math.max(1, boundsWidth - 2 * radius)) + radius;
-        this.y = RNG.nextInt(Math.max(1, boundsHeight - 2 * radius)) + radius;
+        s.x[i] = rng.nextInt(Math.max(1, boundsWidth - 2 * radius)) + radius;
+        s.y[i] = rng.nextInt(Math.max(1, boundsHeight - 2 * radius)) + radius;
+        s.px[i] = s.x[i];
+        s.py[i] = s.y[i];
         // Velocidad aleatoria en px/ms
-        this.vx = ((RNG.nextDouble() * 2 - 1) * (50 + RNG.nextInt(100))) / 1000.0;
-        this.vy = ((RNG.nextDouble() * 2 - 1) * (50 + RNG.nextInt(100))) / 1000.0;
+        s.vx[i] = ((rng.nextDouble() * 2 - 1) * (50 + rng.nextInt(100))) / 1000.0;
+        s.vy[i] = ((rng.nextDouble() * 2 - 1) * (50 + rng.nextInt(100))) / 1000.0;
         // Aceleración pequeña aleatoria
-        this.ax = (RNG.nextDouble() * 2 - 1) * 0.0001;
-        this.ay = (RNG.nextDouble() * 2 - 1) * 0.0001;
+        s.ax[i] = (rng.nextDouble() * 2 - 1) * 0.0001;
+        s.ay[i] = (rng.nextDouble() * 2 - 1) * 0.0001;
         // Color aleatorio para fallback si no hay textura
-        this.color = new Color(RNG.nextInt(256), RNG.nextInt(256), RNG.nextInt(256));
+        s.rgb[i] = (rng.nextInt(256) << 16) | (rng.nextInt(256) << 8) | rng.nextInt(256);
         // Variant index aleatorio para repartir las texturas
-        this.variantIndex = RNG.nextInt(10_000); // grande para mezclar bien con % count
+        s.variant[i] = rng.nextInt(10_000); // grande para mezclar bien con % count
+        return i;
     }
 
     // actualizar posición y velocidad (dt en ms)
     public void update(double dt, int width, int height, Room room) {
-        // dt está en ms y vx/vy en px/ms -> movimiento correcto: px
+        step(store, slot, dt, width, height, room);
+    }
+
+    // paso completo de una bola automática: integrar, habitación y bordes
+    static void step(BallStore s, int i, double dt, int width, int height, Room room) {
+        integrate(s, i, dt);
+        // Después de mover, comprobamos la interacción con la habitación
+        roomInteraction(s, i, room);
+        // También comprobamos rebote con los bordes de la ventana
+        bounceWalls(s, i, width, height);
+    }
+
+    // igual, pero la habitación la busca el índice (varias habitaciones)
+    static void step(BallStore s, int i, double dt, int width, int height, RoomIndex rooms) {
+        integrate(s, i, dt);
+        rooms.interact(s, i);
+        bounceWalls(s, i, width, height);
+    }
+
+    // dt está en ms y vx/vy en px/ms -> movimiento correcto: px
+    static void integrate(BallStore s, int i, double dt) {
         // Primero actualizamos la velocidad usando la aceleración: v += a * dt
-        vx += ax * dt;
-        vy += ay * dt;
+        s.vx[i] += s.ax[i] * dt;
+        s.vy[i] += s.ay[i] * dt;
 
         // Limitamos la velocidad absoluta para que no explote
-        limitSpeed();
+        limitSpeed(s, i);
 
         // Luego movemos según la velocidad actual
-        x += vx * dt;
-        y += vy * dt;
-
-        // Después de mover, comprobamos la interacción con la habitación
-        handleRoomInteraction(room);
-
-        // También comprobamos rebote con los bordes de la ventana
-        bounce(width, height);
+        s.x[i] += s.vx[i] * dt;
+        s.y[i] += s.vy[i] * dt;
     }
 
     // Limitar la velocidad total (magnitud) a MAX_SPEED
-    private void limitSpeed() {
+    static void limitSpeed(BallStore s, int i) {
+        double vx = s.vx[i];
+        double vy = s.vy[i];
         double speed = Math.sqrt(vx * vx + vy * vy);
         if (speed > MAX_SPEED) {
             double scale = MAX_SPEED / speed;
-            vx *= scale;
-            vy *= scale;
+            s.vx[i] = vx * scale;
+            s.vy[i] = vy * scale;
         }
     }
 
     // Maneja la lógica para entrar/salir/rebotar con la habitación
     protected void handleRoomInteraction(Room room) {
-        if (room == null) return; // si no hay habitación, no hacemos nada
+        roomInteraction(store, slot, room);
+    }
+
+    // devuelve true si la habitación hizo algo con la bola (entrar, salir o rebotar)
+    static boolean roomInteraction(BallStore s, int i, Room room) {
+        if (room == null) return false; // si no hay habitación, no hacemos nada
 
-        int centerX = getX();
-        int centerY = getY();
+        int centerX = (int) Math.round(s.x[i]);
+        int centerY = (int) Math.round(s.y[i]);
+        boolean inRoom = s.isInRoom(i);
         boolean nowInside = room.contains(centerX, centerY);
 
         if (!inRoom && nowInside) {
             // Si antes no estaba dentro y ahora sí, intenta entrar
-            if (room.tryEnter(this)) {
-                // Si tryEnter devuelve true, esta bola se convierte en el ocupante
-                inRoom = true;
+            if (room.tryEnter(s.handle(i))) {
+                // Si tryEnter devuelve true, esta bola pasa a ser uno de los ocupantes
+                s.enterRoom(i, room.index);
             } else {
-                // Si no pudo entrar (la habitación está ocupada), rebotamos con la habitación
-                bounceWithRoom(room);
+                // Si no pudo entrar (la habitación está llena), rebotamos con la habitación
+                bounceWithRoom(s, i, room);
             }
+            return true;
         } else if (inRoom && !nowInside) {
             // Si estaba dentro y ya no está, avisamos que se va
-            room.tryLeave(this);
-            inRoom = false;
-        } else if (!inRoom && room.isOccupied() && room.intersects(centerX, centerY, radius)) {
-            // Si la habitación está ocupada y la bola choca con sus paredes, rebotar
-            bounceWithRoom(room);
+            room.tryLeave(s.handle(i));
+            s.leaveRoom(i);
+            return true;
+        } else if (!inRoom && room.isFull() && room.intersects(centerX, centerY, s.radius[i])) {
+            // Si la habitación está llena y la bola choca con sus paredes, rebotar (y a la cola)
+            room.waitFor(s.handle(i));
+            bounceWithRoom(s, i, room);
+            return true;
         }
+        return false;
     }
 
     // Calcula un rebote simple cuando una bola choca con la habitación
-    private void bounceWithRoom(Room room) {
+    static void bounceWithRoom(BallStore s, int i, Room room) {
         java.awt.Rectangle bounds = room.getBounds();
-        int cx = getX();
-        int cy = getY();
+        int cx = (int) Math.round(s.x[i]);
+        int cy = (int) Math.round(s.y[i]);
+        int radius = s.radius[i];
 
         // Calculamos la distancia a cada pared para saber con cuál colisionamos
         double leftDist = Math.abs(cx - bounds.x);
@@ -125,71 +157,98 @@ public class Ball {
 
         if (minDist == leftDist || minDist == rightDist) {
             // Colisión lateral -> invertimos la velocidad horizontal
-            vx = -vx;
+            s.vx[i] = -s.vx[i];
             // Invertir aceleración horizontal para que no vuelva a empujar hacia la pared
-            ax = -ax;
+            s.ax[i] = -s.ax[i];
             if (minDist == leftDist) {
-                x = bounds.x - radius - 1; // colocamos la bola justo fuera de la pared
+                s.x[i] = bounds.x - radius - 1; // colocamos la bola justo fuera de la pared
             } else {
-                x = bounds.x + bounds.width + radius + 1;
+                s.x[i] = bounds.x + bounds.width + radius + 1;
             }
         } else {
             // Colisión superior/inferior -> invertimos la velocidad vertical
-            vy = -vy;
-            ay = -ay;
+            s.vy[i] = -s.vy[i];
+            s.ay[i] = -s.ay[i];
             if (minDist == topDist) {
-                y = bounds.y - radius - 1;
+                s.y[i] = bounds.y - radius - 1;
             } else {
-                y = bounds.y + bounds.height + radius + 1;
+                s.y[i] = bounds.y + bounds.height + radius + 1;
             }
         }
 
         // Añadimos una pequeña variación aleatoria (antes 20 px/s) -> ahora 0.02 px/ms
-        vx += ((RNG.nextDouble() * 2 - 1) * 20) / 1000.0;
-        vy += ((RNG.nextDouble() * 2 - 1) * 20) / 1000.0;
+        addBounceJitter(s, i);
+    }
+
+    // pequeña variación aleatoria de ±0.02 px/ms tras un rebote (stream de la partición de la bola)
+    static void addBounceJitter(BallStore s, int i) {
+        SimStream rng = s.rng.forBall(i);
+        s.vx[i] += ((rng.nextDouble() * 2 - 1) * 20) / 1000.0;
+        s.vy[i] += ((rng.nextDouble() * 2 - 1) * 20) / 1000.0;
     }
 
     // Rebote en los bordes de la ventana (izquierda/derecha/arriba/abajo)
-    private void bounce(int width, int height) {
+    static void bounceWalls(BallStore s, int i, int width, int height) {
+        int radius = s.radius[i];
         boolean bounced = false;
-        if (x - radius < 0) {
-            x = radius;
-            vx = -vx;
-            ax = -ax;
+        if (s.x[i] - radius < 0) {
+            s.x[i] = radius;
+            s.vx[i] = -s.vx[i];
+            s.ax[i] = -s.ax[i];
             bounced = true;
-        } else if (x + radius > width) {
-            x = width - radius;
-            vx = -vx;
-            ax = -ax;
+        } else if (s.x[i] + radius > width) {
+            s.x[i] = width - radius;
+            s.vx[i] = -s.vx[i];
+            s.ax[i] = -s.ax[i];
             bounced = true;
         }
-        if (y - radius < 0) {
-            y = radius;
-            vy = -vy;
-            ay = -ay;
+        if (s.y[i] - radius < 0) {
+            s.y[i] = radius;
+            s.vy[i] = -s.vy[i];
+            s.ay[i] = -s.ay[i];
             bounced = true;
-        } else if (y + radius > height) {
-            y = height - radius;
-            vy = -vy;
-            ay = -ay;
+        } else if (s.y[i] + radius > height) {
+            s.y[i] = height - radius;
+            s.vy[i] = -s.vy[i];
+            s.ay[i] = -s.ay[i];
             bounced = true;
         }
         if (bounced) {
             // Si ha rebotado con la ventana, le damos una pequeña variación a la velocidad
-            vx += ((RNG.nextDouble() * 2 - 1) * 20) / 1000.0;
-            vy += ((RNG.nextDouble() * 2 - 1) * 20) / 1000.0;
+            addBounceJitter(s, i);
             // Limitamos de nuevo por si la variación lo dejó muy rápido
-            limitSpeed();
+            limitSpeed(s, i);
         }
     }
 
     // Getters sencillos: devolvemos la posición redondeada para dibujar
-    public int getX() { return (int) Math.round(x); }
-    public int getY() { return (int) Math.round(y); }
-    public int getRadius() { return radius; }
-    public Color getColor() { return color; }
-    public boolean isInRoom() { return inRoom; }
+    public int getX() { return (int) Math.round(store.x[slot]); }
+    public int getY() { return (int) Math.round(store.y[slot]); }
+    // posición interpolada entre el paso anterior y el actual (alpha en [0, 1])
+    public int getRenderX(double alpha) {
+        double px = store.px[slot];
+        return (int) Math.round(px + (store.x[slot] - px) * alpha);
+    }
+    public int getRenderY(double alpha) {
+        double py = store.py[slot];
+        return (int) Math.round(py + (store.y[slot] - py) * alpha);
+    }
+    public int getRadius() { return store.radius[slot]; }
+    // identificador estable (el mismo que llevan las grabaciones y el servidor de red)
+    public int getId() { return store.id[slot]; }
+    public boolean isInRoom() { return store.isInRoom(slot); }
+
+    // El Color se crea solo la primera vez (o si el hueco pasó a otra bola)
+    public Color getColor() {
+        int rgb = store.rgb[slot];
+        Color c = color;
+        if (c == null || (c.getRGB() & 0xFFFFFF) != rgb) {
+            c = new Color(rgb);
+            color = c;
+        }
+        return c;
+    }
 
     // Nuevo getter: índice de variante de textura
-    public int getVariantIndex() { return variantIndex; }
+    public int getVariantIndex() { return store.variant[slot]; }
 }
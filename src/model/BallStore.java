@@ -0,0 +1,219 @@
+/*
+ * BallStore (estructura de arrays)
+ * - Guarda el estado de TODAS las bolas (automáticas y de jugador) en arrays paralelos
+ *   de primitivos: recorrerlos en update()/handleCollisions() no salta por el heap.
+ * - Borrado con "swap-remove": la última bola pasa al hueco, así los arrays siguen compactos.
+ * - Los objetos Ball son solo "asas" (handles) hacia un hueco; se crean bajo demanda
+ *   y, al borrar bolas, las asas sueltas se guardan en un pool para reutilizarlas
+ *   (vaciar y volver a llenar 50k bolas no genera basura nueva).
+ */
+package model;
+
+import java.util.Arrays;
+
+final class BallStore {
+    // flags por bola
+    static final int FLAG_IN_ROOM = 1;
+    static final int FLAG_PLAYER = 2;
+
+    int size = 0;
+    // cambia cada vez que se borra alguna bola (los índices dejan de valer); añadir no lo cambia
+    int structure = 0;
+
+    // estado físico: posición (px), velocidad (px/ms) y aceleración (px/ms^2)
+    double[] x;
+    double[] y;
+    double[] vx;
+    double[] vy;
+    double[] ax;
+    double[] ay;
+    // posición al empezar el último paso (para interpolar el dibujo)
+    double[] px;
+    double[] py;
+    // datos fijos de cada bola
+    int[] radius;
+    int[] variant;
+    int[] rgb;
+    int[] flags;
+    int[] id; // identificador estable (no cambia con el swap-remove)
+    int[] room; // índice de la habitación en la que está (-1 = ninguna)
+
+    // asas creadas bajo demanda (null si nadie ha pedido todavía la Ball de ese hueco)
+    Ball[] handles;
+    // asas de bolas borradas, listas para reutilizar (solo Ball, nunca PlayerBall)
+    private Ball[] pool = new Ball[0];
+    private int pooled = 0;
+
+    // aleatorio del mundo (rebotes, nuevas bolas); cambiarlo con setRandom
+    SimRandom rng = SimRandom.unseeded();
+    private int nextId = 1;
+
+    BallStore(int initialCapacity) {
+        int cap = Math.max(4, initialCapacity);
+        x = new double[cap];
+        y = new double[cap];
+        vx = new double[cap];
+        vy = new double[cap];
+        ax = new double[cap];
+        ay = new double[cap];
+        px = new double[cap];
+        py = new double[cap];
+        radius = new int[cap];
+        variant = new int[cap];
+        rgb = new int[cap];
+        flags = new int[cap];
+        id = new int[cap];
+        room = new int[cap];
+        handles = new Ball[cap];
+        rng.ensureCapacity(cap);
+    }
+
+    void setRandom(SimRandom random) {
+        rng = random;
+        rng.ensureCapacity(capacity());
+    }
+
+    int capacity() { return x.length; }
+
+    // crece (x2) si no cabe 'needed'
+    void ensureCapacity(int needed) {
+        if (needed <= x.length) return;
+        int cap = Math.max(needed, x.length * 2);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        vx = Arrays.copyOf(vx, cap);
+        vy = Arrays.copyOf(vy, cap);
+        ax = Arrays.copyOf(ax, cap);
+        ay = Arrays.copyOf(ay, cap);
+        px = Arrays.copyOf(px, cap);
+        py = Arrays.copyOf(py, cap);
+        radius = Arrays.copyOf(radius, cap);
+        variant = Arrays.copyOf(variant, cap);
+        rgb = Arrays.copyOf(rgb, cap);
+        flags = Arrays.copyOf(flags, cap);
+        id = Arrays.copyOf(id, cap);
+        room = Arrays.copyOf(room, cap);
+        handles = Arrays.copyOf(handles, cap);
+        rng.ensureCapacity(cap);
+    }
+
+    // reserva un hueco al final (estado a cero) y devuelve su índice
+    int allocate() {
+        ensureCapacity(size + 1);
+        int i = size++;
+        x[i] = y[i] = vx[i] = vy[i] = ax[i] = ay[i] = px[i] = py[i] = 0;
+        radius[i] = variant[i] = rgb[i] = flags[i] = 0;
+        id[i] = nextId++;
+        room[i] = -1;
+        handles[i] = null;
+        return i;
+    }
+
+    int nextId() { return nextId; }
+
+    // vacía el store para cargar n bolas de un checkpoint (las asas viejas van al pool);
+    // los arrays se rellenan después en bloque
+    void resetForLoad(int n, int firstFreeId) {
+        structure++;
+        for (int i = 0; i < size; i++) recycle(handles[i]);
+        Arrays.fill(handles, 0, size, null);
+        ensureCapacity(n);
+        size = n;
+        nextId = Math.max(nextId, firstFreeId);
+    }
+
+    // asa para el hueco i (la primera vez que se pide; del pool si hay alguna libre)
+    Ball handle(int i) {
+        Ball b = handles[i];
+        if (b == null) {
+            if (pooled > 0) {
+                b = pool[--pooled];
+                pool[pooled] = null;
+                b.slot = i;
+            } else {
+                b = new Ball(this, i);
+            }
+            handles[i] = b;
+        }
+        return b;
+    }
+
+    // el asa de una bola borrada vuelve al pool (las de jugador no: tienen su propio estado)
+    private void recycle(Ball b) {
+        if (b == null || b.getClass() != Ball.class) return;
+        if (pooled == pool.length) pool = Arrays.copyOf(pool, Math.max(16, pool.length * 2));
+        pool[pooled++] = b;
+    }
+
+    // swap-remove: la última bola ocupa el hueco i
+    void remove(int i) {
+        int last = --size;
+        structure++;
+        // nota: el asa borrada va al pool y puede acabar apuntando a otra bola nueva;
+        // un asa solo es válida mientras su bola exista (como ya pasaba con el índice)
+        recycle(handles[i]);
+        if (i != last) {
+            move(last, i);
+        }
+        handles[last] = null;
+    }
+
+    // borra de una pasada todas las bolas que no son de jugador (los jugadores conservan su orden)
+    int removeAutomatic() {
+        structure++;
+        int w = 0;
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            if (isPlayer(i)) {
+                if (i != w) move(i, w);
+                w++;
+            } else {
+                recycle(handles[i]);
+            }
+        }
+        Arrays.fill(handles, w, n, null);
+        size = w;
+        return n - w;
+    }
+
+    // copia la bola del hueco 'from' al hueco 'to' (con su asa)
+    private void move(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        ax[to] = ax[from];
+        ay[to] = ay[from];
+        px[to] = px[from];
+        py[to] = py[from];
+        radius[to] = radius[from];
+        variant[to] = variant[from];
+        rgb[to] = rgb[from];
+        flags[to] = flags[from];
+        id[to] = id[from];
+        room[to] = room[from];
+        Ball moved = handles[from];
+        handles[to] = moved;
+        if (moved != null) moved.slot = to;
+    }
+
+    // guarda la posición actual como "anterior" antes de un paso
+    void savePrevious() {
+        System.arraycopy(x, 0, px, 0, size);
+        System.arraycopy(y, 0, py, 0, size);
+    }
+
+    boolean isPlayer(int i) { return (flags[i] & FLAG_PLAYER) != 0; }
+    boolean isInRoom(int i) { return (flags[i] & FLAG_IN_ROOM) != 0; }
+
+    // entra en la habitación r (índice en la lista del modelo)
+    void enterRoom(int i, int r) {
+        flags[i] |= FLAG_IN_ROOM;
+        room[i] = r;
+    }
+
+    void leaveRoom(int i) {
+        flags[i] &= ~FLAG_IN_ROOM;
+        room[i] = -1;
+    }
+}
@@ -0,0 +1,14 @@
+// Broadphase: cómo buscamos parejas candidatas a chocar
+package model;
+
+public enum Broadphase {
+    BRUTE_FORCE, // todas contra todas, O(n^2) (el método original)
+    GRID;        // rejilla uniforme (SpatialGrid), solo vecinas cercanas
+
+    // Lee la opción -Dgame.broadphase=brute|grid (por defecto GRID)
+    public static Broadphase fromProperty() {
+        String prop = System.getProperty("game.broadphase", "grid");
+        if ("brute".equalsIgnoreCase(prop) || "BRUTE_FORCE".equalsIgnoreCase(prop)) return BRUTE_FORCE;
+        return GRID;
+    }
+}
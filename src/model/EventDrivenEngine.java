@@ -0,0 +1,567 @@
+/*
+ * EventDrivenEngine: simulación por eventos (tiempo de impacto) en vez de pasos fijos
+ * - Entre choques las bolas van en línea recta, así que en vez de moverlas cada 16 ms
+ *   calculamos CUÁNDO chocarán (con otra bola, con un borde o con la habitación),
+ *   metemos esos instantes en una cola de prioridad y saltamos de evento en evento.
+ * - Cada bola tiene su propio reloj (t0): su posición es x + vx * (t - t0).
+ * - Invalidación perezosa: cada evento guarda el contador de cambios de sus bolas;
+ *   si al sacarlo de la cola el contador ya no coincide, se descarta sin más.
+ *   Los eventos de entrar/rebotar guardan además la "época" de SU habitación, que solo cambia
+ *   cuando pasa de llena a no llena o al revés (lo único que decide si se entra o se rebota);
+ *   entonces se recalculan las bolas de fuera que pueden llegar a ella. Salir no depende de la
+ *   habitación. Con muchas habitaciones pequeñas, recalcular en cada entrada/salida llenaba la
+ *   cola de eventos caducados y obligaba a rehacer todo casi cada frame.
+ * - Aceleración: la predicción supone velocidad constante solo hasta un horizonte
+ *   (HORIZON); ahí se aplica la aceleración acumulada y se vuelve a predecir.
+ * - Las bolas de jugador se siguen moviendo por pasos (las controla el teclado);
+ *   al final de cada frame se resuelven sus choques contra el resto.
+ * - Sin objetos por evento: EventQueue guarda los eventos en arrays y las búsquedas en la
+ *   rejilla usan visitantes creados una vez (los datos van en campos, no capturados).
+ * - Solo compensa con pocas bolas por área: con muchas, cada choque recalcula contra
+ *   muchas vecinas. GameModel vuelve a pasos por encima de game.physics.eventMaxDensity.
+ * - Tampoco con bolas encajadas entre habitaciones llenas: rebote y separación se devuelven la
+ *   bola una a otra en el mismo instante. Eso agota el tope de eventos del frame (o llena la
+ *   cola de caducados) y hay que rehacerlo todo; getChurnFrames() lo cuenta y GameModel
+ *   pasa a pasos un rato si se repite.
+ */
+package model;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+final class EventDrivenEngine {
+    // tipos de evento
+    private static final int BALL = 0;
+    private static final int WALL = 1;
+    private static final int ROOM_ENTER = 2;
+    private static final int ROOM_LEAVE = 3;
+    private static final int ROOM_BOUNCE = 4;
+    private static final int HORIZON = 5;
+
+    private static final double EPS = 1e-9;
+
+    private final BallStore s;
+    private final double horizon;
+    private final EventQueue queue = new EventQueue();
+    // rejilla para buscar solo vecinas alcanzables dentro del horizonte
+    private final SpatialGrid grid = new SpatialGrid(4.0 * Ball.MAX_RADIUS);
+
+    private double now = 0.0;
+    private double current = 0.0; // instante del evento que se está procesando
+    private boolean built = false;
+    private int[] roomEpoch = new int[0]; // por habitación
+    private boolean[] roomFull = new boolean[0]; // llena o no en la época actual
+    private long churnFrames; // frames que acabaron en reconstrucción (tope de eventos o cola llena)
+    private double maxSpeed = 0.0; // máxima velocidad al empezar el frame
+    private double frameDt = 16.0;
+
+    // por bola: reloj local, instante de la última aceleración aplicada y contador de cambios
+    private double[] t0 = new double[0];
+    private double[] accelT = new double[0];
+    private int[] count = new int[0];
+
+    // resultado de rayRect (entrada/salida del rayo en el rectángulo)
+    private double slabIn;
+    private double slabOut;
+
+    // contexto del frame actual
+    private int width;
+    private int height;
+    private RoomIndex rooms;
+
+    // visitantes de la rejilla / habitaciones (uno de cada, sus datos en los campos de al lado)
+    private final IntConsumer pairVisitor = this::predictPair;
+    private int pairI;
+    private double pairT, pairLimit;
+    private boolean pairOnlyHigher;
+    private final IntConsumer roomVisitor = this::predictRoomVisit;
+    private int roomI;
+    private double roomX, roomY, roomT;
+    private final IntConsumer roomChangedVisitor = this::roomChangedVisit;
+    private int changedRoom;
+    private final IntConsumer separateVisitor = this::separateVisit;
+    private int separateA;
+    private final IntConsumer playerVisitor = this::playerVisit;
+    private int playerP;
+
+    EventDrivenEngine(BallStore store, double horizonMs) {
+        this.s = store;
+        this.horizon = horizonMs;
+    }
+
+    // -Dgame.physics.eventHorizonMs (100 por defecto)
+    static double horizonFromProperty() {
+        try {
+            double h = Double.parseDouble(System.getProperty("game.physics.eventHorizonMs", "100"));
+            return h > 0 ? h : 100.0;
+        } catch (NumberFormatException e) {
+            return 100.0;
+        }
+    }
+
+    // -Dgame.physics.eventMaxDensity=N: bolas por megapíxel a partir de las que se vuelve a
+    // pasos (0 = nunca). Medido: por debajo de ~50 gana este motor, por encima de ~100 pierde.
+    static double maxDensityFromProperty() {
+        try {
+            double d = Double.parseDouble(System.getProperty("game.physics.eventMaxDensity", "60"));
+            return d >= 0 ? d : 60.0;
+        } catch (NumberFormatException e) {
+            return 60.0;
+        }
+    }
+
+    // hay que recalcular todo (bolas borradas, límites o habitación movidos...)
+    void invalidate() {
+        built = false;
+    }
+
+    int pendingEvents() { return queue.size(); }
+    long getChurnFrames() { return churnFrames; }
+
+    // bola nueva en el hueco i: solo hace falta predecir para ella
+    void onBallAdded(int i) {
+        if (!built) return;
+        ensureArrays();
+        t0[i] = now;
+        accelT[i] = now;
+        count[i] = 0;
+        current = now;
+        if (!s.isPlayer(i)) predict(i, false);
+    }
+
+    // avanza dt ms: procesa eventos hasta now + dt y deja todas las bolas en ese instante
+    void advance(double dt, int width, int height, RoomIndex rooms, List<PlayerBall> players) {
+        this.width = width;
+        this.height = height;
+        this.rooms = rooms;
+        if (roomEpoch.length != rooms.size()) {
+            roomEpoch = new int[rooms.size()];
+            roomFull = new boolean[rooms.size()];
+            built = false;
+        }
+        this.frameDt = dt;
+        ensureArrays();
+        prepareFrame();
+        if (!built) rebuild();
+
+        double target = now + dt;
+        // tope de eventos por frame para no quedarnos colgados en casos degenerados
+        long budget = 64L * (s.size + 16);
+        while (!queue.isEmpty() && queue.peekTime() <= target) {
+            int e = queue.poll();
+            // el hueco queda libre: copiar antes de encolar nada
+            double time = queue.time(e);
+            int type = queue.type(e), a = queue.a(e), b = queue.b(e);
+            if (!isValid(type, a, b, queue.countA(e), queue.countB(e), queue.epoch(e))) continue;
+            current = time;
+            handle(type, a, b, time);
+            if (--budget <= 0) {
+                built = false; // lo rehacemos desde cero en el siguiente frame
+                churnFrames++;
+                break;
+            }
+        }
+
+        // todas las bolas automáticas al instante final (solo mover, sin tocar velocidades)
+        for (int i = 0; i < s.size; i++) {
+            if (!s.isPlayer(i)) moveTo(i, target);
+        }
+        now = target;
+        current = target;
+
+        // jugadores: pasos normales y luego sus choques contra las demás
+        if (!players.isEmpty()) {
+            for (PlayerBall pb : players) {
+                int p = pb.slot;
+                int before = s.room[p];
+                pb.update(dt, width, height, null);
+                rooms.interact(s, p);
+                int after = s.room[p];
+                if (before != after) {
+                    if (before >= 0) roomChanged(before);
+                    if (after >= 0) roomChanged(after);
+                }
+            }
+            for (PlayerBall pb : players) resolvePlayer(pb.slot);
+        }
+
+        // limpiamos la cola si se llena de eventos caducados
+        if (built && queue.size() > 16 * (s.size + 64)) {
+            built = false;
+            churnFrames++;
+        }
+    }
+
+    // rejilla con posiciones de inicio de frame y velocidad máxima actual
+    private void prepareFrame() {
+        double vmax = 0.0;
+        for (int i = 0; i < s.size; i++) {
+            double sp = Math.sqrt(s.vx[i] * s.vx[i] + s.vy[i] * s.vy[i]);
+            if (sp > vmax) vmax = sp;
+        }
+        maxSpeed = vmax;
+        grid.build(s.x, s.y, s.size, width, height);
+    }
+
+    private void rebuild() {
+        queue.clear();
+        now = 0.0;
+        current = 0.0;
+        for (int r = 0; r < roomFull.length; r++) roomFull[r] = rooms.get(r).isFull();
+        for (int i = 0; i < s.size; i++) {
+            t0[i] = 0.0;
+            accelT[i] = 0.0;
+            count[i] = 0;
+        }
+        for (int i = 0; i < s.size; i++) {
+            if (!s.isPlayer(i)) predict(i, true);
+        }
+        built = true;
+    }
+
+    private boolean isValid(int type, int a, int b, int countA, int countB, int epoch) {
+        if (count[a] != countA) return false;
+        if (type == BALL) return count[b] == countB;
+        if (type == ROOM_ENTER || type == ROOM_BOUNCE) return epoch == roomEpoch[b];
+        return true;
+    }
+
+    private void handle(int type, int a, int b, double time) {
+        touch(a, time);
+        switch (type) {
+            case BALL: {
+                touch(b, time);
+                collide(a, b);
+                count[b]++;
+                count[a]++;
+                predict(a, false);
+                predict(b, false);
+                return;
+            }
+            case WALL:
+                bounceWalls(a);
+                break;
+            case ROOM_ENTER: {
+                Room room = rooms.get(b);
+                if (room.tryEnter(s.handle(a))) {
+                    s.enterRoom(a, b);
+                    count[a]++;
+                    roomChanged(b);
+                    predict(a, false);
+                    return;
+                }
+                Ball.bounceWithRoom(s, a, room);
+                separate(a);
+                break;
+            }
+            case ROOM_LEAVE:
+                rooms.get(b).tryLeave(s.handle(a));
+                s.leaveRoom(a);
+                count[a]++;
+                roomChanged(b);
+                predict(a, false);
+                return;
+            case ROOM_BOUNCE: {
+                Room room = rooms.get(b);
+                if (!s.isInRoom(a) && room.isFull()) {
+                    room.waitFor(s.handle(a)); // igual que por pasos: a la cola de la habitación
+                    Ball.bounceWithRoom(s, a, room);
+                    Ball.limitSpeed(s, a); // el jitter no debe acumular velocidad entre eventos
+                    separate(a);
+                }
+                break;
+            }
+            default: // HORIZON: touch() ya aplicó la aceleración
+                break;
+        }
+        count[a]++;
+        predict(a, false);
+    }
+
+    // lleva la bola al instante t y le aplica la aceleración acumulada desde la última vez
+    private void touch(int i, double t) {
+        moveTo(i, t);
+        double dtA = t - accelT[i];
+        if (dtA > 0) {
+            s.vx[i] += s.ax[i] * dtA;
+            s.vy[i] += s.ay[i] * dtA;
+            Ball.limitSpeed(s, i);
+            accelT[i] = t;
+        }
+    }
+
+    private void moveTo(int i, double t) {
+        double dt = t - t0[i];
+        if (dt != 0) {
+            s.x[i] += s.vx[i] * dt;
+            s.y[i] += s.vy[i] * dt;
+            t0[i] = t;
+        }
+    }
+
+    // choque elástico entre dos bolas que justo se tocan (mismo reparto que GameModel.resolvePair)
+    private void collide(int a, int b) {
+        double dx = s.x[b] - s.x[a];
+        double dy = s.y[b] - s.y[a];
+        double dist = Math.sqrt(dx * dx + dy * dy);
+        if (dist < EPS) return;
+        double nx = dx / dist;
+        double ny = dy / dist;
+        double vn = (s.vx[b] - s.vx[a]) * nx + (s.vy[b] - s.vy[a]) * ny;
+        if (vn < 0) {
+            double ix = -vn * nx; // impulso = -(1 + e) * vn / 2 con e = 1
+            double iy = -vn * ny;
+            s.vx[a] -= ix; s.vy[a] -= iy;
+            s.vx[b] += ix; s.vy[b] += iy;
+        }
+    }
+
+    // mismo rebote que Ball.bounceWalls pero con tolerancia (el evento cae justo en el borde)
+    private void bounceWalls(int i) {
+        int r = s.radius[i];
+        boolean bounced = false;
+        if (s.x[i] - r <= EPS && s.vx[i] < 0) {
+            s.x[i] = r; s.vx[i] = -s.vx[i]; s.ax[i] = -s.ax[i]; bounced = true;
+        } else if (s.x[i] + r >= width - EPS && s.vx[i] > 0) {
+            s.x[i] = width - r; s.vx[i] = -s.vx[i]; s.ax[i] = -s.ax[i]; bounced = true;
+        }
+        if (s.y[i] - r <= EPS && s.vy[i] < 0) {
+            s.y[i] = r; s.vy[i] = -s.vy[i]; s.ay[i] = -s.ay[i]; bounced = true;
+        } else if (s.y[i] + r >= height - EPS && s.vy[i] > 0) {
+            s.y[i] = height - r; s.vy[i] = -s.vy[i]; s.ay[i] = -s.ay[i]; bounced = true;
+        }
+        if (bounced) {
+            Ball.addBounceJitter(s, i);
+            Ball.limitSpeed(s, i);
+        }
+    }
+
+    // la ocupación de la habitación r cambió: si con ello pasó de llena a no llena (o al revés),
+    // caducan sus eventos de entrar/rebotar y se recalculan desde ahora, solo para las bolas de
+    // fuera que pueden alcanzarla dentro del horizonte
+    private void roomChanged(int r) {
+        Room room = rooms.get(r);
+        boolean full = room.isFull();
+        if (full == roomFull[r]) return;
+        roomFull[r] = full;
+        roomEpoch[r]++;
+        java.awt.Rectangle b = room.getBounds();
+        double reach = Math.max(b.width, b.height) / 2.0 + 2 * maxSpeed * (horizon + frameDt) + 2 * Ball.MAX_RADIUS;
+        changedRoom = r;
+        grid.forEachInRange(b.getCenterX(), b.getCenterY(), reach, roomChangedVisitor);
+    }
+
+    private void roomChangedVisit(int i) {
+        if (i >= s.size || s.isPlayer(i) || s.isInRoom(i)) return;
+        double t = Math.max(t0[i], current);
+        predictRoomAgainst(i, changedRoom, s.x[i] + s.vx[i] * (t - t0[i]), s.y[i] + s.vy[i] * (t - t0[i]), t);
+    }
+
+    // el rebote con la habitación recoloca la bola de golpe y puede dejarla encima de otra:
+    // las separamos como en el modo por pasos y recalculamos las vecinas que se movieron
+    private void separate(int a) {
+        double reach = s.radius[a] + Ball.MAX_RADIUS;
+        separateA = a;
+        grid.forEachInRange(s.x[a], s.y[a], reach + maxSpeed * frameDt + Ball.MAX_RADIUS, separateVisitor);
+    }
+
+    private void separateVisit(int j) {
+        int a = separateA;
+        if (j == a || j >= s.size || s.isPlayer(j)) return;
+        moveTo(j, current);
+        double dx = s.x[j] - s.x[a];
+        double dy = s.y[j] - s.y[a];
+        double minDist = s.radius[a] + s.radius[j];
+        if (dx * dx + dy * dy >= minDist * minDist) return;
+        touch(j, current);
+        GameModel.resolvePair(s, a, j);
+        count[j]++;
+        predict(j, false);
+    }
+
+    // el jugador se mueve por pasos: choques por solape como en el modo normal
+    private void resolvePlayer(int p) {
+        double reach = s.radius[p] + Ball.MAX_RADIUS;
+        playerP = p;
+        grid.forEachInRange(s.x[p], s.y[p], reach + maxSpeed * frameDt + Ball.MAX_RADIUS, playerVisitor);
+    }
+
+    private void playerVisit(int j) {
+        int p = playerP;
+        if (j == p || j >= s.size) return;
+        double vx = s.vx[j], vy = s.vy[j], x = s.x[j], y = s.y[j];
+        GameModel.resolvePair(s, p, j);
+        if (!s.isPlayer(j) && (vx != s.vx[j] || vy != s.vy[j] || x != s.x[j] || y != s.y[j])) {
+            count[j]++;
+            predict(j, false);
+        }
+    }
+
+    // calcula y encola los próximos eventos de la bola i (desde su reloj local)
+    private void predict(int i, boolean onlyHigher) {
+        double t = t0[i];
+        double limit = t + horizon;
+        queue.add(limit, HORIZON, i, -1, count[i], 0, 0);
+
+        // bordes de la ventana
+        double tw = wallTime(i);
+        if (t + tw < limit) queue.add(t + tw, WALL, i, -1, count[i], 0, 0);
+
+        predictRoom(i, t);
+
+        // otras bolas alcanzables dentro del horizonte
+        double si = Math.sqrt(s.vx[i] * s.vx[i] + s.vy[i] * s.vy[i]);
+        double range = (si + maxSpeed) * (horizon + frameDt) + s.radius[i] + 3 * Ball.MAX_RADIUS;
+        // (predict no se llama desde predictPair: los campos no se pisan)
+        pairI = i;
+        pairT = t;
+        pairLimit = limit;
+        pairOnlyHigher = onlyHigher;
+        grid.forEachInRange(s.x[i], s.y[i], range, pairVisitor);
+    }
+
+    private void predictPair(int j) {
+        int i = pairI;
+        if (j == i || j >= s.size || s.isPlayer(j) || (pairOnlyHigher && j < i)) return;
+        double t = pairT;
+        double tc = contactTime(i, j, t);
+        if (tc >= 0 && t + tc < pairLimit) {
+            queue.add(t + tc, BALL, i, j, count[i], count[j], 0);
+        }
+    }
+
+    // tiempo hasta el siguiente borde (infinito si no se mueve)
+    private double wallTime(int i) {
+        double r = s.radius[i];
+        double tx = Double.POSITIVE_INFINITY;
+        double ty = Double.POSITIVE_INFINITY;
+        if (s.vx[i] > 0) tx = (width - r - s.x[i]) / s.vx[i];
+        else if (s.vx[i] < 0) tx = (r - s.x[i]) / s.vx[i];
+        if (s.vy[i] > 0) ty = (height - r - s.y[i]) / s.vy[i];
+        else if (s.vy[i] < 0) ty = (r - s.y[i]) / s.vy[i];
+        return Math.max(0.0, Math.min(tx, ty));
+    }
+
+    // eventos de habitación: la suya si está dentro, o las que toca su recorrido hasta el horizonte
+    private void predictRoom(int i, double t) {
+        if (rooms == null || rooms.size() == 0) return;
+        // posición de la bola en el instante t (puede ir atrasada respecto a su reloj)
+        double x = s.x[i] + s.vx[i] * (t - t0[i]);
+        double y = s.y[i] + s.vy[i] * (t - t0[i]);
+        if (s.isInRoom(i)) {
+            predictRoomAgainst(i, s.room[i], x, y, t);
+            return;
+        }
+        double ex = Math.abs(s.vx[i]) * horizon + s.radius[i];
+        double ey = Math.abs(s.vy[i]) * horizon + s.radius[i];
+        roomI = i;
+        roomX = x;
+        roomY = y;
+        roomT = t;
+        rooms.forEachInRect(x - ex, y - ey, x + ex, y + ey, roomVisitor);
+    }
+
+    private void predictRoomVisit(int r) {
+        predictRoomAgainst(roomI, r, roomX, roomY, roomT);
+    }
+
+    // evento con la habitación r según el estado: salir, entrar (si hay plaza) o rebotar (si está llena)
+    private void predictRoomAgainst(int i, int r, double x, double y, double t) {
+        Room room = rooms.get(r);
+        java.awt.Rectangle b = room.getBounds();
+        double limit = t + horizon;
+        double vx = s.vx[i];
+        double vy = s.vy[i];
+
+        if (s.isInRoom(i)) {
+            if (s.room[i] != r) return;
+            if (rayRect(x, y, vx, vy, b.x, b.y, b.x + b.width, b.y + b.height) && slabOut < Double.POSITIVE_INFINITY) {
+                double te = t + Math.max(0.0, slabOut);
+                if (te < limit) queue.add(te, ROOM_LEAVE, i, r, count[i], 0, 0);
+            }
+        } else if (!room.isFull()) {
+            if (rayRect(x, y, vx, vy, b.x, b.y, b.x + b.width, b.y + b.height) && slabOut > EPS && slabOut > slabIn) {
+                double te = t + Math.max(0.0, slabIn);
+                if (te < limit) queue.add(te, ROOM_ENTER, i, r, count[i], 0, roomEpoch[r]);
+            }
+        } else {
+            int rad = s.radius[i];
+            if (rayRect(x, y, vx, vy, b.x - rad, b.y - rad, b.x + b.width + rad, b.y + b.height + rad) && slabOut > EPS && slabOut > slabIn) {
+                // ya pegada: solo si va hacia dentro. Si ya se aleja (acaba de rebotar y separate
+                // la dejó encima) rebotar otra vez la devolvería hacia la habitación en el mismo
+                // instante, y entre dos habitaciones llenas así se encadenaban sin fin
+                if (slabIn <= 0 && !movingInto(x, y, vx, vy, b)) return;
+                double te = t + Math.max(0.0, slabIn);
+                if (te < limit) queue.add(te, ROOM_BOUNCE, i, r, count[i], 0, roomEpoch[r]);
+            }
+        }
+    }
+
+    // ¿va hacia dentro por la pared que elegiría Ball.bounceWithRoom (la más cercana)?
+    private static boolean movingInto(double x, double y, double vx, double vy, java.awt.Rectangle b) {
+        double left = Math.abs(x - b.x);
+        double right = Math.abs(x - (b.x + b.width));
+        double top = Math.abs(y - b.y);
+        double bottom = Math.abs(y - (b.y + b.height));
+        double min = Math.min(Math.min(left, right), Math.min(top, bottom));
+        if (min == left) return vx > 0;
+        if (min == right) return vx < 0;
+        if (min == top) return vy > 0;
+        return vy < 0;
+    }
+
+    // intersección rayo-rectángulo (método de "slabs"); deja la entrada/salida en slabIn/slabOut
+    private boolean rayRect(double x, double y, double vx, double vy,
+                            double minX, double minY, double maxX, double maxY) {
+        double tIn = Double.NEGATIVE_INFINITY;
+        double tOut = Double.POSITIVE_INFINITY;
+        if (Math.abs(vx) < EPS) {
+            if (x < minX || x > maxX) return false;
+        } else {
+            double t1 = (minX - x) / vx;
+            double t2 = (maxX - x) / vx;
+            tIn = Math.max(tIn, Math.min(t1, t2));
+            tOut = Math.min(tOut, Math.max(t1, t2));
+        }
+        if (Math.abs(vy) < EPS) {
+            if (y < minY || y > maxY) return false;
+        } else {
+            double t1 = (minY - y) / vy;
+            double t2 = (maxY - y) / vy;
+            tIn = Math.max(tIn, Math.min(t1, t2));
+            tOut = Math.min(tOut, Math.max(t1, t2));
+        }
+        slabIn = tIn;
+        slabOut = tOut;
+        return tIn <= tOut && tOut >= 0;
+    }
+
+    // tiempo (desde t) hasta que i y j se tocan; -1 si no se acercan
+    private double contactTime(int i, int j, double t) {
+        double xi = s.x[i] + s.vx[i] * (t - t0[i]);
+        double yi = s.y[i] + s.vy[i] * (t - t0[i]);
+        double xj = s.x[j] + s.vx[j] * (t - t0[j]);
+        double yj = s.y[j] + s.vy[j] * (t - t0[j]);
+        double dx = xj - xi;
+        double dy = yj - yi;
+        double dvx = s.vx[j] - s.vx[i];
+        double dvy = s.vy[j] - s.vy[i];
+        double dvdr = dx * dvx + dy * dvy;
+        if (dvdr >= 0) return -1; // se alejan
+        double dvdv = dvx * dvx + dvy * dvy;
+        double sigma = s.radius[i] + s.radius[j];
+        double drdr = dx * dx + dy * dy;
+        if (drdr < sigma * sigma) return 0; // ya solapadas y acercándose: chocan ya
+        double d = dvdr * dvdr - dvdv * (drdr - sigma * sigma);
+        if (d < 0) return -1;
+        return -(dvdr + Math.sqrt(d)) / dvdv;
+    }
+
+    private void ensureArrays() {
+        int cap = s.capacity();
+        if (t0.length >= cap) return;
+        t0 = java.util.Arrays.copyOf(t0, cap);
+        accelT = java.util.Arrays.copyOf(accelT, cap);
+        count = java.util.Arrays.copyOf(count, cap);
+    }
+}
@@ -0,0 +1,115 @@
+// EventQueue: cola de prioridad de eventos para EventDrivenEngine sin un objeto por evento
+// - Los campos de cada evento viven en arrays paralelos (huecos que se reutilizan con una
+//   lista de libres) y el montículo binario solo mueve el número de hueco y su instante.
+// - poll() devuelve el hueco del primero y lo deja libre: hay que leer sus campos antes del
+//   siguiente add(). Solo para un hilo.
+package model;
+
+import java.util.Arrays;
+
+final class EventQueue {
+    // montículo: hueco de cada posición y su instante (copiado aquí para comparar sin saltar)
+    private int[] heap = new int[256];
+    private double[] heapTime = new double[256];
+    private int size = 0;
+
+    // campos por hueco
+    private double[] time = new double[256];
+    private int[] type = new int[256];
+    private int[] a = new int[256];
+    private int[] b = new int[256];
+    private int[] countA = new int[256];
+    private int[] countB = new int[256];
+    private int[] epoch = new int[256];
+
+    // huecos libres (pila) y huecos usados alguna vez
+    private int[] free = new int[256];
+    private int freeCount = 0;
+    private int slots = 0;
+
+    int size() { return size; }
+    boolean isEmpty() { return size == 0; }
+
+    // instante del primero (la cola no puede estar vacía)
+    double peekTime() { return heapTime[0]; }
+
+    void add(double t, int eventType, int ballA, int other, int cA, int cB, int ep) {
+        int e = freeCount > 0 ? free[--freeCount] : newSlot();
+        time[e] = t;
+        type[e] = eventType;
+        a[e] = ballA;
+        b[e] = other;
+        countA[e] = cA;
+        countB[e] = cB;
+        epoch[e] = ep;
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            heapTime = Arrays.copyOf(heapTime, size * 2);
+        }
+        // subir desde el final
+        int k = size++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (heapTime[parent] <= t) break;
+            heap[k] = heap[parent];
+            heapTime[k] = heapTime[parent];
+            k = parent;
+        }
+        heap[k] = e;
+        heapTime[k] = t;
+    }
+
+    // saca el primero y devuelve su hueco (válido hasta el siguiente add)
+    int poll() {
+        int first = heap[0];
+        int last = heap[--size];
+        double lastTime = heapTime[size];
+        // bajar el último desde la raíz
+        int k = 0;
+        int half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < size && heapTime[right] < heapTime[child]) child = right;
+            if (lastTime <= heapTime[child]) break;
+            heap[k] = heap[child];
+            heapTime[k] = heapTime[child];
+            k = child;
+        }
+        if (size > 0) {
+            heap[k] = last;
+            heapTime[k] = lastTime;
+        }
+        free[freeCount++] = first;
+        return first;
+    }
+
+    void clear() {
+        size = 0;
+        freeCount = 0;
+        slots = 0;
+    }
+
+    double time(int e) { return time[e]; }
+    int type(int e) { return type[e]; }
+    int a(int e) { return a[e]; }
+    int b(int e) { return b[e]; }
+    int countA(int e) { return countA[e]; }
+    int countB(int e) { return countB[e]; }
+    int epoch(int e) { return epoch[e]; }
+
+    private int newSlot() {
+        if (slots == time.length) {
+            int cap = slots * 2;
+            time = Arrays.copyOf(time, cap);
+            type = Arrays.copyOf(type, cap);
+            a = Arrays.copyOf(a, cap);
+            b = Arrays.copyOf(b, cap);
+            countA = Arrays.copyOf(countA, cap);
+            countB = Arrays.copyOf(countB, cap);
+            epoch = Arrays.copyOf(epoch, cap);
+            free = Arrays.copyOf(free, cap);
+        }
+        return slots++;
+    }
+}
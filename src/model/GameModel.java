@@ -1,23 +1,87 @@
 /*
+ * GameModel (MVC - Modelo)
+ * - Todas las bolas (automáticas y de jugador) viven en un BallStore (arrays paralelos).
+ * - update() y handleCollisions() recorren los arrays por índice, sin listas de objetos.
+ * - Con setParallelism(n > 1) el paso se reparte entre varios núcleos (ParallelPhysics).
+ * - Con setSimulationMode(EVENT_DRIVEN) se avanza por eventos (EventDrivenEngine), salvo si
+ *   hay demasiadas bolas por área (se sigue por pasos hasta que baje la densidad) o si el
+ *   motor de eventos se atasca (por pasos un rato y se vuelve a probar).
+ * - Aleatorio con semilla (SimRandom). En modo determinista, misma semilla + mismas
+ *   entradas = mismo mundo bit a bit; checksum() resume el estado para comparar ticks.
+ * - Habitaciones: la central (siempre la 0) y las que se añadan con addRoom; cada bola
+ *   solo mira las de su celda gracias a RoomIndex.
+ * - saveCheckpoint/loadCheckpoint: el mundo entero a/desde un fichero mapeado (WorldCheckpoint).
  */
 package model;
 
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import util.Debug;
+import util.GameEvents;
+import util.Metrics;
 
 public class GameModel {
-    private final List<Ball> balls = new ArrayList<>();
+    private final BallStore store = new BallStore(64);
     private final List<PlayerBall> playerBalls = new ArrayList<>();
-    private final Room room;
+    private Room room; // la central (cambia al cargar un checkpoint)
+    private final List<Room> rooms = new ArrayList<>();
+    private final RoomIndex roomIndex = new RoomIndex();
+    private List<Room> cachedRoomsView = Collections.emptyList();
     private int width;
     private int height;
 
-    private List<Ball> cachedBallsView = Collections.emptyList();
+    // dos listas para getSnapshot que se turnan: se rellena la que no se dio la última vez
+    // (sin crear listas en cada cambio y sin tocar la que otro hilo puede estar recorriendo)
+    private final ArrayList<Ball> ballsViewA = new ArrayList<>();
+    private final ArrayList<Ball> ballsViewB = new ArrayList<>();
+    private final List<Ball> cachedBallsViewA = Collections.unmodifiableList(ballsViewA);
+    private final List<Ball> cachedBallsViewB = Collections.unmodifiableList(ballsViewB);
+    private boolean ballsViewIsA = false;
     private List<PlayerBall> cachedPlayersView = Collections.emptyList();
     private boolean ballsDirty = true;
     private boolean playersDirty = true;
 
+    // Fase amplia de colisiones: fuerza bruta o rejilla (se puede cambiar en caliente para comparar)
+    private Broadphase broadphase = Broadphase.fromProperty();
+    private final SpatialGrid grid = new SpatialGrid(2.0 * Ball.MAX_RADIUS);
+
+    // null = modo serie (1 hilo, el del controlador)
+    private ParallelPhysics parallel;
+
+    // fotos para pintar sin bloquear la física (triple buffer)
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+
+    // motor: pasos de dt o por eventos (el de eventos se crea solo si se usa)
+    private SimulationMode simulationMode = SimulationMode.fromProperty();
+    private EventDrivenEngine eventEngine;
+    // por encima de esta densidad (bolas/MP) los eventos salen más caros que los pasos
+    private final double eventMaxDensity = EventDrivenEngine.maxDensityFromProperty();
+    private boolean eventFallback = false;
+    // y mientras el motor de eventos se atasque (ver eventChurning): pasos hasta este tick
+    private static final int CHURN_WINDOW_TICKS = 60;
+    private static final int CHURN_FRAMES = 3;
+    private static final int CHURN_STEP_TICKS_MAX = 9600;
+    private long eventChurnSeen = 0;
+    private long eventChurnWindowStart = 0;
+    private int eventChurnCount = 0;
+    private int eventChurnStepTicks = 300; // se dobla cada vez que vuelve a atascarse
+    private long eventStepUntil = 0;
+
+    // modo determinista y contador de ticks (para checksum y reproducir fallos)
+    private boolean deterministic = Boolean.getBoolean("game.deterministic");
+    private long tick = 0;
+
+    // parejas que se tocaron en el último paso (lo leen el HUD y JMX desde otros hilos)
+    private volatile int lastCollisionPairs;
+    private int pairsTouched; // contadores del recorrido en serie por la rejilla
+    private long pairsTested;
+
     public GameModel(int width, int height) {
         this.width = width;
         this.height = height;
@@ -25,7 +89,39 @@ public class GameModel {
         int roomHeight = 300;
         int roomX = (width - roomWidth) / 2;
         int roomY = (height - roomHeight) / 2;
-        this.room = new Room(roomX, roomY, roomWidth, roomHeight);
+        String seedProp = System.getProperty("game.seed");
+        if (seedProp != null) store.setRandom(new SimRandom(Long.parseLong(seedProp.trim())));
+        this.room = new Room(roomX, roomY, roomWidth, roomHeight, roomCapacityFromProperty());
+        rooms.add(room);
+        roomsChanged();
+        setParallelism(parallelismFromProperty());
+        publishSnapshot(1.0); // para que la vista tenga ya la habitación
+    }
+
+    // igual pero con semilla fija: mismas bolas y mismos rebotes aleatorios en cada ejecución
+    public GameModel(int width, int height, long seed) {
+        this(width, height);
+        store.setRandom(new SimRandom(seed));
+    }
+
+    // -Dgame.physics.threads=N (1 = serie, 0 o "auto" = todos los núcleos)
+    private static int parallelismFromProperty() {
+        String prop = System.getProperty("game.physics.threads", "1");
+        if ("auto".equalsIgnoreCase(prop)) return 0;
+        try {
+            return Integer.parseInt(prop.trim());
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    // -Dgame.room.capacity=N (plazas de la habitación central, 1 por defecto)
+    private static int roomCapacityFromProperty() {
+        try {
+            return Math.max(1, Integer.parseInt(System.getProperty("game.room.capacity", "1").trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
     }
 
     // actualizar límites (synchronized por si Swing lo llama desde otro hilo)
@@ -37,16 +133,50 @@ public class GameModel {
         int roomX = (width - roomWidth) / 2;
         int roomY = (height - roomHeight) / 2;
         room.getBounds().setLocation(roomX, roomY);
+        roomsChanged();
+    }
+
+    // nueva habitación con 'capacity' plazas (se queda fija aunque cambie el tamaño).
+    // Conviene dejar al menos 2 * Ball.MAX_RADIUS entre habitaciones: si no, una bola puede
+    // quedar encajada rebotando entre dos llenas.
+    public synchronized Room addRoom(int x, int y, int width, int height, int capacity) {
+        Room r = new Room(x, y, width, height, capacity);
+        rooms.add(r);
+        roomsChanged();
+        return r;
+    }
+
+    // índice y vista de habitaciones al día; los eventos de habitación ya no sirven
+    private void roomsChanged() {
+        roomIndex.rebuild(rooms, width, height);
+        cachedRoomsView = Collections.unmodifiableList(new ArrayList<>(rooms));
+        if (eventEngine != null) eventEngine.invalidate();
     }
 
+    public synchronized int getWidth() { return width; }
+    public synchronized int getHeight() { return height; }
+
     public synchronized void addBall() {
-        balls.add(new Ball(width, height));
+        addBalls(1);
+    }
+
+    // n bolas de golpe: un solo lock y los arrays crecen una vez
+    public synchronized void addBalls(int n) {
+        if (n <= 0) return;
+        store.ensureCapacity(store.size + n);
+        for (int k = 0; k < n; k++) {
+            int i = Ball.spawn(store, width, height);
+            if (eventEngine != null) eventEngine.onBallAdded(i);
+        }
         ballsDirty = true;
     }
 
+    // jugador local (teclado): solo uno
     public synchronized boolean addPlayerBall() {
-        if (!playerBalls.isEmpty()) return false;
-        PlayerBall pb = new PlayerBall(width, height);
+        for (PlayerBall pb : playerBalls) {
+            if (pb.isControlled()) return false;
+        }
+        PlayerBall pb = new PlayerBall(store, width, height);
         pb.setControlled(true);
         pb.setDirectControl(true);
         playerBalls.add(pb);
@@ -54,74 +184,412 @@ public class GameModel {
         return true;
     }
 
+    // jugador extra sin teclado (uno por cliente del servidor de red); lo mueve setDirectMovement
+    public synchronized PlayerBall addRemotePlayer() {
+        PlayerBall pb = new PlayerBall(store, width, height);
+        pb.setDirectControl(true);
+        if (eventEngine != null) eventEngine.onBallAdded(pb.slot);
+        playerBalls.add(pb);
+        playersDirty = true;
+        return pb;
+    }
+
+    // quita un jugador (p. ej. al desconectarse su cliente); su asa deja de valer
+    public synchronized void removePlayer(PlayerBall pb) {
+        if (!playerBalls.remove(pb)) return;
+        for (Room r : rooms) r.evictIf(b -> b == pb);
+        store.remove(pb.slot);
+        if (eventEngine != null) eventEngine.invalidate();
+        playersDirty = true;
+        ballsDirty = true;
+    }
+
+    // borra las bolas automáticas (las de jugador se quedan)
     public synchronized void clearBalls() {
-        balls.clear();
+        // una sola pasada compactando: los jugadores se quedan al principio, las asas al pool
+        if (store.removeAutomatic() == 0) return;
+        // fuera de las habitaciones y de sus colas todo lo que no sea jugador
+        for (Room r : rooms) r.evictIf(b -> !(b instanceof PlayerBall));
+        // los índices cambiaron: los eventos pendientes ya no sirven
+        if (eventEngine != null) eventEngine.invalidate();
         ballsDirty = true;
     }
 
+    // guarda límites, habitaciones y todas las bolas en 'file' (se sobrescribe)
+    public synchronized void saveCheckpoint(Path file) throws IOException {
+        WorldCheckpoint.save(file, store, rooms, width, height, tick);
+    }
+
+    // sustituye el mundo por el del checkpoint: las bolas se copian en bloque desde el fichero
+    // mapeado; las habitaciones se crean de nuevo, se vuelven a meter sus ocupantes y sus colas
+    // en el mismo orden, y el aleatorio sigue por donde iba. Devuelve true si la partida sigue
+    // exactamente igual (por pasos y en modo determinista, mismos checksums); false con un
+    // checkpoint antiguo (versión 1: aleatorio desde la semilla y colas vacías).
+    // Por eventos nunca es exacto: la cola de eventos no se guarda y se recalcula al cargar.
+    public boolean loadCheckpoint(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = WorldCheckpoint.map(ch);
+            WorldCheckpoint.Header h = WorldCheckpoint.readHeader(buf, ch.size()); // antes del lock: si falla, no se toca nada
+            synchronized (this) {
+                width = h.width;
+                height = h.height;
+                tick = h.tick;
+                rooms.clear();
+                for (int[] r : h.rooms) rooms.add(new Room(r[0], r[1], r[2], r[3], r[4]));
+                room = rooms.get(0);
+
+                BallStore s = store;
+                playerBalls.clear();
+                s.resetForLoad(h.balls, h.nextId);
+                WorldCheckpoint.readBalls(buf, h, s);
+                s.savePrevious();
+                s.setRandom(h.rngState != null ? SimRandom.fromState(h.seed, h.rngState) : new SimRandom(h.seed));
+                for (int i = 0; i < s.size; i++) {
+                    if (s.isPlayer(i)) {
+                        PlayerBall pb = new PlayerBall(s, i);
+                        pb.setControlled(true);
+                        pb.setDirectControl(true);
+                        playerBalls.add(pb);
+                    }
+                    int r = s.room[i];
+                    if (!s.isInRoom(i) || r < 0 || r >= rooms.size() || !rooms.get(r).tryEnter(s.handle(i))) {
+                        s.leaveRoom(i);
+                    }
+                }
+                // colas después de los ocupantes (tryEnter mira la cabeza de la cola)
+                int q = 0;
+                for (int k = 0; k < rooms.size(); k++) {
+                    Room r = rooms.get(k);
+                    for (int end = q + h.rooms[k][5]; q < end; q++) r.waitFor(s.handle(h.queued[q]));
+                    r.restoreHeadSkips(h.rooms[k][6]);
+                }
+                roomsChanged();
+                if (eventEngine != null) eventEngine.invalidate();
+                ballsDirty = true;
+                playersDirty = true;
+                publishSnapshot(1.0);
+                return h.exact;
+            }
+        }
+    }
+
+    // copia el estado de todas las bolas a f (reutilizable), p. ej. para mandarlo por red
+    public synchronized void copyFrame(SessionFrame f) {
+        BallStore s = store;
+        int n = s.size;
+        f.ensureCapacity(n);
+        f.tick = tick;
+        f.count = n;
+        f.keyframe = true;
+        f.base = 0;
+        System.arraycopy(s.id, 0, f.id, 0, n);
+        System.arraycopy(s.x, 0, f.x, 0, n);
+        System.arraycopy(s.y, 0, f.y, 0, n);
+        System.arraycopy(s.vx, 0, f.vx, 0, n);
+        System.arraycopy(s.vy, 0, f.vy, 0, n);
+        System.arraycopy(s.radius, 0, f.radius, 0, n);
+        System.arraycopy(s.variant, 0, f.variant, 0, n);
+        System.arraycopy(s.rgb, 0, f.rgb, 0, n);
+        System.arraycopy(s.flags, 0, f.flags, 0, n);
+    }
+
+    // Foto del último frame para pintar (sin lock). Solo debe leerla un hilo (el que pinta).
+    public RenderSnapshot getRenderSnapshot() {
+        return snapshots.acquire();
+    }
+
+    // copia el estado actual a una foto libre y la publica (hilo de física, tras los pasos del frame)
+    public synchronized void publishSnapshot(double alpha) {
+        snapshots.writable().fill(store, playerBalls, roomIndex, alpha);
+        snapshots.publish();
+    }
+
+    // Lista de asas de las bolas automáticas (API antigua; para pintar usar getRenderSnapshot).
+    // La lista devuelta no cambia: tras un addBall/clearBalls se rellena la otra y se da esa.
+    // Se vuelve a reutilizar en el cambio siguiente, así que quien la recorra durante más de
+    // un cambio (o quiera guardarla) tiene que copiarla.
     public synchronized List<Ball> getSnapshot() {
         if (ballsDirty) {
-            cachedBallsView = Collections.unmodifiableList(new ArrayList<>(balls));
+            ArrayList<Ball> view = ballsViewIsA ? ballsViewB : ballsViewA;
+            view.clear();
+            view.ensureCapacity(store.size);
+            for (int i = 0; i < store.size; i++) {
+                if (!store.isPlayer(i)) view.add(store.handle(i));
+            }
+            ballsViewIsA = !ballsViewIsA;
             ballsDirty = false;
         }
-        return cachedBallsView;
+        return ballsViewIsA ? cachedBallsViewA : cachedBallsViewB;
+    }
+
+    // modo eventos con muchas bolas por área: pasar a pasos (y volver al bajar del 80%,
+    // para no ir saltando de un motor a otro cerca del límite)
+    private boolean eventTooDense(int balls) {
+        if (eventMaxDensity <= 0 || width <= 0 || height <= 0) return false;
+        double density = balls * 1e6 / ((double) width * height);
+        if (!eventFallback && density > eventMaxDensity) {
+            eventFallback = true;
+            Debug.log("Physics", "Densidad {} bolas/MP: se sigue por pasos (límite {})", (int) density, eventMaxDensity);
+        } else if (eventFallback && density < 0.8 * eventMaxDensity) {
+            eventFallback = false;
+            if (eventEngine != null) eventEngine.invalidate(); // las bolas se movieron por pasos
+            Debug.log("Physics", "Densidad {} bolas/MP: de vuelta a eventos", (int) density);
+        }
+        return eventFallback;
+    }
+
+    // modo eventos atascado (bolas encajadas entre habitaciones llenas: el motor rehace todo casi
+    // cada frame y va decenas de veces más lento que por pasos): pasos durante un rato y se
+    // vuelve a probar; si se atasca otra vez, el rato se dobla
+    private boolean eventChurning() {
+        if (tick < eventStepUntil) return true;
+        if (eventStepUntil > 0) {
+            eventStepUntil = 0;
+            if (eventEngine != null) eventEngine.invalidate(); // las bolas se movieron por pasos
+            Debug.log("Physics", "Se vuelve a probar por eventos");
+        }
+        return false;
+    }
+
+    // tras un frame por eventos: ¿ha acabado en reconstrucción varias veces seguidas?
+    private void checkEventChurn() {
+        long churn = eventEngine.getChurnFrames();
+        if (churn == eventChurnSeen) return;
+        eventChurnSeen = churn;
+        if (tick - eventChurnWindowStart >= CHURN_WINDOW_TICKS) {
+            eventChurnWindowStart = tick;
+            eventChurnCount = 0;
+        }
+        if (++eventChurnCount < CHURN_FRAMES) return;
+        eventChurnCount = 0;
+        eventStepUntil = tick + eventChurnStepTicks;
+        Debug.log("Physics", "Motor de eventos atascado ({} reconstrucciones): {} ticks por pasos", churn, eventChurnStepTicks);
+        eventChurnStepTicks = Math.min(CHURN_STEP_TICKS_MAX, eventChurnStepTicks * 2);
+    }
+
+    // colas de admisión: fuera las bolas que ya se alejaron de su habitación
+    private void dropDepartedFromQueues() {
+        for (int k = 0; k < rooms.size(); k++) rooms.get(k).dropDeparted();
     }
 
     // update de física (dt en ms)
+    // (cada fase se mide para util.Metrics: integrar, habitaciones y colisiones)
     public synchronized void update(double dt) {
-        for (PlayerBall pb : playerBalls) {
-            pb.update(dt, width, height, room);
+        BallStore s = store;
+        tick++;
+        long t0 = System.nanoTime();
+        s.savePrevious(); // para que la vista pueda interpolar entre este paso y el anterior
+        // (| y no ||: las dos comprobaciones llevan su propio estado)
+        if (simulationMode == SimulationMode.EVENT_DRIVEN && !(eventTooDense(s.size) | eventChurning())) {
+            if (eventEngine == null) eventEngine = new EventDrivenEngine(s, EventDrivenEngine.horizonFromProperty());
+            eventEngine.advance(dt, width, height, roomIndex, playerBalls);
+            checkEventChurn();
+            dropDepartedFromQueues();
+            Metrics.TICK.record(System.nanoTime() - t0);
+            return;
         }
-        for (Ball b : balls) {
-            b.update(dt, width, height, room);
+        long roomNs = 0;
+        if (parallel != null) {
+            // jugadores primero (pocos) y el resto repartido entre hilos
+            for (PlayerBall pb : playerBalls) {
+                pb.update(dt, width, height, null);
+                roomIndex.interact(s, pb.slot);
+            }
+            roomNs = parallel.step(s, dt, width, height, roomIndex);
+        } else {
+            int n = s.size;
+            for (int i = 0; i < n; i++) {
+                if (s.isPlayer(i)) {
+                    // jugador: su propia lógica de control (pocos, llamada virtual aceptable)
+                    // (sin habitación: la busca el índice justo después)
+                    s.handles[i].update(dt, width, height, null);
+                    roomIndex.interact(s, i);
+                } else {
+                    // = Ball.step, pero midiendo aparte solo las que están cerca de una habitación
+                    Ball.integrate(s, i, dt);
+                    if (roomIndex.near(s, i)) {
+                        long r = System.nanoTime();
+                        roomIndex.interact(s, i);
+                        roomNs += System.nanoTime() - r;
+                    }
+                    Ball.bounceWalls(s, i, width, height);
+                }
+            }
         }
+        dropDepartedFromQueues();
+        long t1 = System.nanoTime();
         handleCollisions();
+        long t2 = System.nanoTime();
+        Metrics.INTEGRATE.record(t1 - t0 - roomNs);
+        Metrics.ROOMS.record(roomNs);
+        Metrics.COLLISIONS.record(t2 - t1);
+        Metrics.TICK.record(t2 - t0);
     }
 
     // colisiones entre todas las bolas (incluye jugador)
-    private void handleCollisions() {
-        int total = balls.size() + playerBalls.size();
-        for (int i = 0; i < total; i++) {
-            Ball a = (i < balls.size()) ? balls.get(i) : playerBalls.get(i - balls.size());
-            for (int j = i + 1; j < total; j++) {
-                Ball b = (j < balls.size()) ? balls.get(j) : playerBalls.get(j - balls.size());
-
-                int ra = a.getRadius();
-                int rb = b.getRadius();
-                double dx = b.x - a.x;
-                double dy = b.y - a.y;
-                double minDist = ra + rb;
-                double dist2 = dx * dx + dy * dy;
-                if (dist2 <= 0) dist2 = 0.0001;
-                if (dist2 < (minDist * minDist)) {
-                    double dist = Math.sqrt(dist2);
-                    double nx = dx / dist;
-                    double ny = dy / dist;
-                    double overlap = (minDist - dist);
-                    double half = overlap / 2.0;
-                    a.x -= nx * half;
-                    a.y -= ny * half;
-                    b.x += nx * half;
-                    b.y += ny * half;
-
-                    double rvx = b.vx - a.vx;
-                    double rvy = b.vy - a.vy;
-                    double vn = rvx * nx + rvy * ny;
-                    if (vn < 0) {
-                        double e = 1.0;
-                        double impulse = -(1 + e) * vn / 2.0;
-                        double ix = impulse * nx;
-                        double iy = impulse * ny;
-                        a.vx -= ix; a.vy -= iy;
-                        b.vx += ix; b.vy += iy;
-                    }
+    void handleCollisions() {
+        GameEvents.CollisionEvent event = new GameEvents.CollisionEvent();
+        event.begin();
+        BallStore s = store;
+        int total = s.size;
+        int touched = 0;
+        long tested;
+        if (broadphase == Broadphase.GRID) {
+            // solo parejas en celdas vecinas
+            grid.build(s.x, s.y, total, width, height);
+            if (parallel != null) {
+                touched = parallel.collide(s, grid, deterministic);
+                tested = parallel.getLastTested();
+            } else {
+                pairsTouched = 0;
+                pairsTested = 0;
+                grid.forEachCandidatePair((i, j) -> {
+                    pairsTested++;
+                    if (resolvePair(s, i, j)) pairsTouched++;
+                });
+                touched = pairsTouched;
+                tested = pairsTested;
+            }
+        } else {
+            tested = (long) total * (total - 1) / 2;
+            // todas contra todas (siempre en serie: es la referencia para comparar)
+            for (int i = 0; i < total; i++) {
+                for (int j = i + 1; j < total; j++) {
+                    if (resolvePair(s, i, j)) touched++;
                 }
             }
         }
+        lastCollisionPairs = touched;
+        Metrics.COLLISION_PAIRS.add(touched);
+        if (event.shouldCommit()) {
+            event.balls = total;
+            event.pairs = tested;
+            event.hits = touched;
+            event.broadphase = broadphase.name();
+            event.parallel = parallel != null;
+            event.commit();
+        }
+    }
+
+    // parejas que se tocaron en el último paso (no cuenta el motor por eventos)
+    public int getLastCollisionPairs() { return lastCollisionPairs; }
+
+    // separa dos bolas solapadas y aplica impulso elástico si se acercan
+    // (devuelve true si se tocaban)
+    static boolean resolvePair(BallStore s, int a, int b) {
+        int ra = s.radius[a];
+        int rb = s.radius[b];
+        double dx = s.x[b] - s.x[a];
+        double dy = s.y[b] - s.y[a];
+        double minDist = ra + rb;
+        double dist2 = dx * dx + dy * dy;
+        if (dist2 <= 0) dist2 = 0.0001;
+        if (dist2 < (minDist * minDist)) {
+            double dist = Math.sqrt(dist2);
+            double nx = dx / dist;
+            double ny = dy / dist;
+            double overlap = (minDist - dist);
+            double half = overlap / 2.0;
+            s.x[a] -= nx * half;
+            s.y[a] -= ny * half;
+            s.x[b] += nx * half;
+            s.y[b] += ny * half;
+
+            double rvx = s.vx[b] - s.vx[a];
+            double rvy = s.vy[b] - s.vy[a];
+            double vn = rvx * nx + rvy * ny;
+            if (vn < 0) {
+                double e = 1.0;
+                double impulse = -(1 + e) * vn / 2.0;
+                double ix = impulse * nx;
+                double iy = impulse * ny;
+                s.vx[a] -= ix; s.vy[a] -= iy;
+                s.vx[b] += ix; s.vy[b] += iy;
+            }
+            return true;
+        }
+        return false;
     }
 
-    public synchronized int count() { return balls.size(); }
-    public Room getRoom() { return room; }
+    // elegir fase amplia (BRUTE_FORCE o GRID)
+    public synchronized void setBroadphase(Broadphase broadphase) {
+        if (broadphase != null) this.broadphase = broadphase;
+    }
+    public synchronized Broadphase getBroadphase() { return broadphase; }
+
+    // motor de simulación (TIME_STEP o EVENT_DRIVEN); al cambiar se recalcula todo
+    // (EVENT_DRIVEN puede ir por pasos mientras la densidad pase de game.physics.eventMaxDensity
+    // o mientras el motor de eventos esté atascado)
+    public synchronized void setSimulationMode(SimulationMode mode) {
+        if (mode == null || mode == simulationMode) return;
+        simulationMode = mode;
+        eventStepUntil = 0;
+        eventChurnCount = 0;
+        eventChurnStepTicks = 300;
+        if (eventEngine != null) eventEngine.invalidate();
+    }
+    public synchronized SimulationMode getSimulationMode() { return simulationMode; }
+
+    // grado de paralelismo de la física (1 = serie, 0 = todos los núcleos)
+    public synchronized void setParallelism(int threads) {
+        if (threads <= 0) threads = Runtime.getRuntime().availableProcessors();
+        if (parallel != null) {
+            if (parallel.getParallelism() == threads) return;
+            parallel.shutdown();
+            parallel = null;
+        }
+        if (threads > 1) parallel = new ParallelPhysics(threads);
+    }
+    public synchronized int getParallelism() { return parallel == null ? 1 : parallel.getParallelism(); }
+
+    // Modo determinista: el reparto en paralelo deja de depender del número de hilos
+    // y el controlador genera bolas por ticks en vez de por reloj.
+    // (-Dgame.deterministic=true; la semilla con -Dgame.seed o el constructor con semilla)
+    public synchronized void setDeterministic(boolean on) { deterministic = on; }
+    public synchronized boolean isDeterministic() { return deterministic; }
+
+    // franjas de colisión del último paso en paralelo (1 en serie): sin modo determinista
+    // salen de los hilos, así que dos checksum solo se comparan si esto también coincide
+    public synchronized int getCollisionStrips() { return parallel == null ? 1 : Math.max(1, parallel.getLastStrips()); }
+
+    // semilla del mundo: apuntarla basta para reproducir una partida (con las mismas entradas)
+    public synchronized long getSeed() { return store.rng.getSeed(); }
+    public synchronized long getTick() { return tick; }
+
+    // resumen del estado de todas las bolas y habitaciones (O(n), sin objetos): si dos
+    // ejecuciones dan distinto checksum en el mismo tick, a partir de ahí divergen
+    public synchronized long checksum() {
+        BallStore s = store;
+        long h = mix(0x9E3779B97F4A7C15L, tick);
+        h = mix(h, s.size);
+        for (int i = 0; i < s.size; i++) {
+            h = mix(h, Double.doubleToRawLongBits(s.x[i]));
+            h = mix(h, Double.doubleToRawLongBits(s.y[i]));
+            h = mix(h, Double.doubleToRawLongBits(s.vx[i]));
+            h = mix(h, Double.doubleToRawLongBits(s.vy[i]));
+            h = mix(h, Double.doubleToRawLongBits(s.ax[i]));
+            h = mix(h, Double.doubleToRawLongBits(s.ay[i]));
+            h = mix(h, ((long) s.id[i] << 32) | (s.flags[i] << 16) | (s.room[i] & 0xFFFF));
+        }
+        for (Room r : rooms) {
+            h = mix(h, ((long) r.getOccupancy() << 32) | r.getQueueLength());
+        }
+        return h;
+    }
+
+    private static long mix(long h, long v) {
+        h = (h ^ v) * 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    public synchronized int count() { return store.size - playerBalls.size(); }
+
+    // acceso directo a los arrays (benchmarks del mismo paquete)
+    BallStore store() { return store; }
+    // la habitación central
+    public synchronized Room getRoom() { return room; }
+    // todas (la central primero); copia inmutable, se renueva al añadir
+    public synchronized List<Room> getRooms() { return cachedRoomsView; }
 
     public synchronized List<PlayerBall> getPlayerBalls() {
         if (playersDirty) {
@@ -0,0 +1,177 @@
+/*
+ * ParallelPhysics: paso de física en varios núcleos (modo paralelo de GameModel)
+ * - Integración y rebote con paredes: por trozos fijos de CHUNK bolas en un ForkJoinPool.
+ * - Habitaciones: los trozos solo filtran candidatas cerca de alguna habitación; la entrada/salida
+ *   se resuelve después en serie y en orden de índice (las colas de admisión son compartidas).
+ * - Colisiones: franjas verticales de columnas de la rejilla. Cada franja resuelve en paralelo
+ *   las parejas que caen enteras dentro de ella; las que cruzan el borde de la franja se guardan
+ *   y se resuelven en una segunda pasada en serie, siempre en el mismo orden.
+ *   Así el resultado no depende de cómo se repartan los hilos.
+ * - En modo determinista el número de franjas es fijo (no depende de los hilos), para que
+ *   2 u 8 hilos den exactamente el mismo mundo.
+ */
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+final class ParallelPhysics {
+    // tamaño de trozo fijo: el reparto no depende del número de hilos
+    static final int CHUNK = 2048;
+    // franjas en modo determinista
+    static final int DETERMINISTIC_STRIPS = 16;
+
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    // candidatas a tocar la habitación, por trozo
+    private int[][] roomCandidates = new int[0][];
+    private int[] roomCandidateCount = new int[0];
+    // parejas que cruzan el borde de su franja (i, j, i, j, ...), por franja
+    private int[][] boundaryPairs = new int[0][];
+    private int[] boundaryCount = new int[0];
+    // parejas comprobadas y que se tocaron, por franja (para métricas y JFR)
+    private int[] stripPairs = new int[0];
+    private long[] stripTested = new long[0];
+    private long lastTested;
+    // franjas del último collide (sin modo determinista cambian con los hilos y el checksum también)
+    private int lastStrips;
+
+    ParallelPhysics(int parallelism) {
+        this.parallelism = parallelism;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    int getParallelism() { return parallelism; }
+
+    void shutdown() { pool.shutdown(); }
+
+    // integra las bolas automáticas (los jugadores ya se actualizaron en GameModel)
+    // devuelve los ns de la fase de habitaciones (para las métricas)
+    long step(BallStore s, double dt, int width, int height, RoomIndex rooms) {
+        final int n = s.size;
+        final int chunks = (n + CHUNK - 1) / CHUNK;
+        ensureChunkBuffers(chunks);
+
+        // 1) integrar y apuntar las que están cerca de alguna habitación (paralelo)
+        run(chunks, c -> {
+            int from = c * CHUNK;
+            int to = Math.min(n, from + CHUNK);
+            int[] cand = roomCandidates[c];
+            int k = 0;
+            for (int i = from; i < to; i++) {
+                if (s.isPlayer(i)) continue;
+                Ball.integrate(s, i, dt);
+                if (rooms.near(s, i)) {
+                    if (k == cand.length) cand = Arrays.copyOf(cand, Math.max(8, k * 2));
+                    cand[k++] = i;
+                }
+            }
+            roomCandidates[c] = cand;
+            roomCandidateCount[c] = k;
+        });
+
+        // 2) habitaciones en serie, en orden de índice (determinista)
+        long roomStart = System.nanoTime();
+        for (int c = 0; c < chunks; c++) {
+            int[] cand = roomCandidates[c];
+            for (int k = 0; k < roomCandidateCount[c]; k++) {
+                rooms.interact(s, cand[k]);
+            }
+        }
+        long roomNs = System.nanoTime() - roomStart;
+
+        // 3) rebote con los bordes (paralelo)
+        run(chunks, c -> {
+            int from = c * CHUNK;
+            int to = Math.min(n, from + CHUNK);
+            for (int i = from; i < to; i++) {
+                if (!s.isPlayer(i)) Ball.bounceWalls(s, i, width, height);
+            }
+        });
+        return roomNs;
+    }
+
+    // colisiones por franjas de la rejilla (ya construida); devuelve cuántas parejas se tocaron
+    int collide(BallStore s, SpatialGrid grid, boolean deterministic) {
+        int cols = grid.columns();
+        int wanted = deterministic ? DETERMINISTIC_STRIPS : parallelism * 2;
+        int strips = Math.max(1, Math.min(wanted, cols / 2));
+        ensureStripBuffers(strips);
+        lastStrips = strips;
+
+        // 1) cada franja resuelve sus parejas internas y guarda las de borde
+        run(strips, k -> {
+            int colStart = k * cols / strips;
+            int colEnd = (k + 1) * cols / strips;
+            boundaryCount[k] = 0;
+            stripPairs[k] = 0;
+            stripTested[k] = 0;
+            grid.forEachCandidatePairInColumns(colStart, colEnd,
+                    (i, j) -> {
+                        stripTested[k]++;
+                        if (GameModel.resolvePair(s, i, j)) stripPairs[k]++;
+                    },
+                    (i, j) -> deferPair(k, i, j));
+        });
+
+        // 2) segunda pasada en serie para las parejas de borde, franja a franja
+        int touched = 0;
+        long tested = 0;
+        for (int k = 0; k < strips; k++) {
+            touched += stripPairs[k];
+            tested += stripTested[k] + boundaryCount[k] / 2;
+            int[] pairs = boundaryPairs[k];
+            for (int p = 0; p < boundaryCount[k]; p += 2) {
+                if (GameModel.resolvePair(s, pairs[p], pairs[p + 1])) touched++;
+            }
+        }
+        lastTested = tested;
+        return touched;
+    }
+
+    // parejas candidatas de la última llamada a collide
+    long getLastTested() { return lastTested; }
+    int getLastStrips() { return lastStrips; }
+
+    // solo la franja k escribe en su lista, no hace falta sincronizar
+    private void deferPair(int k, int i, int j) {
+        int[] pairs = boundaryPairs[k];
+        int c = boundaryCount[k];
+        if (c + 2 > pairs.length) {
+            pairs = Arrays.copyOf(pairs, Math.max(16, pairs.length * 2));
+            boundaryPairs[k] = pairs;
+        }
+        pairs[c] = i;
+        pairs[c + 1] = j;
+        boundaryCount[k] = c + 2;
+    }
+
+    private void run(int tasks, IntConsumer body) {
+        if (tasks <= 1) {
+            if (tasks == 1) body.accept(0);
+            return;
+        }
+        pool.submit(() -> IntStream.range(0, tasks).parallel().forEach(body)).join();
+    }
+
+    private void ensureChunkBuffers(int chunks) {
+        if (roomCandidates.length >= chunks) return;
+        int old = roomCandidates.length;
+        roomCandidates = Arrays.copyOf(roomCandidates, chunks);
+        roomCandidateCount = Arrays.copyOf(roomCandidateCount, chunks);
+        for (int c = old; c < chunks; c++) roomCandidates[c] = new int[8];
+    }
+
+    private void ensureStripBuffers(int strips) {
+        if (boundaryPairs.length >= strips) return;
+        int old = boundaryPairs.length;
+        boundaryPairs = Arrays.copyOf(boundaryPairs, strips);
+        boundaryCount = Arrays.copyOf(boundaryCount, strips);
+        stripPairs = Arrays.copyOf(stripPairs, strips);
+        stripTested = Arrays.copyOf(stripTested, strips);
+        for (int k = old; k < strips; k++) boundaryPairs[k] = new int[16];
+    }
+}
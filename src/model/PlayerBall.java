@@ -37,18 +37,27 @@ public class PlayerBall extends Ball {
 
     private boolean controlled = false;
 
-    public PlayerBall(int boundsWidth, int boundsHeight) {
-        super(boundsWidth, boundsHeight);
+    private static final int RADIUS = 12;
+    private static final Color COLOR = new Color(0, 90, 200);
+
+    // se registra en el store como un hueco más (marcado con FLAG_PLAYER)
+    PlayerBall(BallStore store, int boundsWidth, int boundsHeight) {
+        super(store, Ball.spawn(store, boundsWidth, boundsHeight));
+        store.radius[slot] = RADIUS;
+        store.rgb[slot] = COLOR.getRGB() & 0xFFFFFF;
+        store.flags[slot] |= BallStore.FLAG_PLAYER;
+        store.handles[slot] = this;
     }
 
-    @Override
-    public Color getColor() {
-        return new Color(0, 90, 200);
+    // asa de jugador sobre un hueco que ya existe (al cargar un checkpoint)
+    PlayerBall(BallStore store, int slot) {
+        super(store, slot);
+        store.handles[slot] = this;
     }
 
     @Override
-    public int getRadius() {
-        return 12;
+    public Color getColor() {
+        return COLOR;
     }
 
     // API de control (métodos usados por la vista)
@@ -61,12 +70,19 @@ public class PlayerBall extends Ball {
     public void setControlled(boolean c) { this.controlled = c; }
     public boolean isControlled() { return controlled; }
     public double getAngle() { return angle; }
-    public double getVx() { return vx; }
-    public double getVy() { return vy; }
+    public double getVx() { return store.vx[slot]; }
+    public double getVy() { return store.vy[slot]; }
     public boolean isTurbo() { return turbo; }
 
     @Override
     public void update(double dt, int width, int height, Room room) {
+        // copiamos el estado del store a locales, lo tocamos y lo devolvemos al final
+        BallStore st = store;
+        int i = slot;
+        double x = st.x[i], y = st.y[i];
+        double vx = st.vx[i], vy = st.vy[i];
+        double ax = st.ax[i], ay = st.ay[i];
+
         // Modo directo (WASD)
         if (directControl) {
             double len = Math.sqrt(dirX*dirX + dirY*dirY);
@@ -103,6 +119,7 @@ public class PlayerBall extends Ball {
             if (y - r < 0) { y = r; vy = -vy; ay = -ay; }
             if (y + r > height) { y = height - r; vy = -vy; ay = -ay; }
 
+            st.x[i] = x; st.y[i] = y; st.vx[i] = vx; st.vy[i] = vy; st.ax[i] = ax; st.ay[i] = ay;
             handleRoomInteraction(room);
             return;
         }
@@ -122,8 +139,9 @@ public class PlayerBall extends Ball {
         if (turbo) accel *= TURBO_MULT;
 
         if (Math.abs(accel) > 1e-12) {
-            ax = Math.cos(angle) * accel;
-            ay = Math.sin(angle) * accel;
+            // StrictMath: mismo resultado en cualquier JVM/CPU (modo determinista)
+            ax = StrictMath.cos(angle) * accel;
+            ay = StrictMath.sin(angle) * accel;
         } else {
             double v = Math.sqrt(vx*vx + vy*vy);
             if (v > 1e-8) {
@@ -148,6 +166,7 @@ public class PlayerBall extends Ball {
         if (y - r < 0) { y = r; vy = -vy; ay = -ay; }
         if (y + r > height) { y = height - r; vy = -vy; ay = -ay; }
 
+        st.x[i] = x; st.y[i] = y; st.vx[i] = vx; st.vy[i] = vy; st.ax[i] = ax; st.ay[i] = ay;
         handleRoomInteraction(room);
     }
 }
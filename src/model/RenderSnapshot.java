@@ -0,0 +1,154 @@
+/*
+ * RenderSnapshot: foto del mundo para pintar (solo primitivos)
+ * - La rellena el hilo de física al final de cada frame (GameModel.publishSnapshot);
+ *   la vista solo la lee. Mientras la vista la tiene, nadie la modifica (ver SnapshotBuffer).
+ * - Incluye la posición anterior de cada bola y alpha para interpolar el dibujo.
+ */
+package model;
+
+import java.util.Arrays;
+
+public final class RenderSnapshot {
+    long sequence = 0;
+    int count = 0;
+    double alpha = 1.0;
+
+    // una entrada por bola (automáticas y jugadores, en el orden del store)
+    double[] x = new double[0];
+    double[] y = new double[0];
+    double[] px = new double[0];
+    double[] py = new double[0];
+    int[] radius = new int[0];
+    int[] variant = new int[0];
+    int[] rgb = new int[0];
+    int[] flags = new int[0];
+
+    // jugadores: índice en los arrays de arriba + datos del HUD
+    int playerCount = 0;
+    int[] playerIndex = new int[0];
+    double[] playerAngle = new double[0];
+    double[] playerVx = new double[0];
+    double[] playerVy = new double[0];
+    boolean[] playerTurbo = new boolean[0];
+    boolean[] playerControlled = new boolean[0];
+
+    // habitaciones (la 0 es la central)
+    int roomCount = 0;
+    int[] roomX = new int[0];
+    int[] roomY = new int[0];
+    int[] roomWidth = new int[0];
+    int[] roomHeight = new int[0];
+    int[] roomOccupancy = new int[0];
+    int[] roomCapacity = new int[0];
+    int[] roomQueue = new int[0];
+
+    // copia el estado actual (lo llama GameModel con su lock)
+    void fill(BallStore s, java.util.List<PlayerBall> players, RoomIndex rooms, double alpha) {
+        int n = s.size;
+        ensureCapacity(n);
+        System.arraycopy(s.x, 0, x, 0, n);
+        System.arraycopy(s.y, 0, y, 0, n);
+        System.arraycopy(s.px, 0, px, 0, n);
+        System.arraycopy(s.py, 0, py, 0, n);
+        System.arraycopy(s.radius, 0, radius, 0, n);
+        System.arraycopy(s.variant, 0, variant, 0, n);
+        System.arraycopy(s.rgb, 0, rgb, 0, n);
+        System.arraycopy(s.flags, 0, flags, 0, n);
+        count = n;
+        this.alpha = alpha;
+
+        int p = players.size();
+        if (playerIndex.length < p) {
+            playerIndex = new int[p];
+            playerAngle = new double[p];
+            playerVx = new double[p];
+            playerVy = new double[p];
+            playerTurbo = new boolean[p];
+            playerControlled = new boolean[p];
+        }
+        for (int k = 0; k < p; k++) {
+            PlayerBall pb = players.get(k);
+            playerIndex[k] = pb.slot;
+            playerAngle[k] = pb.getAngle();
+            playerVx[k] = pb.getVx();
+            playerVy[k] = pb.getVy();
+            playerTurbo[k] = pb.isTurbo();
+            playerControlled[k] = pb.isControlled();
+        }
+        playerCount = p;
+
+        int r = rooms.size();
+        if (roomX.length < r) {
+            roomX = new int[r];
+            roomY = new int[r];
+            roomWidth = new int[r];
+            roomHeight = new int[r];
+            roomOccupancy = new int[r];
+            roomCapacity = new int[r];
+            roomQueue = new int[r];
+        }
+        for (int k = 0; k < r; k++) {
+            Room room = rooms.get(k);
+            java.awt.Rectangle b = room.getBounds();
+            roomX[k] = b.x;
+            roomY[k] = b.y;
+            roomWidth[k] = b.width;
+            roomHeight[k] = b.height;
+            roomOccupancy[k] = room.getOccupancy();
+            roomCapacity[k] = room.getCapacity();
+            roomQueue[k] = room.getQueueLength();
+        }
+        roomCount = r;
+    }
+
+    private void ensureCapacity(int n) {
+        if (x.length >= n) return;
+        int cap = Math.max(n, x.length + (x.length >> 1) + 16);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        px = Arrays.copyOf(px, cap);
+        py = Arrays.copyOf(py, cap);
+        radius = Arrays.copyOf(radius, cap);
+        variant = Arrays.copyOf(variant, cap);
+        rgb = Arrays.copyOf(rgb, cap);
+        flags = Arrays.copyOf(flags, cap);
+    }
+
+    // lectura (la vista)
+    public long getSequence() { return sequence; }
+    public int getCount() { return count; }
+    public double getAlpha() { return alpha; }
+
+    // posición interpolada con el alpha de la foto
+    public double getX(int i) { return px[i] + (x[i] - px[i]) * alpha; }
+    public double getY(int i) { return py[i] + (y[i] - py[i]) * alpha; }
+    public int getRadius(int i) { return radius[i]; }
+    public int getVariantIndex(int i) { return variant[i]; }
+    public int getRgb(int i) { return rgb[i]; }
+    public boolean isInRoom(int i) { return (flags[i] & BallStore.FLAG_IN_ROOM) != 0; }
+    public boolean isPlayer(int i) { return (flags[i] & BallStore.FLAG_PLAYER) != 0; }
+
+    public int getPlayerCount() { return playerCount; }
+    public int getPlayerIndex(int k) { return playerIndex[k]; }
+    public double getPlayerAngle(int k) { return playerAngle[k]; }
+    public double getPlayerSpeed(int k) { return Math.sqrt(playerVx[k] * playerVx[k] + playerVy[k] * playerVy[k]); }
+    public boolean isPlayerTurbo(int k) { return playerTurbo[k]; }
+    public boolean isPlayerControlled(int k) { return playerControlled[k]; }
+
+    public int getRoomCount() { return roomCount; }
+    public int getRoomX(int k) { return roomX[k]; }
+    public int getRoomY(int k) { return roomY[k]; }
+    public int getRoomWidth(int k) { return roomWidth[k]; }
+    public int getRoomHeight(int k) { return roomHeight[k]; }
+    public int getRoomOccupancy(int k) { return roomOccupancy[k]; }
+    public int getRoomCapacity(int k) { return roomCapacity[k]; }
+    public int getRoomQueueLength(int k) { return roomQueue[k]; }
+    public boolean isRoomFull(int k) { return roomOccupancy[k] >= roomCapacity[k]; }
+
+    // habitación central (API de una sola habitación)
+    public int getRoomX() { return roomX[0]; }
+    public int getRoomY() { return roomY[0]; }
+    public int getRoomWidth() { return roomWidth[0]; }
+    public int getRoomHeight() { return roomHeight[0]; }
+    public boolean isRoomOccupied() { return roomOccupancy[0] > 0; }
+}
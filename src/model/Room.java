@@ -1,40 +1,239 @@
-// Room: habitación central donde solo una bola puede estar dentro
+// Room: habitación donde caben como mucho 'capacity' bolas a la vez (la central: 1)
+// - Sin locks: las plazas son un AtomicReferenceArray y entrar/salir son compareAndSet,
+//   así varios hilos de física pueden preguntar a la vez sin hacer cola en un monitor.
+// - Cola de admisión FIFO: una bola rechazada (o que rebota porque está llena) se apunta;
+//   la ÚLTIMA plaza libre es para la primera de la cola (las demás plazas, para quien llegue).
+//   Una bola sale de la cola al entrar, al dejar de estar pegada a la habitación
+//   (dropDeparted, una vez por tick) o, si es la primera, cuando MAX_HEAD_SKIPS bolas se
+//   quedaron sin esa plaza esperándola.
+// - En vez de notifyAll (nadie esperaba), se puede registrar un OccupancyListener.
 package model;
 
 import java.awt.Rectangle;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import util.GameEvents;
+import util.Metrics;
 
 public class Room {
+    // aviso de cambio de ocupante (se llama en el hilo que hizo el cambio)
+    // entrar: previous = null, current = bola; salir: previous = bola, current = null
+    public interface OccupancyListener {
+        void occupancyChanged(Room room, Ball previous, Ball current);
+    }
+
+    // intentos de otras bolas que esperamos a la primera de la cola antes de quitarla
+    private static final int MAX_HEAD_SKIPS = 8;
+    // "pegada" a la habitación: a menos de esto de la pared (tras rebotar queda a radio + 1 y
+    // se aleja; así sigue en la cola un par de ticks)
+    private static final int TOUCH_MARGIN = Ball.MAX_RADIUS;
+
     private final Rectangle bounds;
-    private Ball occupant = null;
+    private final int capacity;
+    private final AtomicReferenceArray<Ball> slots;
+    private final AtomicInteger occupancy = new AtomicInteger();
+
+    // cola de admisión (FIFO) + conjunto para no apuntar dos veces a la misma bola
+    private final ConcurrentLinkedQueue<Ball> queue = new ConcurrentLinkedQueue<>();
+    private final Set<Ball> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger queueLength = new AtomicInteger();
+    private final AtomicInteger headSkips = new AtomicInteger();
+
+    // estadísticas
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder queueExpired = new LongAdder();
+    private final LongAccumulator maxQueueLength = new LongAccumulator(Math::max, 0);
+    private final CopyOnWriteArrayList<OccupancyListener> listeners = new CopyOnWriteArrayList<>();
+
+    // posición en la lista de habitaciones del modelo (la pone RoomIndex)
+    int index = -1;
 
     public Room(int x, int y, int width, int height) {
+        this(x, y, width, height, 1);
+    }
+
+    public Room(int x, int y, int width, int height, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity debe ser >= 1");
         this.bounds = new Rectangle(x, y, width, height);
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
     }
 
     public Rectangle getBounds() { return bounds; }
+    public int getCapacity() { return capacity; }
+    public int getOccupancy() { return occupancy.get(); }
+
+    public boolean isOccupied() { return occupancy.get() > 0; }
+    public boolean isFull() { return occupancy.get() >= capacity; }
 
-    public synchronized boolean isOccupied() { return occupant != null; }
+    // intentar entrar: si hay plaza (y la cola lo permite) la bola pasa a ser ocupante
+    public boolean tryEnter(Ball ball) {
+        if (occupancy.get() >= capacity) return refuse(ball);
+
+        // la última plaza libre es para la primera de la cola (si sigue por aquí)
+        if (occupancy.get() >= capacity - 1) {
+            Ball head = queue.peek();
+            while (head != null && head != ball && !isNear(head)) {
+                dropFromQueue(head); // se fue: deja de tener preferencia
+                queueExpired.increment();
+                head = queue.peek();
+            }
+            if (head != null && head != ball) {
+                if (headSkips.incrementAndGet() <= MAX_HEAD_SKIPS) return refuse(ball);
+                dropFromQueue(head); // no ha vuelto: deja de tener preferencia
+                queueExpired.increment();
+            }
+        }
+
+        // reservamos plaza con CAS sobre el contador
+        while (true) {
+            int c = occupancy.get();
+            if (c >= capacity) return refuse(ball);
+            if (occupancy.compareAndSet(c, c + 1)) break;
+            contended.increment(); // otro hilo cambió la ocupación entre la lectura y el CAS
+        }
+        // con la plaza reservada siempre hay un hueco libre en el array
+        int k = 0;
+        while (!slots.compareAndSet(k, null, ball)) {
+            k = (k + 1) % capacity;
+        }
+        if (queued.contains(ball)) {
+            dropFromQueue(ball);
+        }
+        entries.increment();
+        Metrics.ROOM_ENTRIES.increment();
+        fire(null, ball);
+        return true;
+    }
+
+    // si la bola estaba dentro, la liberamos
+    public void tryLeave(Ball ball) {
+        for (int k = 0; k < capacity; k++) {
+            if (slots.get(k) == ball && slots.compareAndSet(k, ball, null)) {
+                occupancy.decrementAndGet();
+                fire(ball, null);
+                return;
+            }
+        }
+    }
+
+    // saca de la habitación y de la cola las bolas que cumplan la condición (p.ej. bolas borradas)
+    public void evictIf(Predicate<Ball> condition) {
+        for (int k = 0; k < capacity; k++) {
+            Ball b = slots.get(k);
+            if (b != null && condition.test(b) && slots.compareAndSet(k, b, null)) {
+                occupancy.decrementAndGet();
+                fire(b, null);
+            }
+        }
+        for (Iterator<Ball> it = queue.iterator(); it.hasNext(); ) {
+            Ball b = it.next();
+            if (condition.test(b) && unqueue(b)) it.remove();
+        }
+    }
 
-    // intentar entrar: si está libre se pone como ocupante y notifica
-    public synchronized boolean tryEnter(Ball ball) {
-        if (occupant == null) {
-            occupant = ball;
-            this.notifyAll();
-            return true;
+    // quita de la cola las bolas que ya no están pegadas a la habitación (una vez por tick, con
+    // la física parada). Se quitan con el iterador en la misma pasada: queue.remove(b) volvería
+    // a recorrer la cola por cada una
+    void dropDeparted() {
+        if (queueLength.get() == 0) return;
+        for (Iterator<Ball> it = queue.iterator(); it.hasNext(); ) {
+            Ball b = it.next();
+            if (!isNear(b) && unqueue(b)) {
+                it.remove();
+                queueExpired.increment();
+            }
         }
-        this.notifyAll();
+    }
+
+    private boolean isNear(Ball b) {
+        int x = b.getX(), y = b.getY();
+        int closestX = Math.max(bounds.x, Math.min(x, bounds.x + bounds.width));
+        int closestY = Math.max(bounds.y, Math.min(y, bounds.y + bounds.height));
+        long dx = x - closestX, dy = y - closestY;
+        long reach = b.getRadius() + TOUCH_MARGIN;
+        return dx * dx + dy * dy < reach * reach;
+    }
+
+    private boolean refuse(Ball ball) {
+        rejections.increment();
+        waitFor(ball);
         return false;
     }
 
-    // si la bola que sale era la ocupante, la liberamos
-    public synchronized void tryLeave(Ball ball) {
-        if (occupant == ball) {
-            occupant = null;
-            this.notifyAll();
+    // rebota contra ella llena: a la cola (sin contar rechazo, puede pasar varios ticks seguidos)
+    void waitFor(Ball ball) {
+        if (queued.add(ball)) {
+            queue.add(ball);
+            maxQueueLength.accumulate(queueLength.incrementAndGet());
         }
     }
 
-    public synchronized Ball getOccupant() { return occupant; }
+    // (la cabeza sale enseguida; una bola de en medio recorre la cola, pero solo al entrar)
+    private void dropFromQueue(Ball ball) {
+        if (unqueue(ball)) queue.remove(ball);
+    }
+
+    // la borra del conjunto y de los contadores; sacarla de la cola lo hace quien llama
+    private boolean unqueue(Ball ball) {
+        if (!queued.remove(ball)) return false;
+        queueLength.decrementAndGet();
+        headSkips.set(0);
+        return true;
+    }
+
+    // para WorldCheckpoint: huecos de las bolas en cola, en orden (caben en out: getQueueLength)
+    int copyQueueSlots(int[] out, int off) {
+        int n = 0;
+        for (Ball b : queue) out[off + n++] = b.slot;
+        return n;
+    }
+    int getHeadSkips() { return headSkips.get(); }
+    void restoreHeadSkips(int skips) { headSkips.set(skips); }
+
+    // primer ocupante (null si está vacía); con capacidad 1 es "el" ocupante
+    public Ball getOccupant() {
+        for (int k = 0; k < capacity; k++) {
+            Ball b = slots.get(k);
+            if (b != null) return b;
+        }
+        return null;
+    }
+
+    public long getEntryCount() { return entries.sum(); }
+    public long getRejectionCount() { return rejections.sum(); }
+    public long getContendedCount() { return contended.sum(); }
+    public int getQueueLength() { return queueLength.get(); }
+    public long getMaxQueueLength() { return maxQueueLength.get(); }
+    public long getQueueExpiredCount() { return queueExpired.sum(); }
+
+    public void addOccupancyListener(OccupancyListener l) { if (l != null) listeners.add(l); }
+    public void removeOccupancyListener(OccupancyListener l) { listeners.remove(l); }
+
+    private void fire(Ball previous, Ball current) {
+        GameEvents.RoomEvent event = new GameEvents.RoomEvent();
+        if (event.shouldCommit()) {
+            event.ballId = current != null ? current.getId() : previous.getId();
+            event.entered = current != null;
+            event.roomX = bounds.x;
+            event.roomY = bounds.y;
+            event.occupancy = occupancy.get();
+            event.capacity = capacity;
+            event.commit();
+        }
+        if (listeners.isEmpty()) return;
+        for (OccupancyListener l : listeners) l.occupancyChanged(this, previous, current);
+    }
 
     public boolean contains(int x, int y) {
         return bounds.contains(x, y);
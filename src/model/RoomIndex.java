@@ -0,0 +1,137 @@
+/*
+ * RoomIndex (índice espacial de habitaciones)
+ * - Rejilla uniforme fija sobre el mundo: cada celda guarda las habitaciones cuyo
+ *   rectángulo (ampliado en MAX_RADIUS) la toca. Se reconstruye solo cuando cambian
+ *   las habitaciones o el tamaño del mundo, no en cada tick.
+ * - Cada bola mira solo las habitaciones de SU celda (o la suya si ya está dentro),
+ *   así el coste por tick no crece con el número de habitaciones.
+ * - Mismo formato CSR que SpatialGrid: items[cellStart[c] .. cellStart[c + 1]).
+ */
+package model;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+final class RoomIndex {
+    static final double CELL_SIZE = 128.0;
+
+    private Room[] rooms = new Room[0];
+    private int cols = 1;
+    private int rows = 1;
+    private int[] cellStart = new int[2];
+    private int[] items = new int[0];
+
+    // para no visitar dos veces la misma habitación en forEachInRect (un solo hilo)
+    private int[] mark = new int[0];
+    private int stamp = 0;
+
+    // reparte las habitaciones en celdas y les apunta su índice
+    void rebuild(List<Room> list, int width, int height) {
+        rooms = list.toArray(new Room[0]);
+        cols = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        int cells = cols * rows;
+        cellStart = new int[cells + 1];
+        mark = new int[rooms.length];
+        stamp = 0;
+
+        // 1) contamos cuántas celdas toca cada habitación
+        for (int r = 0; r < rooms.length; r++) {
+            rooms[r].index = r;
+            int[] span = span(rooms[r]);
+            for (int cy = span[1]; cy <= span[3]; cy++) {
+                for (int cx = span[0]; cx <= span[2]; cx++) {
+                    cellStart[cy * cols + cx + 1]++;
+                }
+            }
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // 2) las colocamos (en orden de índice dentro de cada celda)
+        items = new int[cellStart[cells]];
+        int[] cursor = java.util.Arrays.copyOf(cellStart, cells);
+        for (int r = 0; r < rooms.length; r++) {
+            int[] span = span(rooms[r]);
+            for (int cy = span[1]; cy <= span[3]; cy++) {
+                for (int cx = span[0]; cx <= span[2]; cx++) {
+                    items[cursor[cy * cols + cx]++] = r;
+                }
+            }
+        }
+    }
+
+    // celdas [c0, r0, c1, r1] que toca el rectángulo ampliado de la habitación
+    private int[] span(Room room) {
+        java.awt.Rectangle b = room.getBounds();
+        int m = Ball.MAX_RADIUS + 1;
+        return new int[] {
+                clampCol((int) Math.floor((b.x - m) / CELL_SIZE)),
+                clampRow((int) Math.floor((b.y - m) / CELL_SIZE)),
+                clampCol((int) Math.floor((b.x + b.width + m) / CELL_SIZE)),
+                clampRow((int) Math.floor((b.y + b.height + m) / CELL_SIZE))
+        };
+    }
+
+    int size() { return rooms.length; }
+    Room get(int r) { return rooms[r]; }
+
+    private int cellOf(double x, double y) {
+        return clampRow((int) Math.floor(y / CELL_SIZE)) * cols + clampCol((int) Math.floor(x / CELL_SIZE));
+    }
+
+    private int clampCol(int cx) { return cx < 0 ? 0 : (cx >= cols ? cols - 1 : cx); }
+    private int clampRow(int cy) { return cy < 0 ? 0 : (cy >= rows ? rows - 1 : cy); }
+
+    // entrar/salir/rebotar de la bola i con la habitación que le toque
+    void interact(BallStore s, int i) {
+        if (s.isInRoom(i)) {
+            // ya dentro: solo nos importa su habitación (para saber si sale)
+            Ball.roomInteraction(s, i, rooms[s.room[i]]);
+            return;
+        }
+        int c = cellOf(s.x[i], s.y[i]);
+        for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+            // la primera habitación que hace algo con la bola gana (no hay dos a la vez)
+            if (Ball.roomInteraction(s, i, rooms[items[k]])) return;
+        }
+    }
+
+    // filtro conservador: dentro de alguna, o tocando el rectángulo de alguna de su celda
+    boolean near(BallStore s, int i) {
+        if (s.isInRoom(i)) return true;
+        double x = s.x[i];
+        double y = s.y[i];
+        int r = s.radius[i] + 1;
+        int c = cellOf(x, y);
+        for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+            java.awt.Rectangle b = rooms[items[k]].getBounds();
+            if (x >= b.x - r && x <= b.x + b.width + r && y >= b.y - r && y <= b.y + b.height + r) return true;
+        }
+        return false;
+    }
+
+    // habitaciones de las celdas que toca el rectángulo (cada una una sola vez)
+    void forEachInRect(double minX, double minY, double maxX, double maxY, IntConsumer visitor) {
+        if (rooms.length == 0) return;
+        if (++stamp == 0) {
+            java.util.Arrays.fill(mark, 0);
+            stamp = 1;
+        }
+        int c0 = clampCol((int) Math.floor(minX / CELL_SIZE));
+        int c1 = clampCol((int) Math.floor(maxX / CELL_SIZE));
+        int r0 = clampRow((int) Math.floor(minY / CELL_SIZE));
+        int r1 = clampRow((int) Math.floor(maxY / CELL_SIZE));
+        for (int cy = r0; cy <= r1; cy++) {
+            for (int cx = c0; cx <= c1; cx++) {
+                int c = cy * cols + cx;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int r = items[k];
+                    if (mark[r] == stamp) continue;
+                    mark[r] = stamp;
+                    visitor.accept(r);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * SessionFormat: formato binario de las sesiones grabadas (lo comparten recorder y reader)
+ *
+ * Cabecera: MAGIC, versión, ancho, alto, semilla, stepMs, QUANT, keyframeEvery, recordEvery
+ * Frame:    tipo (byte), tick (long), longitud del contenido (int), contenido
+ *   KEY:    n (varint) y por bola: id, x, y, vx, vy (double), radio (short), variante, rgb, flags (byte)
+ *   DELTA:  base, n (varint); por cada una de las 'base' bolas dx, dy cuantizados (varint zigzag,
+ *           en 1/QUANT px respecto al frame anterior); cambios de flags: k, (índice, flags) x k;
+ *           y las bolas nuevas [base, n) completas como en KEY
+ * Final:    frame INDEX con (tick, offset) de cada keyframe + offset del índice + MAGIC_INDEX.
+ *           Si falta (programa cortado), el reader recorre los frames y lo reconstruye.
+ */
+package model;
+
+import java.nio.ByteBuffer;
+
+final class SessionFormat {
+    static final long MAGIC = 0x424F4C4153524543L;       // "BOLASREC"
+    static final long MAGIC_INDEX = 0x424F4C4153494458L; // "BOLASIDX"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8 + 4 + 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    static final int FRAME_HEADER_BYTES = 1 + 8 + 4;
+    static final int FOOTER_BYTES = 16;
+
+    static final byte KEY = 1;
+    static final byte DELTA = 2;
+    static final byte INDEX = 3;
+
+    // unidades por píxel de las posiciones cuantizadas (1/16 px)
+    static final int QUANT = 16;
+
+    // bytes de una bola completa en KEY (y de las nuevas en DELTA)
+    static final int BALL_BYTES = 4 + 8 * 4 + 2 + 4 + 4 + 1;
+
+    private SessionFormat() { }
+
+    static long quantize(double v) { return Math.round(v * QUANT); }
+
+    static void putVarLong(ByteBuffer b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    static long getVarLong(ByteBuffer b) {
+        long v = 0;
+        int shift = 0;
+        while (true) {
+            byte x = b.get();
+            v |= (long) (x & 0x7F) << shift;
+            if (x >= 0) return v;
+            shift += 7;
+        }
+    }
+
+    // zigzag: los negativos pequeños también ocupan poco
+    static void putZigZag(ByteBuffer b, long v) { putVarLong(b, (v << 1) ^ (v >> 63)); }
+    static long getZigZag(ByteBuffer b) {
+        long v = getVarLong(b);
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * SessionFrame: un frame de una sesión grabada (lo rellenan SessionRecorder y SessionReader)
+ * - Arrays reutilizables (crecen, no se crean por frame), como RenderSnapshot.
+ * - Al grabar, un frame delta solo trae x/y/flags de las 'base' primeras bolas (mismas que
+ *   el frame anterior) y los datos completos de las nuevas [base, count).
+ * - Al leer, SessionReader deja siempre el estado completo reconstruido.
+ */
+package model;
+
+import java.util.Arrays;
+
+public final class SessionFrame {
+    long tick;
+    int count;
+    boolean keyframe;
+    int base; // bolas que vienen del frame anterior (0 en un keyframe)
+
+    int[] id = new int[0];
+    double[] x = new double[0];
+    double[] y = new double[0];
+    double[] vx = new double[0];
+    double[] vy = new double[0];
+    int[] radius = new int[0];
+    int[] variant = new int[0];
+    int[] rgb = new int[0];
+    int[] flags = new int[0];
+
+    void ensureCapacity(int n) {
+        if (x.length >= n) return;
+        int cap = Math.max(n, x.length + (x.length >> 1) + 16);
+        id = Arrays.copyOf(id, cap);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        vx = Arrays.copyOf(vx, cap);
+        vy = Arrays.copyOf(vy, cap);
+        radius = Arrays.copyOf(radius, cap);
+        variant = Arrays.copyOf(variant, cap);
+        rgb = Arrays.copyOf(rgb, cap);
+        flags = Arrays.copyOf(flags, cap);
+    }
+
+    public long getTick() { return tick; }
+    public int getCount() { return count; }
+    public boolean isKeyframe() { return keyframe; }
+
+    public int getId(int i) { return id[i]; }
+    public double getX(int i) { return x[i]; }
+    public double getY(int i) { return y[i]; }
+    // exacta en keyframes y bolas nuevas; en frames delta, estimada con el desplazamiento
+    public double getVx(int i) { return vx[i]; }
+    public double getVy(int i) { return vy[i]; }
+    public int getRadius(int i) { return radius[i]; }
+    public int getVariantIndex(int i) { return variant[i]; }
+    public int getRgb(int i) { return rgb[i]; }
+    public boolean isInRoom(int i) { return (flags[i] & BallStore.FLAG_IN_ROOM) != 0; }
+    public boolean isPlayer(int i) { return (flags[i] & BallStore.FLAG_PLAYER) != 0; }
+}
@@ -0,0 +1,280 @@
+/*
+ * SessionReader: lee una sesión grabada por SessionRecorder
+ * - seek(tick): salta al keyframe más cercano por debajo (índice del final del fichero)
+ *   y aplica deltas hasta llegar al tick pedido.
+ * - next(): frame siguiente. El frame devuelto es siempre el mismo objeto (se reutiliza),
+ *   con el estado completo reconstruido.
+ * - Si el fichero no tiene índice (grabación cortada), se reconstruye recorriendo las
+ *   cabeceras de los frames; lo que quede a medias al final se ignora.
+ */
+package model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public final class SessionReader implements AutoCloseable {
+    private final FileChannel channel;
+    private final long size;
+    private final long dataEnd; // donde acaban los frames (empieza el índice o el final)
+
+    // cabecera
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final double stepMs;
+    private final int quant;
+
+    // índice de keyframes
+    private long[] keyTicks = new long[0];
+    private long[] keyOffsets = new long[0];
+    private int keyCount = 0;
+    private long lastTick = -1;
+
+    // estado reconstruido
+    private final SessionFrame frame = new SessionFrame();
+    private long[] qx = new long[0];
+    private long[] qy = new long[0];
+    private long nextOffset;
+    private boolean valid = false;
+
+    private final ByteBuffer header = ByteBuffer.allocate(SessionFormat.FRAME_HEADER_BYTES);
+    private ByteBuffer payload = ByteBuffer.allocate(64 * 1024);
+
+    public SessionReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        ByteBuffer h = ByteBuffer.allocate(SessionFormat.HEADER_BYTES);
+        readFully(h, 0);
+        h.flip();
+        if (h.getLong() != SessionFormat.MAGIC) throw new IOException("No es una sesión grabada: " + file);
+        int version = h.getInt();
+        if (version != SessionFormat.VERSION) throw new IOException("Versión de sesión no soportada: " + version);
+        width = h.getInt();
+        height = h.getInt();
+        seed = h.getLong();
+        stepMs = h.getDouble();
+        quant = h.getInt();
+        h.getInt(); // keyframeEvery
+        h.getInt(); // recordEvery
+        dataEnd = loadIndex();
+        nextOffset = SessionFormat.HEADER_BYTES;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public long getSeed() { return seed; }
+    public double getStepMs() { return stepMs; }
+    public int getKeyframeCount() { return keyCount; }
+    public long getFirstTick() { return keyCount == 0 ? -1 : keyTicks[0]; }
+    public long getLastTick() { return lastTick; }
+
+    // frame con el último tick <= 'tick' (null si es anterior a la grabación)
+    public SessionFrame seek(long tick) throws IOException {
+        int k = Arrays.binarySearch(keyTicks, 0, keyCount, tick);
+        if (k < 0) k = -k - 2;
+        if (k < 0) return null;
+        // si ya vamos por delante del keyframe y antes del tick, seguimos desde aquí
+        if (!(valid && frame.tick >= keyTicks[k] && frame.tick <= tick)) {
+            nextOffset = keyOffsets[k];
+            valid = false;
+            if (next() == null) return null;
+        }
+        while (frame.tick < tick && peekTickAtMost(tick)) next();
+        return frame;
+    }
+
+    // el siguiente frame (null al final)
+    public SessionFrame next() throws IOException {
+        while (nextOffset + SessionFormat.FRAME_HEADER_BYTES <= dataEnd) {
+            header.clear();
+            readFully(header, nextOffset);
+            header.flip();
+            byte type = header.get();
+            long tick = header.getLong();
+            int len = header.getInt();
+            long start = nextOffset + SessionFormat.FRAME_HEADER_BYTES;
+            if (start + len > dataEnd) return null; // frame a medias
+            if (type != SessionFormat.KEY && type != SessionFormat.DELTA) return null;
+            if (type == SessionFormat.DELTA && !valid) {
+                nextOffset = start + len; // delta sin keyframe previo: lo saltamos
+                continue;
+            }
+            if (payload.capacity() < len) payload = ByteBuffer.allocate(Math.max(len, payload.capacity() * 2));
+            payload.clear().limit(len);
+            readFully(payload, start);
+            payload.flip();
+            double prevTickMs = (tick - frame.tick) * stepMs;
+            if (type == SessionFormat.KEY) readKey(payload);
+            else readDelta(payload, prevTickMs);
+            frame.tick = tick;
+            frame.keyframe = type == SessionFormat.KEY;
+            nextOffset = start + len;
+            valid = true;
+            return frame;
+        }
+        return null;
+    }
+
+    // ¿el próximo frame existe y su tick es <= tick?
+    private boolean peekTickAtMost(long tick) throws IOException {
+        if (nextOffset + SessionFormat.FRAME_HEADER_BYTES > dataEnd) return false;
+        header.clear();
+        readFully(header, nextOffset);
+        header.flip();
+        byte type = header.get();
+        return (type == SessionFormat.KEY || type == SessionFormat.DELTA) && header.getLong() <= tick;
+    }
+
+    private void readKey(ByteBuffer b) {
+        int n = (int) SessionFormat.getVarLong(b);
+        ensure(n);
+        for (int i = 0; i < n; i++) readBall(b, i);
+        frame.count = n;
+        frame.base = 0;
+    }
+
+    private void readDelta(ByteBuffer b, double dtMs) {
+        int base = (int) SessionFormat.getVarLong(b);
+        int n = (int) SessionFormat.getVarLong(b);
+        ensure(n);
+        SessionFrame f = frame;
+        double inv = 1.0 / quant;
+        for (int i = 0; i < base; i++) {
+            long dx = SessionFormat.getZigZag(b);
+            long dy = SessionFormat.getZigZag(b);
+            qx[i] += dx;
+            qy[i] += dy;
+            f.x[i] = qx[i] * inv;
+            f.y[i] = qy[i] * inv;
+            if (dtMs > 0) {
+                f.vx[i] = dx * inv / dtMs;
+                f.vy[i] = dy * inv / dtMs;
+            }
+        }
+        int k = (int) SessionFormat.getVarLong(b);
+        for (int c = 0; c < k; c++) {
+            int i = (int) SessionFormat.getVarLong(b);
+            f.flags[i] = b.get();
+        }
+        for (int i = base; i < n; i++) readBall(b, i);
+        f.count = n;
+        f.base = base;
+    }
+
+    private void readBall(ByteBuffer b, int i) {
+        SessionFrame f = frame;
+        f.id[i] = b.getInt();
+        f.x[i] = b.getDouble();
+        f.y[i] = b.getDouble();
+        f.vx[i] = b.getDouble();
+        f.vy[i] = b.getDouble();
+        f.radius[i] = b.getShort();
+        f.variant[i] = b.getInt();
+        f.rgb[i] = b.getInt();
+        f.flags[i] = b.get();
+        qx[i] = Math.round(f.x[i] * quant);
+        qy[i] = Math.round(f.y[i] * quant);
+    }
+
+    private void ensure(int n) {
+        frame.ensureCapacity(n);
+        if (qx.length < n) {
+            qx = Arrays.copyOf(qx, frame.x.length);
+            qy = Arrays.copyOf(qy, frame.x.length);
+        }
+    }
+
+    // índice del final; si no está, recorremos las cabeceras de los frames
+    private long loadIndex() throws IOException {
+        if (size >= SessionFormat.HEADER_BYTES + SessionFormat.FOOTER_BYTES) {
+            ByteBuffer foot = ByteBuffer.allocate(SessionFormat.FOOTER_BYTES);
+            readFully(foot, size - SessionFormat.FOOTER_BYTES);
+            foot.flip();
+            long indexOffset = foot.getLong();
+            if (foot.getLong() == SessionFormat.MAGIC_INDEX && indexOffset >= SessionFormat.HEADER_BYTES
+                    && indexOffset < size) {
+                ByteBuffer h = ByteBuffer.allocate(SessionFormat.FRAME_HEADER_BYTES + 4);
+                readFully(h, indexOffset);
+                h.flip();
+                h.get();
+                h.getLong();
+                h.getInt();
+                int n = h.getInt();
+                ByteBuffer e = ByteBuffer.allocate(n * 16);
+                readFully(e, indexOffset + SessionFormat.FRAME_HEADER_BYTES + 4);
+                e.flip();
+                keyTicks = new long[n];
+                keyOffsets = new long[n];
+                for (int k = 0; k < n; k++) {
+                    keyTicks[k] = e.getLong();
+                    keyOffsets[k] = e.getLong();
+                }
+                keyCount = n;
+                lastTick = scanLastTick(n == 0 ? SessionFormat.HEADER_BYTES : keyOffsets[n - 1], indexOffset);
+                return indexOffset;
+            }
+        }
+        // sin índice: recorrido completo
+        long off = SessionFormat.HEADER_BYTES;
+        ByteBuffer h = ByteBuffer.allocate(SessionFormat.FRAME_HEADER_BYTES);
+        while (off + SessionFormat.FRAME_HEADER_BYTES <= size) {
+            h.clear();
+            readFully(h, off);
+            h.flip();
+            byte type = h.get();
+            long tick = h.getLong();
+            int len = h.getInt();
+            if ((type != SessionFormat.KEY && type != SessionFormat.DELTA) || len < 0
+                    || off + SessionFormat.FRAME_HEADER_BYTES + len > size) break;
+            if (type == SessionFormat.KEY) addKey(tick, off);
+            lastTick = tick;
+            off += SessionFormat.FRAME_HEADER_BYTES + len;
+        }
+        return off;
+    }
+
+    // último tick entre 'from' (un keyframe) y 'end', saltando de cabecera en cabecera
+    private long scanLastTick(long from, long end) throws IOException {
+        long last = -1;
+        long off = from;
+        ByteBuffer h = ByteBuffer.allocate(SessionFormat.FRAME_HEADER_BYTES);
+        while (off + SessionFormat.FRAME_HEADER_BYTES <= end) {
+            h.clear();
+            readFully(h, off);
+            h.flip();
+            h.get();
+            last = h.getLong();
+            off += SessionFormat.FRAME_HEADER_BYTES + h.getInt();
+        }
+        return last;
+    }
+
+    private void addKey(long tick, long offset) {
+        if (keyCount == keyTicks.length) {
+            keyTicks = Arrays.copyOf(keyTicks, Math.max(16, keyCount * 2));
+            keyOffsets = Arrays.copyOf(keyOffsets, keyTicks.length);
+        }
+        keyTicks[keyCount] = tick;
+        keyOffsets[keyCount] = offset;
+        keyCount++;
+    }
+
+    private void readFully(ByteBuffer b, long offset) throws IOException {
+        long pos = offset;
+        while (b.hasRemaining()) {
+            int r = channel.read(b, pos);
+            if (r < 0) throw new EOFException("Fin de fichero en " + pos);
+            pos += r;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
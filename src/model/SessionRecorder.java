@@ -0,0 +1,309 @@
+/*
+ * SessionRecorder: graba la sesión a disco (formato en SessionFormat)
+ * - onTick() lo llama el hilo de física tras cada paso: solo copia arrays a un frame libre
+ *   (con el lock del modelo) y lo encola. Cuantizar, codificar y escribir lo hace un hilo
+ *   aparte ("session-writer") con un FileChannel y un buffer directo grande.
+ * - Keyframe completo cada keyframeEvery ticks (o si se borraron bolas); entre medias,
+ *   frames delta de pocos bytes por bola.
+ * - Si el escritor no da abasto no se bloquea la física: el frame se descarta, se cuenta
+ *   y el siguiente es keyframe (la cadena de deltas se ha roto).
+ */
+package model;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public final class SessionRecorder implements AutoCloseable {
+    // frames en vuelo entre la física y el escritor
+    private static final int FRAMES_IN_FLIGHT = 4;
+    private static final int OUT_BUFFER_BYTES = 4 << 20;
+    // tiempo de CPU del hilo de física en onTick (el de reloj incluye al escritor si hay pocos núcleos)
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final GameModel model;
+    private final int keyframeEvery;
+    private final int recordEvery;
+    private final FileChannel channel;
+    private final Thread writer;
+
+    private final BlockingQueue<SessionFrame> free = new ArrayBlockingQueue<>(FRAMES_IN_FLIGHT);
+    private final BlockingQueue<SessionFrame> filled = new ArrayBlockingQueue<>(FRAMES_IN_FLIGHT);
+    private volatile boolean closing = false;
+    private volatile IOException error;
+
+    // lado de la física
+    private boolean forceKey = true;
+    private long lastKeyTick = Long.MIN_VALUE;
+    private int lastCount = 0;
+    private int lastStructure = 0;
+    private long captureNanos = 0;
+    private long droppedFrames = 0;
+
+    // lado del escritor
+    private final ByteBuffer out = ByteBuffer.allocateDirect(OUT_BUFFER_BYTES);
+    private ByteBuffer scratch = ByteBuffer.allocate(0);
+    private volatile long position;
+    private long[] prevQx = new long[0];
+    private long[] prevQy = new long[0];
+    private int[] prevFlags = new int[0];
+    private int[] changed = new int[0];
+    private final List<long[]> index = new ArrayList<>(); // {tick, offset} de cada keyframe
+    private volatile long framesWritten = 0;
+
+    public SessionRecorder(GameModel model, Path file, double stepMs) throws IOException {
+        this(model, file, stepMs, 300, 1);
+    }
+
+    // keyframeEvery: ticks entre keyframes; recordEvery: grabar 1 de cada N ticks
+    public SessionRecorder(GameModel model, Path file, double stepMs, int keyframeEvery, int recordEvery) throws IOException {
+        this.model = model;
+        this.keyframeEvery = Math.max(1, keyframeEvery);
+        this.recordEvery = Math.max(1, recordEvery);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        for (int k = 0; k < FRAMES_IN_FLIGHT; k++) free.add(new SessionFrame());
+
+        out.putLong(SessionFormat.MAGIC);
+        out.putInt(SessionFormat.VERSION);
+        out.putInt(model.getWidth());
+        out.putInt(model.getHeight());
+        out.putLong(model.getSeed());
+        out.putDouble(stepMs);
+        out.putInt(SessionFormat.QUANT);
+        out.putInt(this.keyframeEvery);
+        out.putInt(this.recordEvery);
+        position = SessionFormat.HEADER_BYTES;
+
+        writer = new Thread(this::writeLoop, "session-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // hilo de física, justo después de model.update()
+    public void onTick() {
+        if (closing || error != null) return;
+        long tick = model.getTick();
+        if (tick % recordEvery != 0) return;
+        long t0 = now();
+        SessionFrame f = free.poll();
+        if (f == null) {
+            droppedFrames++;
+            forceKey = true;
+            return;
+        }
+        synchronized (model) {
+            capture(f, model.store(), tick);
+        }
+        filled.add(f); // hay sitio: solo existen FRAMES_IN_FLIGHT frames
+        captureNanos += now() - t0;
+    }
+
+    private static long now() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    // copia lo justo: todo en keyframes; en deltas, x/y/flags y las bolas nuevas completas
+    private void capture(SessionFrame f, BallStore s, long tick) {
+        int n = s.size;
+        boolean key = forceKey || tick - lastKeyTick >= keyframeEvery
+                || s.structure != lastStructure || n < lastCount;
+        int base = key ? 0 : lastCount;
+        f.ensureCapacity(n);
+        f.tick = tick;
+        f.count = n;
+        f.keyframe = key;
+        f.base = base;
+        System.arraycopy(s.x, 0, f.x, 0, n);
+        System.arraycopy(s.y, 0, f.y, 0, n);
+        System.arraycopy(s.flags, 0, f.flags, 0, n);
+        int tail = n - base;
+        System.arraycopy(s.id, base, f.id, base, tail);
+        System.arraycopy(s.vx, base, f.vx, base, tail);
+        System.arraycopy(s.vy, base, f.vy, base, tail);
+        System.arraycopy(s.radius, base, f.radius, base, tail);
+        System.arraycopy(s.variant, base, f.variant, base, tail);
+        System.arraycopy(s.rgb, base, f.rgb, base, tail);
+        if (key) lastKeyTick = tick;
+        forceKey = false;
+        lastCount = n;
+        lastStructure = s.structure;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                SessionFrame f = filled.poll(50, TimeUnit.MILLISECONDS);
+                if (f == null) {
+                    if (closing && filled.isEmpty()) break;
+                    continue;
+                }
+                encode(f);
+                framesWritten++;
+                free.add(f);
+            }
+            writeIndex();
+            flush();
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void encode(SessionFrame f) throws IOException {
+        int n = f.count;
+        if (prevQx.length < n) {
+            int cap = Math.max(n, prevQx.length * 2);
+            prevQx = Arrays.copyOf(prevQx, cap);
+            prevQy = Arrays.copyOf(prevQy, cap);
+            prevFlags = Arrays.copyOf(prevFlags, cap);
+        }
+        // el frame se codifica directamente en el buffer de salida si cabe en el peor caso;
+        // si no (mundos enormes), en 'scratch' y se copia
+        int need = SessionFormat.FRAME_HEADER_BYTES + worstCase(n);
+        boolean direct = need <= out.capacity();
+        ByteBuffer b;
+        int start = 0;
+        if (direct) {
+            if (out.remaining() < need) flush();
+            b = out;
+            start = out.position();
+            out.position(start + SessionFormat.FRAME_HEADER_BYTES);
+        } else {
+            if (scratch.capacity() < need) scratch = ByteBuffer.allocate(need);
+            b = scratch;
+            b.clear();
+        }
+        if (f.keyframe) {
+            SessionFormat.putVarLong(b, n);
+            for (int i = 0; i < n; i++) putBall(b, f, i);
+            index.add(new long[] {f.tick, position});
+        } else {
+            int base = f.base;
+            SessionFormat.putVarLong(b, base);
+            SessionFormat.putVarLong(b, n);
+            int k = 0;
+            if (changed.length < base) changed = new int[base];
+            for (int i = 0; i < base; i++) {
+                long qx = SessionFormat.quantize(f.x[i]);
+                long qy = SessionFormat.quantize(f.y[i]);
+                SessionFormat.putZigZag(b, qx - prevQx[i]);
+                SessionFormat.putZigZag(b, qy - prevQy[i]);
+                prevQx[i] = qx;
+                prevQy[i] = qy;
+                if (f.flags[i] != prevFlags[i]) {
+                    changed[k++] = i;
+                    prevFlags[i] = f.flags[i];
+                }
+            }
+            SessionFormat.putVarLong(b, k);
+            for (int c = 0; c < k; c++) {
+                SessionFormat.putVarLong(b, changed[c]);
+                b.put((byte) f.flags[changed[c]]);
+            }
+            for (int i = base; i < n; i++) putBall(b, f, i);
+        }
+        byte type = f.keyframe ? SessionFormat.KEY : SessionFormat.DELTA;
+        if (direct) {
+            int len = out.position() - start - SessionFormat.FRAME_HEADER_BYTES;
+            out.put(start, type);
+            out.putLong(start + 1, f.tick);
+            out.putInt(start + 9, len);
+            position += SessionFormat.FRAME_HEADER_BYTES + len;
+        } else {
+            b.flip();
+            writeFrame(type, f.tick, b);
+        }
+    }
+
+    private void putBall(ByteBuffer b, SessionFrame f, int i) {
+        b.putInt(f.id[i]);
+        b.putDouble(f.x[i]);
+        b.putDouble(f.y[i]);
+        b.putDouble(f.vx[i]);
+        b.putDouble(f.vy[i]);
+        b.putShort((short) f.radius[i]);
+        b.putInt(f.variant[i]);
+        b.putInt(f.rgb[i]);
+        b.put((byte) f.flags[i]);
+        // los deltas siguientes van respecto a la posición cuantizada
+        prevQx[i] = SessionFormat.quantize(f.x[i]);
+        prevQy[i] = SessionFormat.quantize(f.y[i]);
+        prevFlags[i] = f.flags[i];
+    }
+
+    // peor caso: bola completa (o 2 varints de 10 bytes + cambio de flags) por bola
+    private static int worstCase(int n) {
+        return 32 + n * Math.max(SessionFormat.BALL_BYTES, 31);
+    }
+
+    private void writeFrame(byte type, long tick, ByteBuffer payload) throws IOException {
+        if (out.remaining() < SessionFormat.FRAME_HEADER_BYTES) flush();
+        out.put(type);
+        out.putLong(tick);
+        out.putInt(payload.remaining());
+        position += SessionFormat.FRAME_HEADER_BYTES + payload.remaining();
+        if (payload.remaining() > out.remaining()) {
+            flush();
+            while (payload.hasRemaining()) channel.write(payload);
+        } else {
+            out.put(payload);
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        long indexOffset = position;
+        ByteBuffer b = ByteBuffer.allocate(4 + index.size() * 16);
+        b.putInt(index.size());
+        for (long[] e : index) {
+            b.putLong(e[0]);
+            b.putLong(e[1]);
+        }
+        b.flip();
+        writeFrame(SessionFormat.INDEX, -1, b);
+        if (out.remaining() < SessionFormat.FOOTER_BYTES) flush();
+        out.putLong(indexOffset);
+        out.putLong(SessionFormat.MAGIC_INDEX);
+    }
+
+    private void flush() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) channel.write(out);
+        out.clear();
+    }
+
+    // espera a que se escriba lo pendiente, añade el índice y cierra el fichero
+    @Override
+    public void close() throws IOException {
+        if (closing) return;
+        closing = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (error != null) throw error;
+    }
+
+    public boolean isFailed() { return error != null; }
+    public IOException getError() { return error; }
+    public long getFramesWritten() { return framesWritten; }
+    public long getDroppedFrames() { return droppedFrames; }
+    // tiempo de CPU gastado en onTick (hilo de física), para medir el sobrecoste
+    public long getCaptureNanos() { return captureNanos; }
+    // bytes escritos hasta ahora (aproximado mientras graba)
+    public long getBytesWritten() { return position; }
+}
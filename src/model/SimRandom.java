@@ -0,0 +1,88 @@
+/*
+ * SimRandom: aleatorio de la simulación (sustituye al java.util.Random compartido)
+ * - Todo sale de una semilla: con la misma semilla y las mismas entradas, el mundo es idéntico.
+ * - spawn(): stream para crear bolas (siempre en serie, con el lock del modelo).
+ * - forBall(i): stream de la partición de la bola i (trozos de PARTITION bolas, los mismos
+ *   que usa ParallelPhysics). Cada partición la toca un solo hilo, así que no hay CAS
+ *   compartido como en Random, y el reparto no depende del número de hilos.
+ * - Los streams son SimStream (los mismos números que SplittableRandom) sacados con split()
+ *   en orden fijo desde la semilla. Su estado se puede guardar (state) y restaurar
+ *   (fromState): un checkpoint sigue la secuencia por donde iba.
+ */
+package model;
+
+import java.util.Arrays;
+
+final class SimRandom {
+    static final int PARTITION = ParallelPhysics.CHUNK;
+
+    private final long seed;
+    private final SimStream spawn;
+    // de aquí salen los streams de partición (uno nuevo solo cuando hay más bolas)
+    private final SimStream partitionRoot;
+    private SimStream[] partitions = new SimStream[0];
+
+    SimRandom(long seed) {
+        this.seed = seed;
+        SimStream root = new SimStream(seed);
+        this.spawn = root.split();
+        this.partitionRoot = root.split();
+        ensurePartitions(1);
+    }
+
+    private SimRandom(long seed, SimStream spawn, SimStream partitionRoot, SimStream[] partitions) {
+        this.seed = seed;
+        this.spawn = spawn;
+        this.partitionRoot = partitionRoot;
+        this.partitions = partitions;
+    }
+
+    // semilla nueva cada vez (modo normal, no reproducible salvo que se apunte getSeed())
+    static SimRandom unseeded() {
+        return new SimRandom(System.nanoTime() ^ 0x5DEECE66DL * Thread.currentThread().getId());
+    }
+
+    long getSeed() { return seed; }
+
+    SimStream spawn() { return spawn; }
+
+    SimStream forBall(int i) {
+        return partitions[i / PARTITION];
+    }
+
+    // llamar antes del paso (en serie) para que existan los streams de todas las bolas
+    void ensureCapacity(int balls) {
+        ensurePartitions((balls + PARTITION - 1) / PARTITION);
+    }
+
+    // streams guardados: spawn, raíz y cada partición (semilla y gamma de cada uno)
+    int streamCount() { return 2 + partitions.length; }
+
+    // estado de todos los streams en out (2 longs por stream, en el orden de streamCount)
+    void saveState(long[] out) {
+        out[0] = spawn.seed();
+        out[1] = spawn.gamma();
+        out[2] = partitionRoot.seed();
+        out[3] = partitionRoot.gamma();
+        for (int p = 0; p < partitions.length; p++) {
+            out[4 + 2 * p] = partitions[p].seed();
+            out[5 + 2 * p] = partitions[p].gamma();
+        }
+    }
+
+    // lo contrario de saveState: sigue exactamente por donde iba el original
+    static SimRandom fromState(long seed, long[] state) {
+        SimStream[] parts = new SimStream[state.length / 2 - 2];
+        for (int p = 0; p < parts.length; p++) parts[p] = new SimStream(state[4 + 2 * p], state[5 + 2 * p]);
+        return new SimRandom(seed, new SimStream(state[0], state[1]), new SimStream(state[2], state[3]), parts);
+    }
+
+    private void ensurePartitions(int count) {
+        if (partitions.length >= count) return;
+        int old = partitions.length;
+        partitions = Arrays.copyOf(partitions, Math.max(count, old * 2));
+        for (int p = old; p < partitions.length; p++) {
+            partitions[p] = partitionRoot.split();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * SimStream: un stream de aleatorio de SimRandom (SplitMix64)
+ * - Mismo algoritmo y mismos números que java.util.SplittableRandom (semilla + gamma), pero
+ *   con el estado a la vista: WorldCheckpoint lo guarda y lo restaura, así que un mundo
+ *   cargado sigue la secuencia por donde iba en vez de empezar otra vez desde la semilla.
+ * - Solo lo que usa la simulación: nextInt(bound), nextDouble() y split().
+ */
+package model;
+
+final class SimStream {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private long seed;
+    private final long gamma;
+
+    SimStream(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    SimStream(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    long seed() { return seed; }
+    long gamma() { return gamma; }
+
+    SimStream split() {
+        return new SimStream(nextLong(), mixGamma(nextSeed()));
+    }
+
+    long nextLong() { return mix64(nextSeed()); }
+
+    int nextInt() { return mix32(nextSeed()); }
+
+    // [0, bound) sin sesgo (rechazo), igual que SplittableRandom.nextInt(bound)
+    int nextInt(int bound) {
+        if (bound <= 0) throw new IllegalArgumentException("bound must be positive");
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            r &= m;
+        } else {
+            for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) { }
+        }
+        return r;
+    }
+
+    double nextDouble() { return (nextLong() >>> 11) * DOUBLE_UNIT; }
+
+    private long nextSeed() { return seed += gamma; }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
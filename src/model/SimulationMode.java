@@ -0,0 +1,14 @@
+// SimulationMode: cómo avanza la física del modelo
+package model;
+
+public enum SimulationMode {
+    TIME_STEP,    // pasos de dt: todas las bolas se mueven y se comprueban en cada tick
+    EVENT_DRIVEN; // por eventos: se salta de choque en choque (EventDrivenEngine)
+
+    // Lee -Dgame.physics.engine=step|event (por defecto TIME_STEP)
+    public static SimulationMode fromProperty() {
+        String prop = System.getProperty("game.physics.engine", "step");
+        if ("event".equalsIgnoreCase(prop) || "EVENT_DRIVEN".equalsIgnoreCase(prop)) return EVENT_DRIVEN;
+        return TIME_STEP;
+    }
+}
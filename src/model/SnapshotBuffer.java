@@ -0,0 +1,34 @@
+/*
+ * SnapshotBuffer: triple buffer de RenderSnapshot sin locks
+ * - Tres fotos: la que escribe la física (back), la última publicada (ready) y la que
+ *   está pintando la vista (front). Publicar y coger son un único getAndSet atómico.
+ * - Un solo escritor (física, con el lock del modelo) y un solo lector (el hilo que pinta).
+ * - Ninguno espera al otro: la física nunca escribe en la foto que se está pintando.
+ */
+package model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+final class SnapshotBuffer {
+    private final AtomicReference<RenderSnapshot> ready = new AtomicReference<>(new RenderSnapshot());
+    private RenderSnapshot back = new RenderSnapshot();  // solo la toca el escritor
+    private RenderSnapshot front = new RenderSnapshot(); // solo la toca el lector
+    private long sequence = 0;
+
+    // foto libre para rellenar
+    RenderSnapshot writable() { return back; }
+
+    // publica la foto rellenada y recupera otra libre (la anterior "ready")
+    void publish() {
+        back.sequence = ++sequence;
+        back = ready.getAndSet(back);
+    }
+
+    // la foto más reciente; si no hay nada nuevo devuelve la misma que la última vez
+    RenderSnapshot acquire() {
+        if (ready.get().sequence > front.sequence) {
+            front = ready.getAndSet(front);
+        }
+        return front;
+    }
+}
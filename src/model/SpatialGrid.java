@@ -0,0 +1,153 @@
+/*
+ * SpatialGrid (fase amplia de colisiones)
+ * - Rejilla uniforme: cada celda mide 2 * Ball.MAX_RADIUS, así dos bolas que se tocan
+ *   siempre están en la misma celda o en una vecina.
+ * - Se reconstruye entera en cada tick con un "counting sort" (O(n), sin objetos por bola).
+ * - Solo devuelve parejas candidatas; la resolución del choque la sigue haciendo GameModel.
+ */
+package model;
+
+final class SpatialGrid {
+    // Recibe cada pareja candidata (índices en el BallStore)
+    interface PairVisitor {
+        void visit(int i, int j);
+    }
+
+    private final double cellSize;
+    private int cols = 1;
+    private int rows = 1;
+
+    // Formato CSR: los índices de la celda c están en cellItems[cellStart[c] .. cellStart[c + 1])
+    private int[] cellStart = new int[2];
+    private int[] cellItems = new int[0];
+    private int[] cellOf = new int[0];
+    private int[] cursor = new int[1];
+
+    SpatialGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    // Reparte las n primeras bolas en celdas según su posición actual (arrays del BallStore)
+    void build(double[] xs, double[] ys, int n, int width, int height) {
+        cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+            cursor = new int[cells];
+        } else {
+            java.util.Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        if (cellOf.length < n) {
+            int cap = Math.max(n, cellOf.length * 2);
+            cellOf = new int[cap];
+            cellItems = new int[cap];
+        }
+
+        // 1) contamos cuántas bolas caen en cada celda
+        for (int i = 0; i < n; i++) {
+            int c = cellIndex(xs[i], ys[i]);
+            cellOf[i] = c;
+            cellStart[c + 1]++;
+        }
+        // 2) suma acumulada -> posición de inicio de cada celda
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // 3) colocamos cada índice en su hueco
+        System.arraycopy(cellStart, 0, cursor, 0, cells);
+        for (int i = 0; i < n; i++) {
+            cellItems[cursor[cellOf[i]]++] = i;
+        }
+    }
+
+    // Visita cada pareja candidata una sola vez: misma celda + 4 vecinas "hacia delante"
+    void forEachCandidatePair(PairVisitor visitor) {
+        for (int cy = 0; cy < rows; cy++) {
+            for (int cx = 0; cx < cols; cx++) {
+                int c = cy * cols + cx;
+                int start = cellStart[c];
+                int end = cellStart[c + 1];
+                if (start == end) continue;
+
+                // parejas dentro de la propia celda
+                for (int a = start; a < end; a++) {
+                    for (int b = a + 1; b < end; b++) {
+                        visitor.visit(cellItems[a], cellItems[b]);
+                    }
+                }
+                // vecinas: derecha, abajo-izquierda, abajo, abajo-derecha
+                visitNeighbor(visitor, start, end, cx + 1, cy);
+                visitNeighbor(visitor, start, end, cx - 1, cy + 1);
+                visitNeighbor(visitor, start, end, cx, cy + 1);
+                visitNeighbor(visitor, start, end, cx + 1, cy + 1);
+            }
+        }
+    }
+
+    int columns() { return cols; }
+
+    // Visita los índices de las celdas que tocan el cuadrado [x - range, x + range] x [y - range, y + range]
+    void forEachInRange(double x, double y, double range, java.util.function.IntConsumer visitor) {
+        int c0 = clampCol((int) Math.floor((x - range) / cellSize));
+        int c1 = clampCol((int) Math.floor((x + range) / cellSize));
+        int r0 = clampRow((int) Math.floor((y - range) / cellSize));
+        int r1 = clampRow((int) Math.floor((y + range) / cellSize));
+        for (int cy = r0; cy <= r1; cy++) {
+            for (int cx = c0; cx <= c1; cx++) {
+                int c = cy * cols + cx;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    visitor.accept(cellItems[k]);
+                }
+            }
+        }
+    }
+
+    private int clampCol(int cx) { return cx < 0 ? 0 : (cx >= cols ? cols - 1 : cx); }
+    private int clampRow(int cy) { return cy < 0 ? 0 : (cy >= rows ? rows - 1 : cy); }
+
+    // Igual que forEachCandidatePair pero solo para las columnas [colStart, colEnd):
+    // las parejas con la vecina fuera de la franja van a 'boundary' en vez de a 'inner'
+    void forEachCandidatePairInColumns(int colStart, int colEnd, PairVisitor inner, PairVisitor boundary) {
+        for (int cy = 0; cy < rows; cy++) {
+            for (int cx = colStart; cx < colEnd; cx++) {
+                int c = cy * cols + cx;
+                int start = cellStart[c];
+                int end = cellStart[c + 1];
+                if (start == end) continue;
+
+                for (int a = start; a < end; a++) {
+                    for (int b = a + 1; b < end; b++) {
+                        inner.visit(cellItems[a], cellItems[b]);
+                    }
+                }
+                visitNeighbor(cx + 1 < colEnd ? inner : boundary, start, end, cx + 1, cy);
+                visitNeighbor(cx - 1 >= colStart ? inner : boundary, start, end, cx - 1, cy + 1);
+                visitNeighbor(inner, start, end, cx, cy + 1);
+                visitNeighbor(cx + 1 < colEnd ? inner : boundary, start, end, cx + 1, cy + 1);
+            }
+        }
+    }
+
+    private void visitNeighbor(PairVisitor visitor, int start, int end, int nx, int ny) {
+        if (nx < 0 || nx >= cols || ny >= rows) return;
+        int n = ny * cols + nx;
+        int nStart = cellStart[n];
+        int nEnd = cellStart[n + 1];
+        if (nStart == nEnd) return;
+        for (int a = start; a < end; a++) {
+            for (int b = nStart; b < nEnd; b++) {
+                visitor.visit(cellItems[a], cellItems[b]);
+            }
+        }
+    }
+
+    // Las bolas fuera de la ventana (p.ej. tras redimensionar) se pegan a la celda del borde
+    private int cellIndex(double x, double y) {
+        int cx = (int) (x / cellSize);
+        int cy = (int) (y / cellSize);
+        if (cx < 0) cx = 0; else if (cx >= cols) cx = cols - 1;
+        if (cy < 0) cy = 0; else if (cy >= rows) cy = rows - 1;
+        return cy * cols + cx;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * WorldCheckpoint: guarda el mundo entero en un fichero mapeado en memoria y lo vuelve a cargar
+ * - Pensado para arrancar en caliente un mundo grande (100k bolas) sin crearlo bola a bola
+ *   ni esperar a que se asiente.
+ * - El fichero es la imagen de los arrays del BallStore, columna a columna y en little-endian:
+ *   guardar y cargar son copias en bloque (DoubleBuffer/IntBuffer sobre el MappedByteBuffer).
+ * - Lo usa GameModel (saveCheckpoint / loadCheckpoint) con su lock cogido.
+ *
+ * - Desde la versión 2 guarda también el estado del aleatorio (SimRandom) y el orden de las
+ *   colas de admisión: en modo determinista y por pasos, cargar en el tick T y seguir da los
+ *   mismos checksums que la partida original. Los de versión 1 se cargan con el aleatorio
+ *   desde la semilla y sin colas (Header.exact = false).
+ *
+ * Formato (versión 2):
+ *   cabecera (64 bytes): MAGIC, versión, ancho, alto, tick, semilla, nº bolas, nº habitaciones,
+ *     siguiente id, nº streams del aleatorio, nº bolas en colas
+ *   habitaciones: x, y, ancho, alto, capacidad, largo de la cola, saltos de la cabeza (int),
+ *     rellenado hasta múltiplo de 8
+ *   colas: hueco de cada bola en cola, habitación a habitación y en orden (int), rellenado
+ *   aleatorio: semilla y gamma de cada stream (long)
+ *   bolas: x, y, vx, vy, ax, ay (double[n] cada uno) y radio, variante, rgb, flags, id, habitación (int[n])
+ * (versión 1: sin colas ni aleatorio y habitaciones de 5 ints)
+ */
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+final class WorldCheckpoint {
+    static final long MAGIC = 0x424F4C4153434B50L; // "BOLASCKP"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 64;
+    static final int ROOM_INTS = 7;
+    static final int ROOM_INTS_V1 = 5;
+    static final int BALL_BYTES = 6 * 8 + 6 * 4;
+
+    // lo que se lee de la cabecera (las bolas van directamente al store)
+    static final class Header {
+        int width;
+        int height;
+        long tick;
+        long seed;
+        int balls;
+        int nextId;
+        int[][] rooms; // {x, y, ancho, alto, capacidad, largo de la cola, saltos de la cabeza}
+        int[] queued; // huecos de las bolas en cola (las de rooms[0], luego rooms[1]...)
+        long[] rngState; // null en versión 1
+        boolean exact; // false: versión 1, el aleatorio empieza de nuevo y las colas vacías
+        private int ballsOffset;
+    }
+
+    private WorldCheckpoint() { }
+
+    static long fileSize(int balls, int rooms, int queued, int streams) {
+        return HEADER_BYTES + intsBytes(rooms * ROOM_INTS) + intsBytes(queued) + streams * 16L + (long) balls * BALL_BYTES;
+    }
+
+    private static long fileSizeV1(int balls, int rooms) {
+        return HEADER_BYTES + intsBytes(rooms * ROOM_INTS_V1) + (long) balls * BALL_BYTES;
+    }
+
+    // n ints rellenados hasta múltiplo de 8 bytes
+    private static int intsBytes(int n) {
+        return (n * 4 + 7) & ~7;
+    }
+
+    static void save(Path file, BallStore s, List<Room> rooms, int width, int height, long tick) throws IOException {
+        int n = s.size;
+        int queuedTotal = 0;
+        for (Room r : rooms) queuedTotal += r.getQueueLength();
+        int[] queued = new int[queuedTotal];
+        int[] queueLengths = new int[rooms.size()];
+        int q = 0;
+        for (int k = 0; k < rooms.size(); k++) {
+            queueLengths[k] = rooms.get(k).copyQueueSlots(queued, q);
+            q += queueLengths[k];
+        }
+        long[] rngState = new long[2 * s.rng.streamCount()];
+        s.rng.saveState(rngState);
+        long size = fileSize(n, rooms.size(), queuedTotal, s.rng.streamCount());
+        if (size > Integer.MAX_VALUE) throw new IOException("Mundo demasiado grande para un checkpoint: " + n + " bolas");
+        try (FileChannel ch = open(file)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.putLong(MAGIC);
+            buf.putInt(VERSION);
+            buf.putInt(width);
+            buf.putInt(height);
+            buf.putLong(tick);
+            buf.putLong(s.rng.getSeed());
+            buf.putInt(n);
+            buf.putInt(rooms.size());
+            buf.putInt(s.nextId());
+            buf.putInt(s.rng.streamCount());
+            buf.putInt(queuedTotal);
+            buf.position(HEADER_BYTES);
+            for (int k = 0; k < rooms.size(); k++) {
+                Room r = rooms.get(k);
+                buf.putInt(r.getBounds().x);
+                buf.putInt(r.getBounds().y);
+                buf.putInt(r.getBounds().width);
+                buf.putInt(r.getBounds().height);
+                buf.putInt(r.getCapacity());
+                buf.putInt(queueLengths[k]);
+                buf.putInt(r.getHeadSkips());
+            }
+            int off = HEADER_BYTES + intsBytes(rooms.size() * ROOM_INTS);
+            buf.position(off);
+            buf.asIntBuffer().put(queued, 0, queuedTotal);
+            off += intsBytes(queuedTotal);
+            buf.position(off);
+            buf.asLongBuffer().put(rngState);
+            off += rngState.length * 8;
+            for (double[] a : new double[][] {s.x, s.y, s.vx, s.vy, s.ax, s.ay}) {
+                buf.position(off);
+                buf.asDoubleBuffer().put(a, 0, n);
+                off += n * 8;
+            }
+            for (int[] a : new int[][] {s.radius, s.variant, s.rgb, s.flags, s.id, s.room}) {
+                buf.position(off);
+                buf.asIntBuffer().put(a, 0, n);
+                off += n * 4;
+            }
+            buf.force();
+        }
+    }
+
+    // cabecera y habitaciones; comprueba que el tamaño cuadra antes de tocar el modelo
+    static Header readHeader(ByteBuffer buf, long fileSize) throws IOException {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (fileSize < HEADER_BYTES || buf.getLong(0) != MAGIC) throw new IOException("No es un checkpoint del juego");
+        buf.position(8);
+        int version = buf.getInt();
+        if (version != 1 && version != VERSION) throw new IOException("Versión de checkpoint no soportada: " + version);
+        Header h = new Header();
+        h.width = buf.getInt();
+        h.height = buf.getInt();
+        h.tick = buf.getLong();
+        h.seed = buf.getLong();
+        h.balls = buf.getInt();
+        int roomCount = buf.getInt();
+        h.nextId = buf.getInt();
+        h.exact = version >= 2;
+        int streams = h.exact ? buf.getInt() : 0;
+        int queuedTotal = h.exact ? buf.getInt() : 0;
+        if (h.balls < 0 || roomCount < 1 || streams < 0 || queuedTotal < 0 || (h.exact && streams < 3)
+                || fileSize != (h.exact ? fileSize(h.balls, roomCount, queuedTotal, streams) : fileSizeV1(h.balls, roomCount))) {
+            throw new IOException("Checkpoint incompleto o dañado");
+        }
+        int roomInts = h.exact ? ROOM_INTS : ROOM_INTS_V1;
+        h.rooms = new int[roomCount][ROOM_INTS];
+        buf.position(HEADER_BYTES);
+        int inQueues = 0;
+        for (int[] r : h.rooms) {
+            for (int k = 0; k < roomInts; k++) r[k] = buf.getInt();
+            inQueues += r[5];
+        }
+        if (inQueues != queuedTotal) throw new IOException("Checkpoint incompleto o dañado");
+        int off = HEADER_BYTES + intsBytes(roomCount * roomInts);
+        h.queued = new int[queuedTotal];
+        buf.position(off);
+        buf.asIntBuffer().get(h.queued);
+        off += intsBytes(queuedTotal);
+        for (int slot : h.queued) {
+            if (slot < 0 || slot >= h.balls) throw new IOException("Checkpoint incompleto o dañado");
+        }
+        if (h.exact) {
+            h.rngState = new long[2 * streams];
+            buf.position(off);
+            buf.asLongBuffer().get(h.rngState);
+            off += h.rngState.length * 8;
+        }
+        h.ballsOffset = off;
+        return h;
+    }
+
+    // copia en bloque las bolas a s (ya con capacidad para h.balls)
+    static void readBalls(ByteBuffer buf, Header h, BallStore s) {
+        int n = h.balls;
+        int off = h.ballsOffset;
+        for (double[] a : new double[][] {s.x, s.y, s.vx, s.vy, s.ax, s.ay}) {
+            buf.position(off);
+            buf.asDoubleBuffer().get(a, 0, n);
+            off += n * 8;
+        }
+        for (int[] a : new int[][] {s.radius, s.variant, s.rgb, s.flags, s.id, s.room}) {
+            buf.position(off);
+            buf.asIntBuffer().get(a, 0, n);
+            off += n * 4;
+        }
+    }
+
+    static MappedByteBuffer map(FileChannel ch) throws IOException {
+        return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+    }
+
+    // En Windows no se puede truncar un fichero que sigue mapeado (el mapeo anterior solo se
+    // suelta cuando el GC recoge su buffer): si falla, pedimos un GC y lo intentamos otra vez.
+    private static FileChannel open(Path file) throws IOException {
+        try {
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            System.gc();
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ * GameServer: modo servidor multijugador (NIO, un solo hilo "net-server" con Selector)
+ * - Cada cliente TCP que se conecta recibe su propia PlayerBall (GameModel.addRemotePlayer)
+ *   y la mueve mandando INPUT por la misma conexión; al desconectarse se borra.
+ * - onTick() lo llama el hilo de física tras cada paso: solo copia el mundo a un frame libre
+ *   (triple buffer, como SnapshotBuffer) y despierta al selector.
+ * - El hilo de red, con cada frame nuevo: reparte las bolas en una rejilla, y para cada
+ *   cliente busca las que caen en su vista (centrada en su bola) y le manda solo lo que
+ *   cambió respecto a lo último que se le mandó (entran / se mueven / salen), cuantizado.
+ * - Un cliente que no lee no frena a nadie: si tiene mucho pendiente se le saltan ticks
+ *   (los deltas van respecto a lo que de verdad se le mandó, así que no se rompe nada).
+ * Formato de los mensajes en NetProtocol.
+ */
+package net;
+
+import model.Ball;
+import model.GameModel;
+import model.PlayerBall;
+import model.SessionFrame;
+import util.Debug;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public final class GameServer implements AutoCloseable {
+    // lado de las celdas de la rejilla de interés (px)
+    private static final int CELL = 256;
+    // si un cliente tiene más que esto sin enviar, ese tick no se le manda nada
+    private static final int MAX_PENDING_BYTES = 256 * 1024;
+    // mensajes del cliente: pequeños
+    private static final int MAX_CLIENT_MESSAGE = 64;
+
+    private final GameModel model;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // triple buffer de frames: la física escribe 'back', la red lee 'front'
+    private static final class Frame {
+        final SessionFrame data = new SessionFrame();
+        long seq;
+    }
+    private final AtomicReference<Frame> ready = new AtomicReference<>(new Frame());
+    private Frame back = new Frame();
+    private Frame front = new Frame();
+    private long sequence = 0;
+
+    private final List<Client> clients = new ArrayList<>();
+
+    // rejilla del frame actual (CSR: bolas de la celda c en cellItems[cellStart[c] .. cellStart[c + 1]))
+    private int cols;
+    private int rows;
+    private int[] cellStart = new int[1];
+    private int[] cellCursor = new int[0];
+    private int[] cellItems = new int[0];
+
+    // listas del mensaje STATE (solo las usa el hilo de red, se reutilizan entre clientes)
+    private ByteBuffer enters = ByteBuffer.allocate(16 * 1024);
+    private ByteBuffer updates = ByteBuffer.allocate(16 * 1024);
+    private ByteBuffer leaves = ByteBuffer.allocate(4 * 1024);
+    private long[] visible = new long[0]; // (id << 32) | índice en el frame, para ordenar por id
+
+    // estadísticas (las escribe solo el hilo de red)
+    private volatile int clientCount = 0;
+    private volatile long bytesSent = 0;
+    private volatile long broadcasts = 0;
+    private volatile long broadcastNanos = 0;
+    private volatile long maxBroadcastNanos = 0;
+    private volatile long skippedUpdates = 0;
+    private volatile long clientUpdates = 0; // STATEs enviados (uno por cliente y frame)
+    private volatile int maxClientCount = 0;
+
+    // un cliente conectado y lo que sabe del mundo (ordenado por id)
+    private static final class Client {
+        final SocketChannel channel;
+        final PlayerBall player;
+        final int playerId;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(256);
+        ByteBuffer out = ByteBuffer.allocate(16 * 1024); // pendiente de enviar en [0, position)
+        int viewWidth;
+        int viewHeight;
+        int hint = 0; // último índice de su bola en el frame
+        boolean dead;
+
+        int knownCount = 0;
+        int[] knownId = new int[0];
+        int[] knownQx = new int[0];
+        int[] knownQy = new int[0];
+        int[] knownFlags = new int[0];
+        // los siguientes se rellenan al mandar un STATE y se intercambian con los de arriba
+        int[] nextId = new int[0];
+        int[] nextQx = new int[0];
+        int[] nextQy = new int[0];
+        int[] nextFlags = new int[0];
+
+        Client(SocketChannel channel, PlayerBall player, int playerId) {
+            this.channel = channel;
+            this.player = player;
+            this.playerId = playerId;
+        }
+
+        void ensureNext(int n) {
+            if (nextId.length >= n) return;
+            int cap = Math.max(n, nextId.length * 2);
+            nextId = new int[cap];
+            nextQx = new int[cap];
+            nextQy = new int[cap];
+            nextFlags = new int[cap];
+        }
+
+        void swapKnown(int n) {
+            int[] t;
+            t = knownId; knownId = nextId; nextId = t;
+            t = knownQx; knownQx = nextQx; nextQx = t;
+            t = knownQy; knownQy = nextQy; nextQy = t;
+            t = knownFlags; knownFlags = nextFlags; nextFlags = t;
+            knownCount = n;
+        }
+    }
+
+    // escucha en host:port (port 0 = uno libre, ver getPort)
+    public GameServer(GameModel model, String host, int port) throws IOException {
+        this.model = model;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(host, port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this::loop, "net-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    // hilo de física, justo después de model.update()
+    public void onTick() {
+        if (!running || clientCount == 0) return;
+        model.copyFrame(back.data);
+        back.seq = ++sequence;
+        back = ready.getAndSet(back);
+        selector.wakeup();
+    }
+
+    private void loop() {
+        try {
+            while (running) {
+                selector.select(100);
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            Debug.log("Net", "No se pudo aceptar un cliente: {}", e.getMessage());
+                        }
+                        continue;
+                    }
+                    Client c = (Client) key.attachment();
+                    try {
+                        if (key.isReadable()) read(c);
+                        if (!c.dead && key.isWritable()) flush(c);
+                    } catch (IOException e) {
+                        c.dead = true;
+                    }
+                    if (c.dead) drop(c);
+                }
+                if (ready.get().seq > front.seq) {
+                    front = ready.getAndSet(front);
+                    broadcast(front.data);
+                }
+            }
+        } catch (IOException e) {
+            Debug.log("Net", "Servidor parado por error: {}", e.getMessage());
+        } finally {
+            for (int k = clients.size() - 1; k >= 0; k--) drop(clients.get(k));
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {
+                // ya estamos cerrando
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.socket().setTcpNoDelay(true);
+        PlayerBall pb = model.addRemotePlayer();
+        int id;
+        synchronized (model) {
+            id = pb.getId();
+        }
+        Client c = new Client(ch, pb, id);
+        c.key = ch.register(selector, SelectionKey.OP_READ, c);
+        clients.add(c);
+        clientCount = clients.size();
+        if (clientCount > maxClientCount) maxClientCount = clientCount;
+        int start = NetProtocol.beginMessage(c.out, NetProtocol.WELCOME);
+        c.out.putInt(id);
+        c.out.putInt(model.getWidth());
+        c.out.putInt(model.getHeight());
+        c.out.put((byte) NetProtocol.QUANT);
+        NetProtocol.endMessage(c.out, start);
+        try {
+            flush(c);
+        } catch (IOException e) {
+            drop(c);
+        }
+        Debug.log("Net", "Cliente conectado (bola {}, {} clientes)", id, clientCount);
+    }
+
+    private void read(Client c) throws IOException {
+        if (c.channel.read(c.in) < 0) {
+            c.dead = true;
+            return;
+        }
+        ByteBuffer in = c.in;
+        in.flip();
+        while (in.remaining() >= 4) {
+            int len = in.getInt(in.position());
+            if (len < 1 || len > MAX_CLIENT_MESSAGE) throw new IOException("Mensaje no válido (" + len + " bytes)");
+            if (in.remaining() < 4 + len) break;
+            in.getInt();
+            int end = in.position() + len;
+            byte type = in.get();
+            if (type == NetProtocol.HELLO && len >= 5) {
+                c.viewWidth = in.getShort() & 0xFFFF;
+                c.viewHeight = in.getShort() & 0xFFFF;
+            } else if (type == NetProtocol.INPUT && len >= 4) {
+                double dx = Math.max(-1.0, in.get() / 127.0);
+                double dy = Math.max(-1.0, in.get() / 127.0);
+                int buttons = in.get();
+                c.player.setDirectMovement(dx, dy);
+                c.player.setTurbo((buttons & 1) != 0);
+            }
+            in.position(end); // lo que no entendamos se salta
+        }
+        in.compact();
+    }
+
+    private void flush(Client c) throws IOException {
+        ByteBuffer out = c.out;
+        out.flip();
+        int written = c.channel.write(out);
+        out.compact();
+        bytesSent += written;
+        int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (c.key.interestOps() != ops) c.key.interestOps(ops);
+    }
+
+    private void drop(Client c) {
+        if (!clients.remove(c)) return;
+        clientCount = clients.size();
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException ignored) {
+            // ya estaba cerrado
+        }
+        model.removePlayer(c.player);
+        Debug.log("Net", "Cliente desconectado (bola {}, quedan {})", c.playerId, clientCount);
+    }
+
+    private void broadcast(SessionFrame f) {
+        long t0 = System.nanoTime();
+        buildGrid(f, model.getWidth(), model.getHeight());
+        for (int k = 0; k < clients.size(); k++) {
+            Client c = clients.get(k);
+            if (c.viewWidth == 0) continue; // todavía no mandó HELLO
+            if (c.out.position() > MAX_PENDING_BYTES) {
+                skippedUpdates++;
+                continue;
+            }
+            int p = findPlayer(c, f);
+            if (p < 0) continue;
+            writeState(c, f, p);
+            clientUpdates++;
+            try {
+                flush(c);
+            } catch (IOException e) {
+                c.dead = true;
+            }
+        }
+        for (int k = clients.size() - 1; k >= 0; k--) {
+            if (clients.get(k).dead) drop(clients.get(k));
+        }
+        long el = System.nanoTime() - t0;
+        broadcastNanos += el;
+        if (el > maxBroadcastNanos) maxBroadcastNanos = el;
+        broadcasts++;
+    }
+
+    private void buildGrid(SessionFrame f, int width, int height) {
+        int n = f.getCount();
+        cols = Math.max(1, (width + CELL - 1) / CELL);
+        rows = Math.max(1, (height + CELL - 1) / CELL);
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+            cellCursor = new int[cells];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        if (cellItems.length < n) cellItems = new int[Math.max(n, cellItems.length * 2)];
+        for (int i = 0; i < n; i++) cellStart[cellOf(f.getX(i), f.getY(i)) + 1]++;
+        for (int c = 0; c < cells; c++) cellStart[c + 1] += cellStart[c];
+        System.arraycopy(cellStart, 0, cellCursor, 0, cells);
+        for (int i = 0; i < n; i++) cellItems[cellCursor[cellOf(f.getX(i), f.getY(i))]++] = i;
+    }
+
+    private int cellOf(double x, double y) {
+        return clampRow(y) * cols + clampCol(x);
+    }
+
+    private int clampCol(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) (x / CELL)));
+    }
+
+    private int clampRow(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) (y / CELL)));
+    }
+
+    // índice de la bola del cliente en este frame (normalmente la misma que la vez anterior)
+    private static int findPlayer(Client c, SessionFrame f) {
+        int n = f.getCount();
+        if (c.hint < n && f.getId(c.hint) == c.playerId) return c.hint;
+        for (int i = 0; i < n; i++) {
+            if (f.getId(i) == c.playerId) {
+                c.hint = i;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int netFlags(SessionFrame f, int i) {
+        return (f.isInRoom(i) ? NetProtocol.FLAG_IN_ROOM : 0) | (f.isPlayer(i) ? NetProtocol.FLAG_PLAYER : 0);
+    }
+
+    // bolas en la vista del cliente, comparadas con las que ya conoce
+    private void writeState(Client c, SessionFrame f, int p) {
+        double cx = f.getX(p);
+        double cy = f.getY(p);
+        double halfW = c.viewWidth / 2.0;
+        double halfH = c.viewHeight / 2.0;
+        int c0 = clampCol(cx - halfW - Ball.MAX_RADIUS);
+        int c1 = clampCol(cx + halfW + Ball.MAX_RADIUS);
+        int r0 = clampRow(cy - halfH - Ball.MAX_RADIUS);
+        int r1 = clampRow(cy + halfH + Ball.MAX_RADIUS);
+        if (visible.length < f.getCount()) visible = new long[f.getCount()];
+        int nv = 0;
+        for (int r = r0; r <= r1; r++) {
+            for (int col = c0; col <= c1; col++) {
+                int cell = r * cols + col;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellItems[k];
+                    int rad = f.getRadius(i);
+                    if (Math.abs(f.getX(i) - cx) <= halfW + rad && Math.abs(f.getY(i) - cy) <= halfH + rad) {
+                        visible[nv++] = ((long) f.getId(i) << 32) | i;
+                    }
+                }
+            }
+        }
+        Arrays.sort(visible, 0, nv);
+
+        enters = room(enters, nv * NetProtocol.ENTER_MAX_BYTES);
+        updates = room(updates, nv * NetProtocol.UPDATE_MAX_BYTES);
+        leaves = room(leaves, c.knownCount * NetProtocol.LEAVE_MAX_BYTES);
+        enters.clear();
+        updates.clear();
+        leaves.clear();
+        c.ensureNext(nv);
+        int ne = 0, nu = 0, nl = 0;
+        int lastEnter = 0, lastUpdate = 0, lastLeave = 0;
+        int a = 0, b = 0, m = 0;
+        int known = c.knownCount;
+        while (a < known || b < nv) {
+            int oldId = a < known ? c.knownId[a] : Integer.MAX_VALUE;
+            int newId = b < nv ? (int) (visible[b] >>> 32) : Integer.MAX_VALUE;
+            if (oldId < newId) {
+                // sale de la vista
+                NetProtocol.putVarInt(leaves, oldId - lastLeave);
+                lastLeave = oldId;
+                nl++;
+                a++;
+                continue;
+            }
+            int i = (int) visible[b];
+            int qx = NetProtocol.quantize(f.getX(i));
+            int qy = NetProtocol.quantize(f.getY(i));
+            int flags = netFlags(f, i);
+            if (newId < oldId) {
+                // entra en la vista: todo
+                NetProtocol.putVarInt(enters, newId - lastEnter);
+                lastEnter = newId;
+                NetProtocol.putZigZag(enters, qx);
+                NetProtocol.putZigZag(enters, qy);
+                NetProtocol.putVarInt(enters, f.getRadius(i));
+                NetProtocol.putVarInt(enters, f.getVariantIndex(i));
+                int rgb = f.getRgb(i);
+                enters.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+                enters.put((byte) flags);
+                ne++;
+            } else {
+                // ya la conoce: solo si se movió o cambió de estado
+                int dx = qx - c.knownQx[a];
+                int dy = qy - c.knownQy[a];
+                boolean flagsChanged = flags != c.knownFlags[a];
+                if (dx != 0 || dy != 0 || flagsChanged) {
+                    NetProtocol.putVarInt(updates, ((newId - lastUpdate) << 1) | (flagsChanged ? 1 : 0));
+                    lastUpdate = newId;
+                    NetProtocol.putZigZag(updates, dx);
+                    NetProtocol.putZigZag(updates, dy);
+                    if (flagsChanged) updates.put((byte) flags);
+                    nu++;
+                }
+                a++;
+            }
+            c.nextId[m] = newId;
+            c.nextQx[m] = qx;
+            c.nextQy[m] = qy;
+            c.nextFlags[m] = flags;
+            m++;
+            b++;
+        }
+        c.swapKnown(m);
+
+        enters.flip();
+        updates.flip();
+        leaves.flip();
+        int need = NetProtocol.HEADER_BYTES + 8 + 15 + enters.remaining() + updates.remaining() + leaves.remaining();
+        if (c.out.remaining() < need) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(c.out.capacity() * 2, c.out.position() + need));
+            c.out.flip();
+            grown.put(c.out);
+            c.out = grown;
+        }
+        ByteBuffer out = c.out;
+        int start = NetProtocol.beginMessage(out, NetProtocol.STATE);
+        out.putLong(f.getTick());
+        NetProtocol.putVarInt(out, ne);
+        out.put(enters);
+        NetProtocol.putVarInt(out, nu);
+        out.put(updates);
+        NetProtocol.putVarInt(out, nl);
+        out.put(leaves);
+        NetProtocol.endMessage(out, start);
+    }
+
+    private static ByteBuffer room(ByteBuffer b, int need) {
+        return b.capacity() >= need ? b : ByteBuffer.allocate(Math.max(need, b.capacity() * 2));
+    }
+
+    // para el hilo de red, desconecta a todos (y borra sus bolas) y cierra el puerto
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getClientCount() { return clientCount; }
+    public int getMaxClientCount() { return maxClientCount; }
+    public long getClientUpdates() { return clientUpdates; }
+    public long getBytesSent() { return bytesSent; }
+    // frames repartidos y tiempo del hilo de red en repartirlos
+    public long getBroadcastCount() { return broadcasts; }
+    public long getBroadcastNanos() { return broadcastNanos; }
+    public long getMaxBroadcastNanos() { return maxBroadcastNanos; }
+    // envíos saltados porque el cliente no leía
+    public long getSkippedUpdates() { return skippedUpdates; }
+}
@@ -0,0 +1,327 @@
+/*
+ * LoadGenerator: cliente de carga sin ventana para GameServer
+ * - Abre muchas conexiones (una por jugador simulado) desde un solo hilo con Selector.
+ * - Cada jugador manda HELLO con su vista y cada cierto tiempo un INPUT con una dirección
+ *   al azar; decodifica todos los STATE (mantiene su copia del mundo visible) y cuenta
+ *   errores si algo no cuadra (una bola que se mueve sin haber entrado, etc.).
+ * - Al final imprime bytes por cliente y segundo, STATEs por cliente y segundo y bolas visibles.
+ * Uso (con el servidor ya arrancado, p. ej. HeadlessRunner --serve=7777):
+ *   java -cp out net.LoadGenerator --port=7777 --clients=300 --seconds=30 --view=800x600
+ */
+package net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public class LoadGenerator {
+    // un jugador simulado
+    private static final class Bot {
+        final SocketChannel channel;
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        final ByteBuffer out = ByteBuffer.allocate(256);
+        int playerId = -1;
+        long nextInput;
+        boolean closed;
+
+        // lo que sabe del mundo (ordenado por id)
+        int knownCount = 0;
+        int[] id = new int[0];
+        int[] qx = new int[0];
+        int[] qy = new int[0];
+        int[] tmpId = new int[0];
+        int[] tmpQx = new int[0];
+        int[] tmpQy = new int[0];
+
+        long bytes;
+        long states;
+        long visibleSum;
+        long errors;
+
+        Bot(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int n) {
+            if (tmpId.length >= n) return;
+            int cap = Math.max(n, tmpId.length * 2);
+            tmpId = new int[cap];
+            tmpQx = new int[cap];
+            tmpQy = new int[cap];
+        }
+
+        void swap(int n) {
+            int[] t;
+            t = id; id = tmpId; tmpId = t;
+            t = qx; qx = tmpQx; tmpQx = t;
+            t = qy; qy = tmpQy; tmpQy = t;
+            knownCount = n;
+        }
+    }
+
+    // listas de un STATE ya leídas (se reutilizan)
+    private static int[] enterId = new int[0], enterQx = new int[0], enterQy = new int[0];
+    private static int[] updId = new int[0], updDx = new int[0], updDy = new int[0];
+    private static int[] leaveId = new int[0];
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opts = parseArgs(args);
+        String host = opts.getOrDefault("host", "127.0.0.1");
+        int port = Integer.parseInt(opts.getOrDefault("port", "7777"));
+        int clients = Integer.parseInt(opts.getOrDefault("clients", "100"));
+        double seconds = Double.parseDouble(opts.getOrDefault("seconds", "30"));
+        String[] view = opts.getOrDefault("view", "800x600").toLowerCase(Locale.ROOT).split("x");
+        int viewW = Integer.parseInt(view[0]);
+        int viewH = Integer.parseInt(view[1]);
+        SplittableRandom rnd = new SplittableRandom(Long.parseLong(opts.getOrDefault("seed", "1")));
+
+        Selector selector = Selector.open();
+        List<Bot> bots = new ArrayList<>();
+        for (int k = 0; k < clients; k++) {
+            SocketChannel ch = SocketChannel.open();
+            ch.configureBlocking(false);
+            ch.socket().setTcpNoDelay(true);
+            Bot bot = new Bot(ch);
+            bots.add(bot);
+            if (ch.connect(new InetSocketAddress(host, port))) {
+                connected(bot, selector, viewW, viewH);
+            } else {
+                ch.register(selector, SelectionKey.OP_CONNECT, bot);
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d clientes contra %s:%d, vista %dx%d, %.0f s%n", clients, host, port, viewW, viewH, seconds);
+
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        while (System.nanoTime() < end) {
+            selector.select(50);
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                Bot bot = (Bot) key.attachment();
+                try {
+                    if (key.isConnectable()) {
+                        bot.channel.finishConnect();
+                        connected(bot, selector, viewW, viewH);
+                    } else if (key.isReadable()) {
+                        read(bot);
+                    }
+                } catch (IOException e) {
+                    key.cancel();
+                    close(bot);
+                }
+            }
+            // entradas al azar: cada jugador cambia de dirección cada 0.25-1 s
+            long now = System.nanoTime();
+            for (Bot bot : bots) {
+                if (bot.closed || bot.playerId < 0 || now < bot.nextInput) continue;
+                bot.nextInput = now + 250_000_000L + rnd.nextLong(750_000_000L);
+                int start0 = NetProtocol.beginMessage(bot.out, NetProtocol.INPUT);
+                bot.out.put((byte) (rnd.nextInt(255) - 127));
+                bot.out.put((byte) (rnd.nextInt(255) - 127));
+                bot.out.put((byte) (rnd.nextInt(8) == 0 ? 1 : 0));
+                NetProtocol.endMessage(bot.out, start0);
+                send(bot);
+            }
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+
+        long bytes = 0, states = 0, visible = 0, errors = 0;
+        int alive = 0;
+        for (Bot bot : bots) {
+            bytes += bot.bytes;
+            states += bot.states;
+            visible += bot.visibleSum;
+            errors += bot.errors;
+            if (!bot.closed && bot.playerId >= 0) alive++;
+            close(bot);
+        }
+        selector.close();
+        System.out.printf(Locale.ROOT, "Conectados al final: %d/%d%n", alive, clients);
+        System.out.printf(Locale.ROOT, "Recibido: %.1f MB, %.0f bytes/cliente/s, %.1f STATE/cliente/s%n",
+                bytes / 1e6, bytes / secs / clients, states / secs / clients);
+        System.out.printf(Locale.ROOT, "Bolas visibles por STATE: %.1f, bytes por STATE: %.1f, errores de decodificación: %d%n",
+                states == 0 ? 0.0 : (double) visible / states, states == 0 ? 0.0 : (double) bytes / states, errors);
+    }
+
+    private static void connected(Bot bot, Selector selector, int viewW, int viewH) throws IOException {
+        bot.channel.register(selector, SelectionKey.OP_READ, bot);
+        int start = NetProtocol.beginMessage(bot.out, NetProtocol.HELLO);
+        bot.out.putShort((short) viewW);
+        bot.out.putShort((short) viewH);
+        NetProtocol.endMessage(bot.out, start);
+        send(bot);
+    }
+
+    // los mensajes del cliente son pocos bytes: si el socket no los acepta enteros, se esperan
+    private static void send(Bot bot) {
+        bot.out.flip();
+        try {
+            while (bot.out.hasRemaining()) {
+                if (bot.channel.write(bot.out) == 0) Thread.onSpinWait();
+            }
+        } catch (IOException e) {
+            close(bot);
+        }
+        bot.out.clear();
+    }
+
+    private static void close(Bot bot) {
+        bot.closed = true;
+        try {
+            bot.channel.close();
+        } catch (IOException ignored) {
+            // da igual
+        }
+    }
+
+    private static void read(Bot bot) throws IOException {
+        int r = bot.channel.read(bot.in);
+        if (r < 0) throw new IOException("El servidor cerró la conexión");
+        bot.bytes += r;
+        ByteBuffer in = bot.in;
+        in.flip();
+        while (in.remaining() >= 4) {
+            int len = in.getInt(in.position());
+            if (len < 1 || len > NetProtocol.MAX_MESSAGE_BYTES) throw new IOException("Mensaje no válido");
+            if (in.remaining() < 4 + len) {
+                if (4 + len > in.capacity()) {
+                    // no cabe: agrandamos el buffer
+                    ByteBuffer grown = ByteBuffer.allocate(4 + len);
+                    grown.put(in);
+                    bot.in = grown;
+                    return;
+                }
+                break;
+            }
+            in.getInt();
+            int endPos = in.position() + len;
+            byte type = in.get();
+            if (type == NetProtocol.WELCOME) {
+                bot.playerId = in.getInt();
+            } else if (type == NetProtocol.STATE) {
+                readState(bot, in);
+            }
+            in.position(endPos);
+        }
+        in.compact();
+    }
+
+    private static void readState(Bot bot, ByteBuffer in) {
+        in.getLong(); // tick
+        int ne = NetProtocol.getVarInt(in);
+        if (enterId.length < ne) {
+            enterId = new int[ne];
+            enterQx = new int[ne];
+            enterQy = new int[ne];
+        }
+        int last = 0;
+        for (int k = 0; k < ne; k++) {
+            last += NetProtocol.getVarInt(in);
+            enterId[k] = last;
+            enterQx[k] = NetProtocol.getZigZag(in);
+            enterQy[k] = NetProtocol.getZigZag(in);
+            NetProtocol.getVarInt(in); // radio
+            NetProtocol.getVarInt(in); // variante
+            in.position(in.position() + 3 + 1); // rgb + flags
+        }
+        int nu = NetProtocol.getVarInt(in);
+        if (updId.length < nu) {
+            updId = new int[nu];
+            updDx = new int[nu];
+            updDy = new int[nu];
+        }
+        last = 0;
+        for (int k = 0; k < nu; k++) {
+            int v = NetProtocol.getVarInt(in);
+            last += v >>> 1;
+            updId[k] = last;
+            updDx[k] = NetProtocol.getZigZag(in);
+            updDy[k] = NetProtocol.getZigZag(in);
+            if ((v & 1) != 0) in.get(); // flags
+        }
+        int nl = NetProtocol.getVarInt(in);
+        if (leaveId.length < nl) leaveId = new int[nl];
+        last = 0;
+        for (int k = 0; k < nl; k++) {
+            last += NetProtocol.getVarInt(in);
+            leaveId[k] = last;
+        }
+
+        // nuevo estado = (conocidas - salen, con sus movimientos) + entran, todo por id
+        bot.ensure(bot.knownCount + ne);
+        int m = 0, u = 0, l = 0, e = 0;
+        for (int a = 0; a < bot.knownCount; a++) {
+            int id = bot.id[a];
+            if (l < nl && leaveId[l] == id) {
+                l++;
+                continue;
+            }
+            int x = bot.qx[a], y = bot.qy[a];
+            if (u < nu && updId[u] == id) {
+                x += updDx[u];
+                y += updDy[u];
+                u++;
+            }
+            while (e < ne && enterId[e] < id) {
+                bot.tmpId[m] = enterId[e];
+                bot.tmpQx[m] = enterQx[e];
+                bot.tmpQy[m] = enterQy[e];
+                m++;
+                e++;
+            }
+            if (e < ne && enterId[e] == id) {
+                bot.errors++; // entra una que ya conocía
+                e++;
+            }
+            bot.tmpId[m] = id;
+            bot.tmpQx[m] = x;
+            bot.tmpQy[m] = y;
+            m++;
+        }
+        for (; e < ne; e++, m++) {
+            bot.tmpId[m] = enterId[e];
+            bot.tmpQx[m] = enterQx[e];
+            bot.tmpQy[m] = enterQy[e];
+        }
+        // movimientos o salidas de bolas que no conocía
+        if (u != nu || l != nl) bot.errors++;
+        bot.swap(m);
+        bot.states++;
+        bot.visibleSum += m;
+        // su propia bola siempre está en su vista
+        if (Arrays.binarySearch(bot.id, 0, m, bot.playerId) < 0) bot.errors++;
+    }
+
+    // --clave=valor (o --clave valor)
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (!a.startsWith("--")) continue;
+            String key = a.substring(2);
+            String value = "true";
+            int eq = key.indexOf('=');
+            if (eq >= 0) {
+                value = key.substring(eq + 1);
+                key = key.substring(0, eq);
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                value = args[++i];
+            }
+            map.put(key.toLowerCase(Locale.ROOT), value);
+        }
+        return map;
+    }
+}
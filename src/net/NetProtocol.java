@@ -0,0 +1,86 @@
+/*
+ * NetProtocol: mensajes entre GameServer y sus clientes (TCP, big-endian)
+ *
+ * Cada mensaje: longitud (int, sin contarse a sí misma), tipo (byte), contenido.
+ *
+ * Cliente -> servidor
+ *   HELLO:   ancho y alto de su vista (short, short). Se puede repetir para cambiarla.
+ *   INPUT:   dirección dx, dy (byte, -127..127) y botones (byte, bit 0 = turbo).
+ * Servidor -> cliente
+ *   WELCOME: id de su bola (int), ancho y alto del mundo (int, int), QUANT (byte).
+ *   STATE:   tick (varint) y tres listas, cada una con su número de entradas (varint) delante
+ *            y los ids en orden creciente (cada id como diferencia con el anterior, varint):
+ *            - entran en la vista: id, x, y (zigzag, en 1/QUANT px), radio, variante (varint),
+ *              rgb (3 bytes), flags (byte)
+ *            - se mueven: (diferencia de id << 1 | cambian flags), dx, dy (zigzag, respecto a lo
+ *              último que se le mandó a ese cliente) y flags (byte) si cambian
+ *            - salen de la vista: id
+ */
+package net;
+
+import java.nio.ByteBuffer;
+
+public final class NetProtocol {
+    public static final byte HELLO = 1;
+    public static final byte INPUT = 2;
+    public static final byte WELCOME = 10;
+    public static final byte STATE = 11;
+
+    // cabecera de cada mensaje: longitud + tipo
+    public static final int HEADER_BYTES = 4 + 1;
+    // mensajes más largos se consideran basura y se corta la conexión
+    public static final int MAX_MESSAGE_BYTES = 16 << 20;
+
+    // posiciones en 1/QUANT px (1/4 px basta para dibujar)
+    public static final int QUANT = 4;
+
+    // flags de cada bola en STATE
+    public static final int FLAG_IN_ROOM = 1;
+    public static final int FLAG_PLAYER = 2;
+
+    // peor caso de bytes por bola en cada lista
+    static final int ENTER_MAX_BYTES = 5 + 5 + 5 + 5 + 5 + 3 + 1;
+    static final int UPDATE_MAX_BYTES = 5 + 5 + 5 + 1;
+    static final int LEAVE_MAX_BYTES = 5;
+
+    private NetProtocol() { }
+
+    public static int quantize(double v) { return (int) Math.round(v * QUANT); }
+
+    public static void putVarInt(ByteBuffer b, int v) {
+        while ((v & ~0x7F) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    public static int getVarInt(ByteBuffer b) {
+        int v = 0;
+        int shift = 0;
+        while (true) {
+            byte x = b.get();
+            v |= (x & 0x7F) << shift;
+            if (x >= 0) return v;
+            shift += 7;
+        }
+    }
+
+    public static void putZigZag(ByteBuffer b, int v) { putVarInt(b, (v << 1) ^ (v >> 31)); }
+    public static int getZigZag(ByteBuffer b) {
+        int v = getVarInt(b);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // empieza un mensaje: deja hueco para la longitud; devuelve dónde empieza (para endMessage)
+    public static int beginMessage(ByteBuffer b, byte type) {
+        int start = b.position();
+        b.putInt(0);
+        b.put(type);
+        return start;
+    }
+
+    public static void endMessage(ByteBuffer b, int start) {
+        b.putInt(start, b.position() - start - 4);
+    }
+}
@@ -1,27 +1,248 @@
 package util;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
-// Util de debug simple (comentarios cortos)
+// Util de debug (-Dgame.debug=true), sin frenar a quien llama:
+// - log(tag, "texto {} y {}", a, b): los {} se rellenan después, en el hilo "debug-log";
+//   quien llama solo apunta hora, hilo y argumentos en un anillo (sin locks ni Strings nuevos).
+// - Si el anillo está lleno el mensaje se pierde y se cuenta (getDropped); se avisa en la salida.
+// - Salida: stderr, o un fichero que rota con -Dgame.debug.file=juego.log
+//   (-Dgame.debug.maxBytes=10000000, -Dgame.debug.files=3 -> juego.log.1, juego.log.2...).
+// - Los argumentos se pasan a texto al escribir: pasar valores (números, Strings), no objetos
+//   que sigan cambiando. Si calcular un argumento cuesta, mirar antes isEnabled().
 public class Debug {
     private static final boolean ENABLED;
     private static final DateTimeFormatter TF = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final int MAX_ARGS = 4;
 
     static {
         String prop = System.getProperty("game.debug", "false");
         ENABLED = "true".equalsIgnoreCase(prop) || "1".equals(prop);
     }
 
+    // anillo de mensajes (varios escriben, uno lee): seq[k] dice de quién es la casilla k
+    // (== pos: libre para escribir la posición pos; == pos + 1: lista para leer)
+    private static final int CAPACITY = ENABLED ? capacityFromProperty() : 1;
+    private static final int MASK = CAPACITY - 1;
+    private static final AtomicLongArray seq = new AtomicLongArray(CAPACITY);
+    private static final long[] times = new long[CAPACITY];
+    private static final String[] threads = new String[CAPACITY];
+    private static final String[] tags = new String[CAPACITY];
+    private static final String[] messages = new String[CAPACITY];
+    private static final Object[] args = new Object[CAPACITY * MAX_ARGS];
+    private static final int[] argCounts = new int[CAPACITY];
+    private static final AtomicLong tail = new AtomicLong();
+    private static long head; // solo lo toca el hilo de salida
+    private static final LongAdder dropped = new LongAdder();
+
+    static {
+        for (int k = 0; k < CAPACITY; k++) seq.set(k, k);
+        if (ENABLED) {
+            Thread t = new Thread(Debug::drainLoop, "debug-log");
+            t.setDaemon(true);
+            t.start();
+            // lo que quede en el anillo al salir
+            Runtime.getRuntime().addShutdownHook(new Thread(Debug::flush, "debug-log-flush"));
+        }
+    }
+
     public static boolean isEnabled() { return ENABLED; }
 
-    // imprime mensaje de debug con hora y hebra
-    public static void log(String tag, String msg) {
+    // mensajes perdidos por anillo lleno
+    public static long getDropped() { return dropped.sum(); }
+
+    public static void log(String msg) { log("DBG", msg); }
+    public static void log(String tag, String msg) { put(tag, msg, 0, null, null, null, null); }
+    public static void log(String tag, String msg, Object a) { put(tag, msg, 1, a, null, null, null); }
+    public static void log(String tag, String msg, Object a, Object b) { put(tag, msg, 2, a, b, null, null); }
+    public static void log(String tag, String msg, Object a, Object b, Object c) { put(tag, msg, 3, a, b, c, null); }
+    public static void log(String tag, String msg, Object a, Object b, Object c, Object d) { put(tag, msg, 4, a, b, c, d); }
+
+    private static void put(String tag, String msg, int argc, Object a, Object b, Object c, Object d) {
         if (!ENABLED) return;
-        String time = LocalTime.now().format(TF);
-        String thread = Thread.currentThread().getName();
-        System.err.println("[" + time + "] [" + thread + "] [" + tag + "] " + msg);
+        long pos;
+        int k;
+        while (true) {
+            pos = tail.get();
+            k = (int) pos & MASK;
+            long s = seq.get(k);
+            if (s == pos) {
+                if (tail.compareAndSet(pos, pos + 1)) break;
+            } else if (s < pos) {
+                dropped.increment(); // lleno: el hilo de salida no da abasto
+                return;
+            }
+            // otro hilo se llevó esta posición: probamos con la siguiente
+        }
+        times[k] = System.currentTimeMillis();
+        threads[k] = Thread.currentThread().getName();
+        tags[k] = tag;
+        messages[k] = msg;
+        int base = k * MAX_ARGS;
+        args[base] = a;
+        args[base + 1] = b;
+        args[base + 2] = c;
+        args[base + 3] = d;
+        argCounts[k] = argc;
+        seq.set(k, pos + 1); // publicada (el hilo de salida la recoge en su siguiente vuelta)
     }
 
-    public static void log(String msg) { log("DBG", msg); }
+    // ---- hilo de salida ----
+
+    private static final StringBuilder line = new StringBuilder(256);
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static PrintStream err;
+    private static Writer file;
+    private static Path filePath;
+    private static long fileBytes;
+    private static long maxBytes;
+    private static int maxFiles;
+    private static long reportedDrops;
+
+    // cada 10 ms vacía el anillo (quien llama a log no despierta a nadie: no le cuesta nada)
+    private static void drainLoop() {
+        while (true) {
+            if (drain() == 0) {
+                flushOutput();
+                LockSupport.parkNanos(10_000_000L);
+            }
+        }
+    }
+
+    // escribe todo lo que haya; devuelve cuántos mensajes
+    private static synchronized int drain() {
+        if (err == null && file == null) openOutput();
+        int n = 0;
+        while (true) {
+            int k = (int) head & MASK;
+            if (seq.get(k) != head + 1) break;
+            format(k);
+            int base = k * MAX_ARGS;
+            for (int a = 0; a < MAX_ARGS; a++) args[base + a] = null; // no retener objetos
+            seq.set(k, head + CAPACITY); // libre para la siguiente vuelta
+            head++;
+            n++;
+        }
+        long drops = dropped.sum();
+        if (drops != reportedDrops) {
+            line.setLength(0);
+            line.append("[Debug] ").append(drops - reportedDrops).append(" mensajes perdidos (anillo lleno)");
+            write();
+            reportedDrops = drops;
+        }
+        return n;
+    }
+
+    private static void format(int k) {
+        StringBuilder sb = line;
+        sb.setLength(0);
+        sb.append('[');
+        TF.formatTo(LocalTime.ofInstant(Instant.ofEpochMilli(times[k]), ZONE), sb);
+        sb.append("] [").append(threads[k]).append("] [").append(tags[k]).append("] ");
+        String msg = messages[k];
+        int argc = argCounts[k];
+        int base = k * MAX_ARGS;
+        int used = 0;
+        int from = 0;
+        while (used < argc) {
+            int at = msg.indexOf("{}", from);
+            if (at < 0) break;
+            sb.append(msg, from, at).append(args[base + used++]);
+            from = at + 2;
+        }
+        sb.append(msg, from, msg.length());
+        write();
+    }
+
+    private static void openOutput() {
+        String f = System.getProperty("game.debug.file");
+        if (f != null && !f.isBlank()) {
+            filePath = Paths.get(f.trim());
+            maxBytes = Long.getLong("game.debug.maxBytes", 10_000_000L);
+            maxFiles = Math.max(1, Integer.getInteger("game.debug.files", 3));
+            try {
+                openFile();
+                return;
+            } catch (IOException e) {
+                System.err.println("[Debug] No se pudo abrir " + filePath + ": " + e.getMessage() + " (uso stderr)");
+                file = null;
+            }
+        }
+        err = System.err;
+    }
+
+    private static void openFile() throws IOException {
+        file = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(filePath);
+    }
+
+    private static void write() {
+        if (file == null) {
+            if (err != null) err.println(line);
+            return;
+        }
+        try {
+            file.append(line).append('\n');
+            fileBytes += line.length() + 1; // aproximado (ASCII casi siempre)
+            if (fileBytes >= maxBytes) roll();
+        } catch (IOException e) {
+            // si el fichero falla seguimos por stderr
+            System.err.println("[Debug] Error escribiendo " + filePath + ": " + e.getMessage() + " (uso stderr)");
+            file = null;
+            err = System.err;
+        }
+    }
+
+    // juego.log -> juego.log.1 -> juego.log.2 ... (el más viejo se borra)
+    private static void roll() throws IOException {
+        file.close();
+        String name = filePath.toString();
+        Files.deleteIfExists(Paths.get(name + "." + maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path from = Paths.get(name + "." + i);
+            if (Files.exists(from)) Files.move(from, Paths.get(name + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(filePath, Paths.get(name + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        openFile();
+    }
+
+    private static void flushOutput() {
+        try {
+            if (file != null) file.flush();
+            else if (err != null) err.flush();
+        } catch (IOException ignored) {
+            // se reintenta en el siguiente flush
+        }
+    }
+
+    // vacía el anillo ya (al salir)
+    public static void flush() {
+        if (!ENABLED) return;
+        synchronized (Debug.class) {
+            drain();
+            flushOutput();
+        }
+    }
+
+    private static int capacityFromProperty() {
+        int c = Math.max(64, Integer.getInteger("game.debug.buffer", 8192));
+        return Integer.highestOneBit(c - 1) << 1; // potencia de 2
+    }
 }
@@ -0,0 +1,86 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Eventos propios para Java Flight Recorder (para ver qué hacía el juego durante una pausa de GC).
+// - Vienen apagados: se encienden con el perfil juegobolas.jfc (ver README).
+// - Uso: e = new XEvent(); e.begin(); ...; if (e.shouldCommit()) { rellenar; e.commit(); }
+//   Sin grabación activa shouldCommit() es false y el JIT quita el objeto: casi no cuesta nada.
+public final class GameEvents {
+    private GameEvents() { }
+
+    @Name("juegobolas.Tick")
+    @Label("Tick de física")
+    @Category({"Juego Bolas", "Física"})
+    @Description("Un paso fijo de física (update + grabación + servidor)")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class TickEvent extends Event {
+        @Label("Tick")
+        public long tick;
+        @Label("Bolas")
+        public int balls;
+        @Label("Paso (ms)")
+        public double stepMs;
+    }
+
+    @Name("juegobolas.Collisions")
+    @Label("Colisiones")
+    @Category({"Juego Bolas", "Física"})
+    @Description("Pasada de colisiones de GameModel.handleCollisions")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class CollisionEvent extends Event {
+        @Label("Bolas")
+        public int balls;
+        @Label("Parejas comprobadas")
+        public long pairs;
+        @Label("Parejas que se tocan")
+        public int hits;
+        @Label("Fase amplia")
+        public String broadphase;
+        @Label("En paralelo")
+        public boolean parallel;
+    }
+
+    @Name("juegobolas.RoomTransition")
+    @Label("Entrada/salida de habitación")
+    @Category({"Juego Bolas", "Habitaciones"})
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class RoomEvent extends Event {
+        @Label("Bola")
+        public int ballId;
+        @Label("Entra")
+        public boolean entered;
+        @Label("Habitación x")
+        public int roomX;
+        @Label("Habitación y")
+        public int roomY;
+        @Label("Ocupación")
+        public int occupancy;
+        @Label("Capacidad")
+        public int capacity;
+    }
+
+    @Name("juegobolas.Paint")
+    @Label("Pintado")
+    @Category({"Juego Bolas", "Vista"})
+    @Description("GamePanel.paintComponent")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class PaintEvent extends Event {
+        @Label("Bolas")
+        public int balls;
+        @Label("Ancho")
+        public int width;
+        @Label("Alto")
+        public int height;
+    }
+}
@@ -0,0 +1,6 @@
+package util;
+
+// Vista JMX de un contador o valor suelto de Metrics
+public interface GaugeMXBean {
+    long getValue();
+}
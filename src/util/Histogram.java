@@ -0,0 +1,105 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histograma de tiempos (ns) sin objetos al registrar: cubos log-lineales (8 por potencia de 2,
+// error < 12.5%) con contadores atómicos. Los percentiles son del último intervalo completo
+// (Metrics.WINDOW_MS); así se ve el p99 de ahora y no el de toda la partida.
+public final class Histogram implements HistogramMXBean {
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    private final String name;
+
+    // intervalo en curso (lo escriben los hilos que registran)
+    private final AtomicLongArray current = new AtomicLongArray(BUCKETS);
+    private final AtomicLong currentCount = new AtomicLong();
+    private final AtomicLong currentSum = new AtomicLong();
+    private final AtomicLong currentMax = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicLong total = new AtomicLong();
+
+    // último intervalo completo (dos arrays que se alternan: rotar no crea objetos)
+    private final long[][] windows = {new long[BUCKETS], new long[BUCKETS]};
+    private volatile int published = 0;
+    private volatile long windowCount;
+    private volatile long windowSum;
+    private volatile long windowMax;
+
+    Histogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    // un valor en ns (negativos cuentan como 0)
+    public void record(long nanos) {
+        if (!Metrics.ENABLED) return;
+        long v = Math.max(0, nanos);
+        rotateIfDue();
+        current.incrementAndGet(bucket(v));
+        currentCount.incrementAndGet();
+        currentSum.addAndGet(v);
+        long m = currentMax.get();
+        while (v > m && !currentMax.compareAndSet(m, v)) m = currentMax.get();
+        total.incrementAndGet();
+    }
+
+    // cierra el intervalo si ya pasó; solo uno de los hilos lo hace
+    private void rotateIfDue() {
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        if (now - start < Metrics.WINDOW_MS * 1_000_000L) return;
+        if (!windowStart.compareAndSet(start, now)) return;
+        int next = 1 - published;
+        long[] w = windows[next];
+        for (int b = 0; b < BUCKETS; b++) w[b] = current.getAndSet(b, 0);
+        windowCount = currentCount.getAndSet(0);
+        windowSum = currentSum.getAndSet(0);
+        windowMax = currentMax.getAndSet(0);
+        published = next;
+    }
+
+    static int bucket(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+        return (exp - SUB_BITS + 1) * SUB + sub;
+    }
+
+    // valor representativo del cubo (el centro)
+    static long bucketValue(int b) {
+        if (b < SUB) return b;
+        int exp = b / SUB - 1 + SUB_BITS;
+        int sub = b % SUB;
+        long lower = (long) (SUB + sub) << (exp - SUB_BITS);
+        return lower + ((1L << (exp - SUB_BITS)) >> 1);
+    }
+
+    // percentil p (0..1) del último intervalo, en ns (0 si no hubo nada)
+    public long percentile(double p) {
+        long n = windowCount;
+        if (n == 0) return 0;
+        long[] w = windows[published];
+        long target = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += w[b];
+            if (seen >= target) return Math.min(bucketValue(b), windowMax);
+        }
+        return windowMax;
+    }
+
+    public long max() { return windowMax; }
+    public double mean() { long n = windowCount; return n == 0 ? 0 : (double) windowSum / n; }
+
+    @Override public long getTotalCount() { return total.get(); }
+    @Override public long getCount() { return windowCount; }
+    @Override public double getMeanMillis() { return mean() / 1e6; }
+    @Override public double getP50Millis() { return percentile(0.50) / 1e6; }
+    @Override public double getP90Millis() { return percentile(0.90) / 1e6; }
+    @Override public double getP99Millis() { return percentile(0.99) / 1e6; }
+    @Override public double getMaxMillis() { return windowMax / 1e6; }
+}
@@ -0,0 +1,12 @@
+package util;
+
+// Vista JMX de un Histogram (tiempos en ms; percentiles del último intervalo de Metrics.WINDOW_MS)
+public interface HistogramMXBean {
+    long getTotalCount();
+    long getCount();
+    double getMeanMillis();
+    double getP50Millis();
+    double getP90Millis();
+    double getP99Millis();
+    double getMaxMillis();
+}
@@ -0,0 +1,91 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Métricas del juego: histogramas de tiempos por fase y contadores, sin objetos al registrar.
+// - Se publican por JMX (jconsole / VisualVM -> MBeans -> juegobolas) y en el HUD (F3).
+// - -Dgame.metrics=false lo apaga (record() no hace nada y no se registra nada en JMX).
+public final class Metrics {
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("game.metrics", "true"));
+    // duración del intervalo de los percentiles (ms)
+    public static final long WINDOW_MS = 5000;
+
+    private static final String DOMAIN = "juegobolas";
+    private static final List<Histogram> HISTOGRAMS = Collections.synchronizedList(new ArrayList<>());
+
+    // fases del tick de física (GameModel.update)
+    public static final Histogram TICK = histogram("tick");
+    public static final Histogram INTEGRATE = histogram("tick.integrate");
+    public static final Histogram ROOMS = histogram("tick.rooms");
+    public static final Histogram COLLISIONS = histogram("tick.collisions");
+    // frame completo del bucle del controlador (pasos + foto), pintado y espera en la cola del EDT
+    public static final Histogram FRAME = histogram("frame");
+    public static final Histogram PAINT = histogram("paint");
+    public static final Histogram EDT_LAG = histogram("edt.lag");
+
+    // parejas de bolas que se tocaron (acumulado)
+    public static final LongAdder COLLISION_PAIRS = counter("collision.pairs");
+    // entradas en habitaciones (todas, acumulado)
+    public static final LongAdder ROOM_ENTRIES = counter("room.entries");
+
+    // cuándo se pidió el repintado pendiente (0 = ninguno)
+    private static final AtomicLong repaintRequested = new AtomicLong();
+
+    private Metrics() { }
+
+    public static Histogram histogram(String name) {
+        Histogram h = new Histogram(name);
+        HISTOGRAMS.add(h);
+        register("Histogram", name, h);
+        return h;
+    }
+
+    public static LongAdder counter(String name) {
+        LongAdder a = new LongAdder();
+        gauge(name, a::sum);
+        return a;
+    }
+
+    // valor que se calcula al leerlo (nº de bolas, entradas en habitaciones...)
+    public static void gauge(String name, LongSupplier value) {
+        register("Gauge", name, (GaugeMXBean) value::getAsLong);
+    }
+
+    public static List<Histogram> histograms() {
+        synchronized (HISTOGRAMS) {
+            return new ArrayList<>(HISTOGRAMS);
+        }
+    }
+
+    // retraso del EDT: desde que se pide el repintado hasta que empieza paintComponent
+    // (si ya había uno pendiente, cuenta desde el primero: Swing los junta)
+    public static void repaintRequested() {
+        if (ENABLED) repaintRequested.compareAndSet(0, System.nanoTime());
+    }
+
+    public static void repaintStarted() {
+        long t = repaintRequested.getAndSet(0);
+        if (t != 0) EDT_LAG.record(System.nanoTime() - t);
+    }
+
+    private static void register(String type, String name, Object bean) {
+        if (!ENABLED) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (server.isRegistered(on)) server.unregisterMBean(on); // el último que se registra gana
+            server.registerMBean(bean, on);
+        } catch (JMException | RuntimeException e) {
+            Debug.log("Metrics", "No se pudo publicar {} por JMX: {}", name, e.getMessage());
+        }
+    }
+}
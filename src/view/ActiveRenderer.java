@@ -0,0 +1,150 @@
+/*
+ * ActiveRenderer: modo de pintado activo de GamePanel (-Dgame.render=active)
+ * - Un Canvas con BufferStrategy de 2 buffers (page flipping si la tarjeta lo permite,
+ *   si no copia) y un hilo "render" que pinta y hace show() él solo, sin pasar por el EDT.
+ * - Ritmo: el refresco de la pantalla (60 Hz si no se sabe; -Dgame.render.fps lo fuerza).
+ *   Si un frame llega tarde más de un periodo, los frames que no dio tiempo a pintar se
+ *   cuentan como perdidos (métrica render.dropped) y se vuelve a coger el ritmo desde ahora.
+ * - El Canvas no coge el foco: las teclas siguen llegando a GamePanel.
+ */
+package view;
+
+import util.Debug;
+import util.Metrics;
+
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.DisplayMode;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.ImageCapabilities;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+final class ActiveRenderer {
+    private static final LongAdder RENDERED = Metrics.counter("render.frames");
+    private static final LongAdder DROPPED = Metrics.counter("render.dropped");
+
+    private final GamePanel panel;
+    private final Canvas canvas = new Canvas();
+    private volatile boolean running;
+    private Thread thread;
+
+    ActiveRenderer(GamePanel panel) {
+        this.panel = panel;
+        canvas.setFocusable(false);
+        canvas.setIgnoreRepaint(true); // lo pinta solo nuestro hilo
+    }
+
+    static boolean isRequested() {
+        return "active".equalsIgnoreCase(System.getProperty("game.render", "passive").trim());
+    }
+
+    Canvas getCanvas() { return canvas; }
+
+    synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::loop, "render");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    private void loop() {
+        long period = 1_000_000_000L / refreshRate();
+        Debug.log("Render", "Modo activo a {} Hz", 1_000_000_000L / period);
+        BufferStrategy strategy = null;
+        boolean kept = false; // el back buffer aún tiene el frame anterior: basta copiar lo sucio
+        long next = System.nanoTime();
+        while (running) {
+            int w = canvas.getWidth();
+            int h = canvas.getHeight();
+            if (!canvas.isDisplayable() || w <= 0 || h <= 0) {
+                // todavía no está en pantalla (o se ocultó)
+                strategy = null;
+                LockSupport.parkNanos(period);
+                next = System.nanoTime();
+                continue;
+            }
+            if (strategy == null) {
+                strategy = createStrategy();
+                kept = false;
+            }
+
+            // bucle típico de BufferStrategy: repetir si el contenido se pierde por el camino
+            do {
+                do {
+                    Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                    try {
+                        panel.renderFrame(g, w, h, kept);
+                    } finally {
+                        g.dispose();
+                    }
+                    kept = false;
+                } while (strategy.contentsRestored() && running);
+                strategy.show();
+            } while (strategy.contentsLost() && running);
+            // con page flipping el back buffer pasa a ser el frame de hace dos: entero otra vez
+            kept = keepsBackBuffer(strategy);
+            Toolkit.getDefaultToolkit().sync(); // en Linux/X11 si no, el frame puede quedarse en cola
+            RENDERED.increment();
+
+            // esperar al siguiente periodo (si ya vamos tarde, contar lo perdido)
+            next += period;
+            long now = System.nanoTime();
+            if (now - next > period) {
+                DROPPED.add((now - next) / period);
+                next = now;
+            } else {
+                while (running && (now = System.nanoTime()) < next) LockSupport.parkNanos(next - now);
+            }
+        }
+    }
+
+    // 2 buffers con page flipping; si no se puede, lo que dé el sistema (copia)
+    private BufferStrategy createStrategy() {
+        try {
+            canvas.createBufferStrategy(2, new BufferCapabilities(
+                    new ImageCapabilities(true), new ImageCapabilities(true),
+                    BufferCapabilities.FlipContents.UNDEFINED));
+            Debug.log("Render", "BufferStrategy con page flipping");
+        } catch (AWTException e) {
+            canvas.createBufferStrategy(2);
+            Debug.log("Render", "Sin page flipping: {}", e.getMessage());
+        }
+        return canvas.getBufferStrategy();
+    }
+
+    // copia (no page flipping) o flip que copia: el back buffer se queda como estaba
+    private static boolean keepsBackBuffer(BufferStrategy strategy) {
+        BufferCapabilities caps = strategy.getCapabilities();
+        return !caps.isPageFlipping() || caps.getFlipContents() == BufferCapabilities.FlipContents.COPIED;
+    }
+
+    private static int refreshRate() {
+        Integer forced = Integer.getInteger("game.render.fps");
+        if (forced != null && forced > 0) return forced;
+        if (!GraphicsEnvironment.isHeadless()) {
+            int hz = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDisplayMode().getRefreshRate();
+            if (hz != DisplayMode.REFRESH_RATE_UNKNOWN && hz > 0) return hz;
+        }
+        return 60;
+    }
+}
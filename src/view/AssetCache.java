@@ -0,0 +1,185 @@
+/*
+ * AssetCache: cache en disco de imágenes ya escaladas (fondo a tamaños de ventana, atlas de bolas)
+ * - Para que al arrancar no haya que decodificar el PNG grande ni escalarlo otra vez: cada
+ *   fichero se nombra con el hash (SHA-256) de los bytes de la imagen original, así si cambia
+ *   la imagen se usa otro nombre y el viejo acaba borrado por antigüedad.
+ * - Directorio: -Dgame.assets.cache (por defecto ~/.juegobolas/cache); "off" la desactiva.
+ *   Tamaño máximo: -Dgame.assets.cacheMaxMB (64); al pasarse se borran los menos usados.
+ * - Cualquier fallo (disco lleno, fichero a medias...) se trata como "no está": se vuelve a
+ *   escalar y ya.
+ *
+ * Formato (.img): MAGIC (long), versión, ancho, alto (int), relleno hasta 32 bytes y luego
+ * ancho * alto píxeles ARGB (int, little-endian) fila a fila.
+ */
+package view;
+
+import util.Debug;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class AssetCache {
+    static final long MAGIC = 0x424F4C4153494D47L; // "BOLASIMG"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    private static final Path DIR = directory();
+    private static final long MAX_BYTES = Long.getLong("game.assets.cacheMaxMB", 64) * 1024 * 1024;
+
+    private AssetCache() { }
+
+    public static boolean isEnabled() { return DIR != null; }
+
+    // hash de los bytes de una imagen original (hex, 32 caracteres bastan para un nombre)
+    public static String hash(byte[] data) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder sb = new StringBuilder(32);
+            for (int k = 0; k < 16; k++) sb.append(Character.forDigit((d[k] >> 4) & 0xF, 16)).append(Character.forDigit(d[k] & 0xF, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 está siempre
+        }
+    }
+
+    // null si no está (o está dañada); si está, se marca como usada ahora
+    public static BufferedImage load(String name) {
+        if (DIR == null) return null;
+        Path file = DIR.resolve(name + ".img");
+        if (!Files.isRegularFile(file)) return null;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES) return null;
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, head);
+            if (head.getLong(0) != MAGIC || head.getInt(8) != VERSION) return null;
+            int w = head.getInt(12);
+            int h = head.getInt(16);
+            if (w <= 0 || h <= 0 || size != HEADER_BYTES + 4L * w * h) return null;
+            BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            int[] px = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+            ByteBuffer body = ByteBuffer.allocate(4 * w * h).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(ch, body);
+            body.asIntBuffer().get(px);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return img;
+        } catch (IOException | RuntimeException e) {
+            Debug.log("Assets", "No se pudo leer {} de la cache: {}", name, e);
+            return null;
+        }
+    }
+
+    // las max más recientes cuyo nombre empieza por prefix (p. ej. todos los tamaños de un fondo)
+    public static List<BufferedImage> loadRecent(String prefix, int max) {
+        List<BufferedImage> out = new ArrayList<>();
+        if (DIR == null || !Files.isDirectory(DIR)) return out;
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(DIR, prefix + "*.img")) {
+            for (Path p : ds) found.add(p);
+        } catch (IOException e) {
+            return out;
+        }
+        found.sort((a, b) -> Long.compare(lastModified(b), lastModified(a)));
+        for (Path p : found) {
+            if (out.size() >= max) break;
+            String file = p.getFileName().toString();
+            BufferedImage img = load(file.substring(0, file.length() - 4));
+            if (img != null) out.add(img);
+        }
+        return out;
+    }
+
+    // guarda img (se escribe aparte y se renombra, así nunca queda un fichero a medias con el nombre bueno)
+    public static void save(String name, BufferedImage img) {
+        if (DIR == null) return;
+        int w = img.getWidth();
+        int h = img.getHeight();
+        try {
+            Files.createDirectories(DIR);
+            Path file = DIR.resolve(name + ".img");
+            Path tmp = DIR.resolve(name + ".tmp");
+            ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + 4 * w * h).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putLong(MAGIC).putInt(VERSION).putInt(w).putInt(h);
+            buf.position(HEADER_BYTES);
+            buf.asIntBuffer().put(argb(img));
+            buf.position(0);
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) ch.write(buf);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            prune();
+        } catch (IOException | RuntimeException e) {
+            Debug.log("Assets", "No se pudo guardar {} en la cache: {}", name, e);
+        }
+    }
+
+    private static int[] argb(BufferedImage img) {
+        if (img.getType() == BufferedImage.TYPE_INT_ARGB) {
+            return ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        }
+        return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+    }
+
+    // borra los menos usados hasta quedar por debajo de MAX_BYTES
+    private static void prune() throws IOException {
+        List<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(DIR, "*.img")) {
+            for (Path p : ds) {
+                files.add(p);
+                total += Files.size(p);
+            }
+        }
+        if (total <= MAX_BYTES) return;
+        files.sort((a, b) -> Long.compare(lastModified(a), lastModified(b)));
+        for (Path p : files) {
+            if (total <= MAX_BYTES) break;
+            long size = Files.size(p);
+            Files.deleteIfExists(p);
+            total -= size;
+        }
+    }
+
+    private static long lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (ch.read(buf) < 0) throw new IOException("Fichero cortado");
+        }
+        buf.flip();
+    }
+
+    private static Path directory() {
+        String dir = System.getProperty("game.assets.cache");
+        if (dir == null) return Paths.get(System.getProperty("user.home"), ".juegobolas", "cache");
+        if (dir.isBlank() || dir.trim().equalsIgnoreCase("off")) return null;
+        return Paths.get(dir.trim());
+    }
+}
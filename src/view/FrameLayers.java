@@ -0,0 +1,487 @@
+/*
+ * FrameLayers: capas del pintado por regiones sucias
+ * - "static": fondo + habitaciones (sin su texto, que cambia a menudo y va encima, ver
+ *   markRoomTexts). Solo se rehace al cambiar el tamaño, el fondo o alguna
+ *   habitación (sitio, tamaño, llena o no).
+ * - "frame": el último frame (sin HUD), que se conserva entre frames. Cada frame solo se restaura
+ *   desde static lo que tapaban las bolas del frame anterior y lo que van a tapar las de este
+ *   (en casillas de TILE px), y se pintan las bolas encima.
+ * - present copia a la pantalla solo eso (más la franja del HUD) y apunta qué repaint pedir
+ *   para el siguiente (repaintBounds): GamePanel solo pinta.
+ * Si lo sucio pasa de game.render.dirtyMax (fracción de la ventana, 0.5 por defecto) se
+ * restaura todo de una vez. -Dgame.render.dirty=false: siempre entero (como antes).
+ */
+package view;
+
+import model.RenderSnapshot;
+import util.Metrics;
+
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+final class FrameLayers {
+    static final int TILE = 32;
+    private static final boolean DIRTY = !"false".equalsIgnoreCase(System.getProperty("game.render.dirty", "true"));
+    private static final double MAX_DIRTY = parseFraction(System.getProperty("game.render.dirtyMax"), 0.5);
+    private static final LongAdder FULL_FRAMES = Metrics.counter("render.full");
+    private static final LongAdder DIRTY_FRAMES = Metrics.counter("render.dirty");
+
+    private BufferedImage staticLayer;
+    private BufferedImage frame;
+    private Graphics2D frameGraphics;
+    private int width, height, cols, rows;
+
+    // casillas tapadas en el frame anterior / en este
+    private boolean[] prevTiles = new boolean[0];
+    private boolean[] curTiles = new boolean[0];
+    private boolean fullNext = true;
+
+    // rectángulos sucios (x0, y0, x1, y1 en casillas), juntando casillas seguidas
+    private int[] rects = new int[256];
+    private int rectCount;
+    private int[] open = new int[0];     // rectángulos que acaban en la fila anterior
+    private int[] nextOpen = new int[0];
+    private boolean lastFull = true;     // el último beginFrame restauró todo (rects no vale)
+    // lo tapado en el último frame más una casilla alrededor, en píxeles (pack; -1: todo)
+    private long expected = -1;
+
+    // texto de las habitaciones con varias plazas: lo último pintado de cada una, para
+    // restaurar y repintar solo si cambia o lo tapa algo
+    private int[] roomTextOccupancy = new int[0];
+    private int[] roomTextQueue = new int[0];
+    private int[] roomTextWidth = new int[0];
+    private boolean[] roomTextRedraw = new boolean[0];
+
+    // pantalla (present): franja del HUD del frame anterior, lo que cambió y lo que quedó fuera
+    // del clip de Swing sin copiar (va en el próximo repaint)
+    private int lastHudBottom, lastHudRight;
+    private final Rectangle clip = new Rectangle();
+    private final Rectangle changed = new Rectangle();
+    private final Rectangle owed = new Rectangle();
+    // qué repaint pedir para el próximo frame (pack; -1: todo). Se lee desde cualquier hilo.
+    private volatile long nextRepaint = -1;
+
+    private final StaticKey staticKey = new StaticKey();
+
+    // Ajusta las imágenes al tamaño. Devuelve true si hay que volver a pintar la capa estática
+    // (tamaño nuevo, otro fondo u otra foto de las habitaciones).
+    boolean prepare(int w, int h, Image background, RenderSnapshot snap) {
+        boolean changed = false;
+        if (frame == null || w != width || h != height) {
+            if (frameGraphics != null) frameGraphics.dispose();
+            width = w;
+            height = h;
+            staticLayer = createImage(w, h);
+            frame = createImage(w, h);
+            frameGraphics = frame.createGraphics();
+            frameGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            cols = (w + TILE - 1) / TILE;
+            rows = (h + TILE - 1) / TILE;
+            prevTiles = new boolean[cols * rows];
+            curTiles = new boolean[cols * rows];
+            changed = true;
+        }
+        if (staticKey.changed(background, snap)) changed = true;
+        if (changed) fullNext = true;
+        Arrays.fill(curTiles, false);
+        return changed;
+    }
+
+    // para pintar la capa estática (quien la pide hace dispose)
+    Graphics2D staticGraphics() {
+        Graphics2D g = staticLayer.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        return g;
+    }
+
+    // true si algo de [x0, x1) x [y0, y1) se va a restaurar (marcado ahora o en el frame anterior)
+    boolean touches(int x0, int y0, int x1, int y1) {
+        if (x1 <= 0 || y1 <= 0 || x0 >= width || y0 >= height) return false;
+        int c0 = Math.max(0, x0) / TILE;
+        int c1 = (Math.min(width, x1) - 1) / TILE;
+        int r0 = Math.max(0, y0) / TILE;
+        int r1 = (Math.min(height, y1) - 1) / TILE;
+        for (int r = r0; r <= r1; r++) {
+            int row = r * cols;
+            for (int c = c0; c <= c1; c++) {
+                if (curTiles[row + c] || prevTiles[row + c]) return true;
+            }
+        }
+        return false;
+    }
+
+    // marca como tapado el rectángulo de píxeles [x0, x1) x [y0, y1)
+    void mark(int x0, int y0, int x1, int y1) {
+        if (x1 <= 0 || y1 <= 0 || x0 >= width || y0 >= height) return;
+        int c0 = Math.max(0, x0) / TILE;
+        int c1 = (Math.min(width, x1) - 1) / TILE;
+        int r0 = Math.max(0, y0) / TILE;
+        int r1 = (Math.min(height, y1) - 1) / TILE;
+        for (int r = r0; r <= r1; r++) {
+            int row = r * cols;
+            for (int c = c0; c <= c1; c++) curTiles[row + c] = true;
+        }
+    }
+
+    // Marca lo que van a tapar bolas y jugadores (con sus bordes, ver GamePanel.paintBalls y
+    // paintPlayers)
+    void markSprites(RenderSnapshot snap) {
+        for (int i = 0; i < snap.getCount(); i++) {
+            int r = snap.getRadius(i);
+            // bordes: 2 px + trazo 2 en las bolas, 3 px + trazo 3 en jugadores (+1 de antialiasing)
+            int m = snap.isPlayer(i) ? r + 5 : r + 4;
+            int cx = (int) Math.round(snap.getX(i));
+            int cy = (int) Math.round(snap.getY(i));
+            mark(cx - m, cy - m, cx + m + 1, cy + m + 1);
+        }
+        for (int k = 0; k < snap.getPlayerCount(); k++) {
+            if (!snap.isPlayerControlled(k)) continue;
+            // la línea de dirección sale r + 8 del centro
+            int i = snap.getPlayerIndex(k);
+            int m = snap.getRadius(i) + 10;
+            int cx = (int) Math.round(snap.getX(i));
+            int cy = (int) Math.round(snap.getY(i));
+            mark(cx - m, cy - m, cx + m + 1, cy + m + 1);
+        }
+    }
+
+    // Texto de habitaciones (después de markSprites): si cambió o se restaura algo debajo, se
+    // marca entero para restaurarlo y repintarlo (ver needsRoomText). text: para medirlo.
+    void markRoomTexts(RenderSnapshot snap, FontMetrics fm, HudText text) {
+        int rooms = snap.getRoomCount();
+        if (roomTextRedraw.length < rooms) {
+            roomTextOccupancy = Arrays.copyOf(roomTextOccupancy, rooms);
+            roomTextQueue = Arrays.copyOf(roomTextQueue, rooms);
+            roomTextWidth = Arrays.copyOf(roomTextWidth, rooms);
+            roomTextRedraw = new boolean[rooms];
+        }
+        Arrays.fill(roomTextRedraw, false);
+        // hasta que no cambie nada: marcar el texto de una puede tocar el de otra al lado
+        boolean again = true;
+        while (again) {
+            again = false;
+            for (int k = 0; k < rooms; k++) {
+                if (roomTextRedraw[k] || snap.getRoomCapacity(k) <= 1) continue;
+                int w = Math.max(roomTextWidth[k], text.roomText(snap, k).width(fm));
+                int x = snap.getRoomX(k) + RenderState.ROOM_TEXT_X, y = snap.getRoomY(k) + RenderState.ROOM_TEXT_Y;
+                int x0 = x - 1, y0 = y - fm.getAscent() - 1, x1 = x + w + 2, y1 = y + fm.getDescent() + 2;
+                if (snap.getRoomOccupancy(k) != roomTextOccupancy[k] || snap.getRoomQueueLength(k) != roomTextQueue[k]
+                        || touches(x0, y0, x1, y1)) {
+                    mark(x0, y0, x1, y1);
+                    roomTextRedraw[k] = true;
+                    again = true;
+                }
+            }
+        }
+    }
+
+    // después de beginFrame: hay que pintar el texto de la habitación k (tiene varias plazas)
+    boolean needsRoomText(RenderSnapshot snap, int k) {
+        return snap.getRoomCapacity(k) > 1 && (lastFull || roomTextRedraw[k]);
+    }
+
+    // el texto de k se pintó con este ancho
+    void roomTextPainted(RenderSnapshot snap, int k, int textWidth) {
+        roomTextOccupancy[k] = snap.getRoomOccupancy(k);
+        roomTextQueue[k] = snap.getRoomQueueLength(k);
+        roomTextWidth[k] = textWidth;
+    }
+
+    // Restaura desde la capa estática lo necesario y devuelve el Graphics del frame para pintar
+    // las bolas encima. Todo lo que se pinte tiene que estar dentro de lo marcado con mark().
+    Graphics2D beginFrame() {
+        boolean full = fullNext || !DIRTY;
+        fullNext = false;
+        int dirty = 0;
+        int c0 = cols, r0 = rows, c1 = -1, r1 = -1;
+        for (int t = 0; t < curTiles.length; t++) {
+            if (curTiles[t] || prevTiles[t]) dirty++;
+            if (curTiles[t]) {
+                int r = t / cols, c = t - r * cols;
+                c0 = Math.min(c0, c);
+                c1 = Math.max(c1, c);
+                r0 = Math.min(r0, r);
+                r1 = Math.max(r1, r);
+            }
+        }
+        full |= dirty > MAX_DIRTY * curTiles.length;
+        // el próximo frame limpia lo de este y las bolas se mueven menos de una casilla por frame
+        if (!DIRTY || dirty > MAX_DIRTY * curTiles.length) {
+            expected = -1;
+        } else if (c1 < 0) {
+            expected = -1; // nada que mirar: mejor entero (si aparece algo no se sabría dónde)
+        } else {
+            expected = pack(Math.max(0, c0 - 1) * TILE, Math.max(0, r0 - 1) * TILE,
+                    Math.min(width, (c1 + 2) * TILE), Math.min(height, (r1 + 2) * TILE));
+        }
+        lastFull = full;
+        if (full) {
+            frameGraphics.drawImage(staticLayer, 0, 0, null);
+            FULL_FRAMES.increment();
+        } else {
+            buildRects();
+            for (int k = 0; k < rectCount; k++) {
+                int x0 = rects[4 * k] * TILE;
+                int y0 = rects[4 * k + 1] * TILE;
+                int x1 = Math.min(width, rects[4 * k + 2] * TILE);
+                int y1 = Math.min(height, rects[4 * k + 3] * TILE);
+                frameGraphics.drawImage(staticLayer, x0, y0, x1, y1, x0, y0, x1, y1, null);
+            }
+            DIRTY_FRAMES.increment();
+        }
+        // lo tapado en este frame es lo que habrá que limpiar en el siguiente
+        boolean[] t = prevTiles;
+        prevTiles = curTiles;
+        curTiles = t;
+        return frameGraphics;
+    }
+
+    Image getFrame() { return frame; }
+
+    // el último beginFrame restauró todo (hay que volver a pintar todo lo que va encima)
+    boolean wasFull() { return lastFull; }
+
+    // Copia img (el frame de aquí, o el de RasterRenderer si whole) a g, la pantalla, sin el HUD.
+    // hudBottom/hudRight: franja del HUD en este frame, que se copia siempre (el texto cambia cada
+    // frame), junto con la del anterior por si ya no hay HUD o es más bajo.
+    // - screenKept (modo activo con un back buffer que conserva lo anterior): las regiones sucias.
+    // - si no (modo pasivo): el clip que puso Swing (el repaint pedido con repaintBounds). Lo que
+    //   cambió fuera de él (bolas muy rápidas, cambió una habitación...) no se pide desde aquí,
+    //   dentro de paint: se apunta y va en el próximo repaint.
+    // whole: img cambió entera (raster).
+    void present(Graphics2D g, Image img, boolean whole, boolean screenKept, int w, int h,
+                 int hudBottom, int hudRight) {
+        int band = Math.min(h, Math.max(hudBottom, lastHudBottom));
+        int bandRight = Math.min(w, Math.max(hudRight, lastHudRight));
+        lastHudBottom = hudBottom;
+        lastHudRight = hudRight;
+        if (band <= 0 || bandRight <= 0) band = bandRight = 0;
+
+        if (screenKept) {
+            if (whole) g.drawImage(img, 0, 0, null);
+            else blitDirty(g);
+            if (band > 0) g.drawImage(img, 0, 0, bandRight, band, 0, 0, bandRight, band, null);
+            owed.setBounds(0, 0, 0, 0);
+        } else {
+            clip.setBounds(0, 0, w, h);
+            g.getClipBounds(clip);
+            int x0 = Math.max(0, clip.x), y0 = Math.max(0, clip.y);
+            int x1 = Math.min(w, clip.x + clip.width), y1 = Math.min(h, clip.y + clip.height);
+            if (x1 > x0 && y1 > y0) g.drawImage(img, x0, y0, x1, y1, x0, y0, x1, y1, null);
+            // lo que se debía y ya entró en este clip está al día
+            if (!owed.isEmpty() && clip.contains(owed)) owed.setBounds(0, 0, 0, 0);
+            if (whole) changed.setBounds(0, 0, w, h);
+            else dirtyBounds(changed);
+            if (band > 0) {
+                // unión con la franja (changed puede estar vacío)
+                int cx1 = changed.isEmpty() ? bandRight : Math.max(bandRight, changed.x + changed.width);
+                int cy1 = changed.isEmpty() ? band : Math.max(band, changed.y + changed.height);
+                changed.setBounds(0, 0, cx1, cy1);
+            }
+            if (!changed.isEmpty() && !clip.contains(changed)) {
+                if (owed.isEmpty()) owed.setBounds(changed);
+                else owed.add(changed);
+            }
+        }
+
+        // próximo repaint: lo que seguramente cambie (lo tapado ahora más una casilla, ver
+        // beginFrame), la franja del HUD y lo que se debe
+        if (whole || expected < 0) {
+            nextRepaint = -1;
+            return;
+        }
+        int x0 = unpack(expected, 0), y0 = unpack(expected, 1);
+        int x1 = unpack(expected, 2), y1 = unpack(expected, 3);
+        if (band > 0) {
+            x0 = y0 = 0;
+            x1 = Math.max(x1, bandRight);
+            y1 = Math.max(y1, band);
+        }
+        if (!owed.isEmpty()) {
+            x0 = Math.max(0, Math.min(x0, owed.x));
+            y0 = Math.max(0, Math.min(y0, owed.y));
+            x1 = Math.min(w, Math.max(x1, owed.x + owed.width));
+            y1 = Math.min(h, Math.max(y1, owed.y + owed.height));
+        }
+        nextRepaint = pack(x0, y0, x1, y1);
+    }
+
+    // Qué repaint pedir para el próximo frame, antes de tener la foto nueva: x0, y0, x1, y1 de
+    // 16 bits juntos (ver unpack); -1 si todo. Se puede leer desde cualquier hilo.
+    long repaintBounds() { return nextRepaint; }
+
+    // Copia a g solo lo que cambió en el último beginFrame (todo si fue entero).
+    // Vale si g ya tenía el frame anterior.
+    private void blitDirty(Graphics2D g) {
+        if (lastFull) {
+            g.drawImage(frame, 0, 0, null);
+            return;
+        }
+        for (int k = 0; k < rectCount; k++) {
+            int x0 = rects[4 * k] * TILE;
+            int y0 = rects[4 * k + 1] * TILE;
+            int x1 = Math.min(width, rects[4 * k + 2] * TILE);
+            int y1 = Math.min(height, rects[4 * k + 3] * TILE);
+            g.drawImage(frame, x0, y0, x1, y1, x0, y0, x1, y1, null);
+        }
+    }
+
+    // caja que envuelve lo que cambió en el último beginFrame, en píxeles (vacía si nada)
+    private Rectangle dirtyBounds(Rectangle out) {
+        if (lastFull) {
+            out.setBounds(0, 0, width, height);
+            return out;
+        }
+        int c0 = cols, r0 = rows, c1 = 0, r1 = 0;
+        for (int k = 0; k < rectCount; k++) {
+            c0 = Math.min(c0, rects[4 * k]);
+            r0 = Math.min(r0, rects[4 * k + 1]);
+            c1 = Math.max(c1, rects[4 * k + 2]);
+            r1 = Math.max(r1, rects[4 * k + 3]);
+        }
+        if (rectCount == 0) {
+            out.setBounds(0, 0, 0, 0);
+        } else {
+            out.setBounds(c0 * TILE, r0 * TILE, Math.min(width, c1 * TILE) - c0 * TILE, Math.min(height, r1 * TILE) - r0 * TILE);
+        }
+        return out;
+    }
+
+    static long pack(int x0, int y0, int x1, int y1) {
+        return ((long) (x0 & 0xFFFF) << 48) | ((long) (y0 & 0xFFFF) << 32) | ((long) (x1 & 0xFFFF) << 16) | (y1 & 0xFFFF);
+    }
+
+    // i: 0 = x0, 1 = y0, 2 = x1, 3 = y1
+    static int unpack(long bounds, int i) {
+        return (int) (bounds >>> (48 - 16 * i)) & 0xFFFF;
+    }
+
+    // la capa estática quedó a medias (fondo aún sin cargar del todo): rehacerla
+    // en el siguiente frame
+    void retryStatic() { staticKey.reset(); }
+
+    // la próxima vez se restaura todo (el frame guardado ya no vale, p. ej. tras pintar en raster)
+    void invalidate() {
+        fullNext = true;
+        expected = -1;
+        nextRepaint = -1;
+    }
+
+    // Tramos seguidos de casillas sucias en cada fila; si un tramo es igual que uno que acababa
+    // en la fila de arriba, se alarga ese en vez de añadir otro (menos drawImage).
+    private void buildRects() {
+        rectCount = 0;
+        if (open.length < cols) {
+            open = new int[cols];
+            nextOpen = new int[cols];
+        }
+        int openCount = 0;
+        for (int r = 0; r < rows; r++) {
+            int row = r * cols;
+            int nextCount = 0;
+            int c = 0;
+            while (c < cols) {
+                if (!(curTiles[row + c] || prevTiles[row + c])) {
+                    c++;
+                    continue;
+                }
+                int c0 = c;
+                while (c < cols && (curTiles[row + c] || prevTiles[row + c])) c++;
+                int k = -1;
+                for (int j = 0; j < openCount; j++) {
+                    int o = open[j];
+                    if (rects[4 * o] == c0 && rects[4 * o + 2] == c) {
+                        k = o;
+                        break;
+                    }
+                }
+                if (k >= 0) {
+                    rects[4 * k + 3] = r + 1;
+                } else {
+                    k = add(c0, r, c, r + 1);
+                }
+                nextOpen[nextCount++] = k;
+            }
+            int[] t = open;
+            open = nextOpen;
+            nextOpen = t;
+            openCount = nextCount;
+        }
+    }
+
+    private int add(int c0, int r0, int c1, int r1) {
+        if (4 * rectCount + 4 > rects.length) rects = Arrays.copyOf(rects, rects.length * 2);
+        int k = 4 * rectCount;
+        rects[k] = c0;
+        rects[k + 1] = r0;
+        rects[k + 2] = c1;
+        rects[k + 3] = r1;
+        return rectCount++;
+    }
+
+    // opaca en el formato de la pantalla (o RGB normal sin pantalla)
+    private static BufferedImage createImage(int w, int h) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return gc.createCompatibleImage(w, h, Transparency.OPAQUE);
+        }
+        return new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static double parseFraction(String s, double def) {
+        if (s == null) return def;
+        try {
+            double v = Double.parseDouble(s.trim());
+            return v >= 0 ? v : def;
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    // Lo que había en una capa estática la última vez que se pintó: el fondo (la imagen escalada
+    // cambia al cambiar de tamaño o de fondo) y cada habitación. Ocupación y cola no: su texto
+    // no está en la capa (si no, con colas que cambian cada tick se rehacía casi cada frame).
+    static final class StaticKey {
+        private Image background;
+        private int[] rooms = new int[0];
+        private int roomsLen = -1;
+
+        // true si algo cambió desde la última llamada (y se queda con lo nuevo)
+        boolean changed(Image bg, RenderSnapshot snap) {
+            boolean changed = bg != background;
+            background = bg;
+            int n = snap.getRoomCount();
+            int len = n * 5;
+            if (rooms.length < len) rooms = new int[Math.max(len, rooms.length * 2)];
+            changed |= len != roomsLen;
+            for (int k = 0; k < n; k++) {
+                int o = k * 5;
+                changed |= set(o, snap.getRoomX(k));
+                changed |= set(o + 1, snap.getRoomY(k));
+                changed |= set(o + 2, snap.getRoomWidth(k));
+                changed |= set(o + 3, snap.getRoomHeight(k));
+                changed |= set(o + 4, snap.isRoomFull(k) ? 1 : 0);
+            }
+            roomsLen = len;
+            return changed;
+        }
+
+        void reset() { roomsLen = -1; }
+
+        private boolean set(int i, int v) {
+            if (rooms[i] == v) return false;
+            rooms[i] = v;
+            return true;
+        }
+    }
+}
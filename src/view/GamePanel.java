@@ -5,9 +5,12 @@
  */
 package view;
 
-import model.Ball;
 import model.GameModel;
 import model.PlayerBall;
+import model.RenderSnapshot;
+import util.GameEvents;
+import util.Histogram;
+import util.Metrics;
 
 import javax.swing.*;
 import java.awt.*;
@@ -17,16 +20,42 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
-import java.util.List;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.Set;
-import java.awt.image.BufferedImage;
 
 // Panel que pinta el juego
 public class GamePanel extends JPanel {
     private final GameModel model;
     // Guardamos las teclas presionadas para saber qué direccion quiere el jugador
     private final Set<Integer> pressedKeys = new HashSet<>();
+    // F3: tiempos de util.Metrics debajo del HUD de velocidad/turbo
+    private boolean showMetrics = false;
+
+    // para pintar sin crear objetos en cada frame (ver RenderState / HudText)
+    private final RenderState render = new RenderState();
+    private final HudText hud = new HudText();
+    private final OvalShape oval = new OvalShape();
+    private final Line2D.Double line = new Line2D.Double();
+    private final Rectangle2D.Double rect = new Rectangle2D.Double();
+    // capa estática + último frame, para repintar solo lo que se mueve
+    private final FrameLayers layers = new FrameLayers();
+    // pintado por software en paralelo para muchas bolas (F4 cambia entre Java2D y raster)
+    private final RasterRenderer raster = new RasterRenderer();
+    private volatile int backend = RasterRenderer.requestedBackend();
+    private boolean lastRaster = false;
+    private static final int HUD_BOTTOM = 40, HUD_RIGHT = 220; // "Vel"/"Turbo"
+    private static final int METRICS_BOTTOM = 88;              // + métricas (F3), ancho entero
+    private FontMetrics roomTextMetrics;
+
+    // modo pasivo: desde cuándo hay un repintado pedido (0 = ninguno)
+    private final AtomicLong repaintPendingSince = new AtomicLong();
+    private static final LongAdder COALESCED = Metrics.counter("repaint.coalesced");
+    // modo activo (-Dgame.render=active): Canvas con BufferStrategy y su propio hilo; null si no
+    private final ActiveRenderer activeRenderer;
 
     public GamePanel(GameModel model) {
         this.model = model;
@@ -50,6 +79,20 @@ public class GamePanel extends JPanel {
                 updatePlayerMovement();
             }
         });
+        // Modo activo: el Canvas tapa el panel, pero el foco (y las teclas) se quedan en el panel
+        if (ActiveRenderer.isRequested()) {
+            activeRenderer = new ActiveRenderer(this);
+            setLayout(new BorderLayout());
+            add(activeRenderer.getCanvas(), BorderLayout.CENTER);
+            activeRenderer.getCanvas().addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    requestFocusInWindow();
+                }
+            });
+        } else {
+            activeRenderer = null;
+        }
         // Pedimos foco para que cuando empiece la app ya podamos usar WASD
         requestFocusInWindow();
     }
@@ -120,6 +163,32 @@ public class GamePanel extends JPanel {
         reg.accept(KeyEvent.VK_RIGHT, "RIGHT");
         // Espacio
         reg.accept(KeyEvent.VK_SPACE, "SPACE");
+        // F3: mostrar/ocultar métricas
+        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0, false), "METRICS");
+        am.put("METRICS", new AbstractAction() {
+            @Override public void actionPerformed(java.awt.event.ActionEvent e) {
+                setShowMetrics(!showMetrics);
+            }
+        });
+        // F4: pintar con Java2D o con RasterRenderer (para comparar)
+        im.put(KeyStroke.getKeyStroke(KeyEvent.VK_F4, 0, false), "BACKEND");
+        am.put("BACKEND", new AbstractAction() {
+            @Override public void actionPerformed(java.awt.event.ActionEvent e) {
+                setRasterRendering(!lastRaster);
+            }
+        });
+    }
+
+    // mostrar/ocultar las métricas (F3)
+    void setShowMetrics(boolean on) {
+        showMetrics = on;
+        repaint();
+    }
+
+    // Java2D o raster (F4); deja de lado el modo auto de game.render.backend
+    void setRasterRendering(boolean on) {
+        backend = on ? RasterRenderer.RASTER : RasterRenderer.JAVA2D;
+        repaint();
     }
 
     // Calcula la dirección de movimiento del jugador según teclas
@@ -143,113 +212,326 @@ public class GamePanel extends JPanel {
         }
 
         for (PlayerBall pb : model.getPlayerBalls()) {
+            if (!pb.isControlled()) continue; // los de red los mueve su cliente
             pb.setDirectMovement(dx, dy);
             pb.setTurbo(turbo);
         }
     }
 
-    // Método principal de dibujo: se llama muchas veces por segundo
+    // Pide un frame. En modo pasivo como mucho queda uno pendiente: si el EDT va atrasado
+    // no se encolan más (Swing ya junta los repaint, pero así tampoco se llena la cola).
+    // En modo activo no hace nada: el hilo de render va a su ritmo.
+    public void requestFrame() {
+        if (activeRenderer != null) return;
+        long now = System.nanoTime();
+        long since = repaintPendingSince.get();
+        // si un repintado pedido no llega (ventana minimizada...) a los 250 ms se vuelve a pedir
+        if (since != 0 && now - since < 250_000_000L) {
+            COALESCED.increment();
+            return;
+        }
+        if (!repaintPendingSince.compareAndSet(since, now)) {
+            COALESCED.increment();
+            return;
+        }
+        Metrics.repaintRequested();
+        // se puede llamar desde cualquier hilo; solo lo que cambiará (si se sabe), no toda la ventana.
+        // Swing junta todos los repaint de un componente en una sola caja, así que basta con una.
+        long bounds = layers.repaintBounds();
+        if (bounds < 0) {
+            repaint();
+        } else {
+            int x0 = FrameLayers.unpack(bounds, 0), y0 = FrameLayers.unpack(bounds, 1);
+            repaint(x0, y0, FrameLayers.unpack(bounds, 2) - x0, FrameLayers.unpack(bounds, 3) - y0);
+        }
+    }
+
+    // modo activo: arranca / para el hilo de render (en modo pasivo no hacen nada)
+    public void startRendering() {
+        if (activeRenderer != null) activeRenderer.start();
+    }
+
+    public void stopRendering() {
+        if (activeRenderer != null) activeRenderer.stop();
+    }
+
+    public boolean isActiveRendering() { return activeRenderer != null; }
+
+    // Método principal de dibujo (modo pasivo): se llama muchas veces por segundo
     @Override
     protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+        if (activeRenderer != null) { // pinta el Canvas desde su hilo
+            super.paintComponent(g);
+            return;
+        }
+        // sin super.paintComponent: rellenaba el fondo con una copia de g (un Graphics nuevo en
+        // cada frame) y luego el frame lo tapa entero igualmente
+        repaintPendingSince.set(0);
+        Metrics.repaintStarted();
+        renderFrame((Graphics2D) g, getWidth(), getHeight(), false);
+    }
+
+    // Pinta un frame en g (tamaño width x height). Lo usan paintComponent (EDT) y el hilo
+    // del modo activo, nunca los dos a la vez: RenderState, HudText y las formas no se comparten.
+    // Fondo y habitaciones salen de la capa estática y las bolas se repintan solo donde se
+    // movieron (ver FrameLayers), o todas a mano con RasterRenderer; el HUD va encima, directo en g.
+    // A g solo se copia lo que cambió (FrameLayers.present; screenKept: modo activo con un back
+    // buffer que conserva lo anterior).
+    void renderFrame(Graphics2D g2, int width, int height, boolean screenKept) {
+        GameEvents.PaintEvent event = new GameEvents.PaintEvent();
+        event.begin();
+        long paintStart = System.nanoTime();
+
+        // Foto publicada por la física: no bloquea ni es bloqueada por el hilo del modelo
+        RenderSnapshot snap = model.getRenderSnapshot();
+
+        // 0-2) Fondo, habitaciones, bolas y jugadores, con Java2D o a mano en el int[]
+        int count = snap.getCount();
+        Image scaledBg = ImageManager.getScaledBackground(width, height); // null si no hay fondo
+        int mode = backend;
+        boolean useRaster = mode == RasterRenderer.RASTER
+                || (mode == RasterRenderer.AUTO && count >= RasterRenderer.AUTO_ABOVE);
+        if (useRaster) {
+            renderRaster(snap, scaledBg, width, height);
+        } else {
+            // el frame guardado de FrameLayers no sabe lo que pasó mientras se pintaba en raster
+            if (lastRaster) layers.invalidate();
+            renderLayers(snap, scaledBg, width, height);
+        }
+        lastRaster = useRaster;
+        Image frame = useRaster ? raster.getFrame() : layers.getFrame();
+
+        // franja del HUD de este frame
+        int hudBottom = 0, hudRight = 0;
+        for (int k = 0; k < snap.getPlayerCount(); k++) {
+            if (!snap.isPlayerControlled(k)) continue;
+            hudBottom = HUD_BOTTOM;
+            hudRight = HUD_RIGHT;
+        }
+        if (showMetrics) {
+            hudBottom = METRICS_BOTTOM;
+            hudRight = width;
+        }
+        layers.present(g2, frame, useRaster, screenKept, width, height, hudBottom, hudRight);
 
-        // Habilitar antialiasing para formas suaves
-        Graphics2D g2 = (Graphics2D) g;
+        // 3) HUD: velocidad y turbo en la esquina superior izquierda
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        HudText text = hud;
+        for (int k = 0; k < snap.getPlayerCount(); k++) {
+            if (!snap.isPlayerControlled(k)) continue;
+            g2.setFont(RenderState.HUD_FONT);
+            g2.setColor(RenderState.HUD_TEXT);
+            text.clear().append("Vel: ").append(snap.getPlayerSpeed(k), 2).append(" px/ms").draw(g2, 8, 18);
+            g2.drawString(snap.isPlayerTurbo(k) ? "Turbo: ON" : "Turbo: OFF", 8, 34);
+        }
+
+        // 4) Métricas (F3): p99 del último intervalo, en ms
+        if (showMetrics) paintMetrics(g2, snap);
+        Metrics.PAINT.record(System.nanoTime() - paintStart);
+        if (event.shouldCommit()) {
+            event.balls = count;
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+    // Java2D: capa estática y regiones sucias (FrameLayers)
+    private void renderLayers(RenderSnapshot snap, Image scaledBg, int width, int height) {
+        // 0) Capa estática: fondo + habitaciones, solo si cambió algo
+        if (layers.prepare(width, height, scaledBg, snap)) {
+            Graphics2D sg = layers.staticGraphics();
+            try {
+                if (!paintStatic(sg, snap, scaledBg, width, height)) layers.retryStatic();
+            } finally {
+                sg.dispose();
+            }
+        }
+
+        // 1) Marcar lo que van a tapar bolas, jugadores y el texto de habitaciones que cambie,
+        //    y restaurar lo sucio
+        layers.markSprites(snap);
+        FontMetrics fm = roomTextMetrics();
+        layers.markRoomTexts(snap, fm, hud);
+        Graphics2D fg = layers.beginFrame();
+
+        // 2) Bolas, jugadores y texto de habitaciones en el frame
+        paintBalls(fg, snap);
+        paintPlayers(fg, snap);
+        for (int k = 0; k < snap.getRoomCount(); k++) {
+            if (!layers.needsRoomText(snap, k)) continue;
+            paintRoomText(fg, snap, k);
+            layers.roomTextPainted(snap, k, hud.width(fm));
+        }
+    }
 
-        // 0) Pintar fondo si hay imagen cargada
-        BufferedImage bg = ImageManager.getBackground();
-        if (bg != null) {
-            // Usamos el fondo escalado en cache según tamaño del panel
-            Image scaledBg = ImageManager.getScaledBackground(getWidth(), getHeight());
-            g2.drawImage(scaledBg, 0, 0, this);
+    // con varias plazas: ocupación y cola en la esquina (deja el texto en hud)
+    private void paintRoomText(Graphics2D g2, RenderSnapshot snap, int k) {
+        g2.setFont(RenderState.HUD_FONT);
+        g2.setColor(RenderState.ROOM_TEXT);
+        hud.roomText(snap, k).draw(g2, snap.getRoomX(k) + RenderState.ROOM_TEXT_X, snap.getRoomY(k) + RenderState.ROOM_TEXT_Y);
+    }
+
+    private FontMetrics roomTextMetrics() {
+        if (roomTextMetrics == null) roomTextMetrics = getFontMetrics(RenderState.HUD_FONT);
+        return roomTextMetrics;
+    }
+
+    // raster: misma capa estática, bolas a mano en paralelo y jugadores con Java2D encima
+    private void renderRaster(RenderSnapshot snap, Image scaledBg, int width, int height) {
+        if (raster.prepare(width, height, scaledBg, snap)) {
+            Graphics2D sg = raster.staticGraphics();
+            try {
+                if (!paintStatic(sg, snap, scaledBg, width, height)) raster.retryStatic();
+            } finally {
+                sg.dispose();
+            }
+        }
+        Graphics2D fg = raster.render(snap);
+        paintPlayers(fg, snap);
+        // el frame sale entero de la capa estática cada vez: el texto, siempre
+        for (int k = 0; k < snap.getRoomCount(); k++) {
+            if (snap.getRoomCapacity(k) > 1) paintRoomText(fg, snap, k);
+        }
+    }
+
+    // Fondo (escalado en cache según tamaño del panel, o blanco) y habitaciones. Devuelve false
+    // si el fondo aún no estaba cargado del todo.
+    private boolean paintStatic(Graphics2D g2, RenderSnapshot snap, Image scaledBg, int width, int height) {
+        boolean complete = true;
+        if (scaledBg != null) {
+            if (scaledBg.getWidth(null) == width && scaledBg.getHeight(null) == height) {
+                complete = g2.drawImage(scaledBg, 0, 0, this);
+            } else {
+                // aún no está a este tamaño (p. ej. redimensionando): el más cercano, estirado
+                g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                complete = g2.drawImage(scaledBg, 0, 0, width, height, this);
+            }
         } else {
             // Fondo por defecto blanco (ya lo pone setBackground), pero pintamos por si acaso
             g2.setColor(Color.WHITE);
-            g2.fillRect(0, 0, getWidth(), getHeight());
-        }
-
-        // 1) Dibujar la habitación (rectángulo en el centro)
-        java.awt.Rectangle roomBounds = model.getRoom().getBounds();
-        // Fondo gris claro para distinguirla (si hay fondo, le ponemos un marco)
-        g2.setColor(new Color(200, 200, 200, 180));
-        g2.fillRect(roomBounds.x, roomBounds.y, roomBounds.width, roomBounds.height);
-        g2.setColor(new Color(60, 60, 60));
-        g2.drawRect(roomBounds.x, roomBounds.y, roomBounds.width, roomBounds.height);
-
-        // Si está ocupada, pintamos encima con un color rojizo para que se vea
-        if (model.getRoom().isOccupied()) {
-            g2.setColor(new Color(255, 200, 200, 180));
-            g2.fillRect(roomBounds.x, roomBounds.y, roomBounds.width, roomBounds.height);
-            g2.setColor(Color.RED);
-            g2.drawRect(roomBounds.x, roomBounds.y, roomBounds.width, roomBounds.height);
-        }
-
-        // 2) Dibujar las bolas normales (si hay texturas, las usamos) else círculos simples
-        List<Ball> balls = model.getSnapshot();
-        for (Ball b : balls) {
-            int r = b.getRadius();
-            int drawX = b.getX() - r;
-            int drawY = b.getY() - r;
-
-            // Intentamos obtener una textura para esta bola según su variante y radio
-            Image tex = null;
-            if (view.ImageManager.getBallTexturesCount() > 0) {
-                tex = view.ImageManager.getBallTextureForRadiusVariant(r, b.getVariantIndex());
+            rect.setRect(0, 0, width, height);
+            g2.fill(rect);
+        }
+
+        // Dibujar las habitaciones (la central y las que se hayan añadido); su texto va aparte
+        for (int k = 0; k < snap.getRoomCount(); k++) {
+            rect.setRect(snap.getRoomX(k), snap.getRoomY(k), snap.getRoomWidth(k), snap.getRoomHeight(k));
+            // Fondo gris claro para distinguirla (si hay fondo, le ponemos un marco)
+            // Si está llena, pintamos encima con un color rojizo para que se vea
+            boolean full = snap.isRoomFull(k);
+            g2.setColor(RenderState.ROOM_FILL);
+            g2.fill(rect);
+            if (full) {
+                g2.setColor(RenderState.ROOM_FULL_FILL);
+                g2.fill(rect);
             }
+            g2.setColor(full ? RenderState.ROOM_FULL_BORDER : RenderState.ROOM_BORDER);
+            g2.draw(rect);
+        }
+        return complete;
+    }
 
-            if (tex != null) {
-                // Si hay textura, la dibujamos centrada en la posición
-                g2.drawImage(tex, drawX, drawY, r * 2, r * 2, this);
-            } else {
-                // Dibujamos siempre como círculo de color
-                g2.setColor(b.getColor());
-                g2.fillOval(drawX, drawY, r * 2, r * 2);
+    // Bolas normales (si hay texturas, las usamos) else círculos simples
+    private void paintBalls(Graphics2D g2, RenderSnapshot snap) {
+        int count = snap.getCount();
+        int inRoom = 0;
+        Color last = null;
+        for (int i = 0; i < count; i++) {
+            if (snap.isPlayer(i)) continue; // los jugadores van después, encima
+            if (snap.isInRoom(i)) inRoom++;
+            int r = snap.getRadius(i);
+            int drawX = (int) Math.round(snap.getX(i)) - r;
+            int drawY = (int) Math.round(snap.getY(i)) - r;
+
+            // Si hay textura para esta bola (según su variante y radio), la pintamos desde el atlas
+            if (!ImageManager.drawBallTexture(g2, r, snap.getVariantIndex(i), drawX, drawY, this)) {
+                // Dibujamos siempre como círculo de color (Color de la tabla, no uno nuevo)
+                Color c = render.colorFor(snap.getRgb(i));
+                if (c != last) {
+                    g2.setColor(c);
+                    last = c;
+                }
+                oval.setFrame(drawX, drawY, r * 2, r * 2);
+                g2.fill(oval);
             }
-            // Si está en la habitación, lo marcamos con borde
-            if (b.isInRoom()) {
-                g2.setColor(Color.BLACK);
-                g2.setStroke(new BasicStroke(2));
-                g2.drawOval(drawX - 2, drawY - 2, r * 2 + 4, r * 2 + 4);
+        }
+        // Bordes de las que están en la habitación: todos de una vez (un solo color y grosor)
+        if (inRoom > 0) {
+            g2.setColor(RenderState.IN_ROOM_OUTLINE);
+            g2.setStroke(RenderState.STROKE_2);
+            for (int i = 0; i < count; i++) {
+                if (snap.isPlayer(i) || !snap.isInRoom(i)) continue;
+                int r = snap.getRadius(i);
+                oval.setFrame((int) Math.round(snap.getX(i)) - r - 2, (int) Math.round(snap.getY(i)) - r - 2, r * 2 + 4, r * 2 + 4);
+                g2.draw(oval);
             }
         }
+    }
 
-        // 3) Dibujar las bolas-jugador también como círculos simples
-        List<PlayerBall> playerBalls = model.getPlayerBalls();
-        for (PlayerBall p : playerBalls) {
-            int r = p.getRadius();
-            int drawX = p.getX() - r;
-            int drawY = p.getY() - r;
+    // Bolas-jugador: círculos simples, encima de las demás
+    private void paintPlayers(Graphics2D g2, RenderSnapshot snap) {
+        for (int k = 0; k < snap.getPlayerCount(); k++) {
+            int i = snap.getPlayerIndex(k);
+            int r = snap.getRadius(i);
+            int cx = (int) Math.round(snap.getX(i));
+            int cy = (int) Math.round(snap.getY(i));
+            int drawX = cx - r;
+            int drawY = cy - r;
 
             // Si es la bola controlada, dibujamos un contorno amarillo simple
-            if (p.isControlled()) {
-                g2.setColor(new Color(255, 220, 0)); // amarillo
-                g2.setStroke(new BasicStroke(3));
-                g2.drawOval(drawX - 3, drawY - 3, r * 2 + 6, r * 2 + 6);
+            if (snap.isPlayerControlled(k)) {
+                g2.setColor(RenderState.PLAYER_OUTLINE); // amarillo
+                g2.setStroke(RenderState.STROKE_3);
+                oval.setFrame(drawX - 3, drawY - 3, r * 2 + 6, r * 2 + 6);
+                g2.draw(oval);
                 // Indicador de dirección: línea desde el centro hacia la punta según ángulo
-                double ang = p.getAngle();
+                double ang = snap.getPlayerAngle(k);
                 int len = r + 8;
-                int ix = p.getX() + (int) Math.round(Math.cos(ang) * len);
-                int iy = p.getY() + (int) Math.round(Math.sin(ang) * len);
-                g2.setColor(new Color(255, 200, 0));
-                g2.setStroke(new BasicStroke(2));
-                g2.drawLine(p.getX(), p.getY(), ix, iy);
-
-                // HUD: velocidad y turbo en la esquina superior izquierda
-                double speed = Math.sqrt(p.getVx() * p.getVx() + p.getVy() * p.getVy());
-                g2.setFont(new Font("SansSerif", Font.PLAIN, 12));
-                g2.setColor(new Color(30, 30, 30));
-                g2.drawString(String.format("Vel: %.2f px/ms", speed), 8, 18);
-                g2.drawString("Turbo: " + (p.isTurbo() ? "ON" : "OFF"), 8, 34);
+                int ix = cx + (int) Math.round(Math.cos(ang) * len);
+                int iy = cy + (int) Math.round(Math.sin(ang) * len);
+                g2.setColor(RenderState.PLAYER_DIRECTION);
+                g2.setStroke(RenderState.STROKE_2);
+                line.setLine(cx, cy, ix, iy);
+                g2.draw(line);
             }
 
-            g2.setColor(p.getColor());
-            g2.fillOval(drawX, drawY, r * 2, r * 2);
-            if (p.isInRoom()) {
-                g2.setColor(Color.BLACK);
-                g2.setStroke(new BasicStroke(3));
-                g2.drawOval(drawX - 3, drawY - 3, r * 2 + 6, r * 2 + 6);
+            g2.setColor(render.colorFor(snap.getRgb(i)));
+            oval.setFrame(drawX, drawY, r * 2, r * 2);
+            g2.fill(oval);
+            if (snap.isInRoom(i)) {
+                g2.setColor(RenderState.IN_ROOM_OUTLINE);
+                g2.setStroke(RenderState.STROKE_3);
+                oval.setFrame(drawX - 3, drawY - 3, r * 2 + 6, r * 2 + 6);
+                g2.draw(oval);
             }
         }
     }
+
+    // debajo de "Vel"/"Turbo" (y = 18, 34)
+    private void paintMetrics(Graphics2D g2, RenderSnapshot snap) {
+        g2.setFont(RenderState.HUD_FONT);
+        g2.setColor(RenderState.HUD_TEXT);
+        if (!Metrics.ENABLED) {
+            g2.drawString("Métricas desactivadas (-Dgame.metrics=false)", 8, 50);
+            return;
+        }
+        HudText text = hud;
+        text.clear().append("Tick p99: ").append(p99(Metrics.TICK), 2)
+                .append(" ms (int ").append(p99(Metrics.INTEGRATE), 2)
+                .append(" / hab ").append(p99(Metrics.ROOMS), 2)
+                .append(" / col ").append(p99(Metrics.COLLISIONS), 2).append(')')
+                .draw(g2, 8, 50);
+        text.clear().append("Frame p99: ").append(p99(Metrics.FRAME), 2)
+                .append(" ms  Pintar p99: ").append(p99(Metrics.PAINT), 2)
+                .append(" ms  EDT p99: ").append(p99(Metrics.EDT_LAG), 2).append(" ms  (")
+                .append(lastRaster ? "raster" : "Java2D").append(')')
+                .draw(g2, 8, 66);
+        text.clear().append("Bolas: ").append(snap.getCount() - snap.getPlayerCount())
+                .append("  Parejas: ").append(model.getLastCollisionPairs())
+                .append("  Entradas: ").append(Metrics.ROOM_ENTRIES.sum())
+                .draw(g2, 8, 82);
+    }
+
+    private static double p99(Histogram h) { return h.percentile(0.99) / 1e6; }
 }
@@ -0,0 +1,90 @@
+package view;
+
+import model.RenderSnapshot;
+
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+
+// Texto del HUD sin Strings nuevos: se escribe en un char[] que se reutiliza y se pinta
+// con drawChars (en vez de String.format / concatenar en cada frame). Solo desde el EDT.
+final class HudText {
+    private char[] buf = new char[128];
+    private int len = 0;
+
+    HudText clear() {
+        len = 0;
+        return this;
+    }
+
+    HudText append(String s) {
+        int n = s.length();
+        ensure(n);
+        s.getChars(0, n, buf, len);
+        len += n;
+        return this;
+    }
+
+    HudText append(char c) {
+        ensure(1);
+        buf[len++] = c;
+        return this;
+    }
+
+    HudText append(long v) {
+        if (v < 0) {
+            append('-');
+            v = -v; // Long.MIN_VALUE no aparece en el HUD
+        }
+        ensure(20);
+        int start = len;
+        do {
+            buf[len++] = (char) ('0' + (v % 10));
+            v /= 10;
+        } while (v > 0);
+        // los dígitos salieron al revés
+        for (int i = start, j = len - 1; i < j; i++, j--) {
+            char t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+        return this;
+    }
+
+    // con 'decimals' cifras decimales (redondeo normal), como %.2f
+    HudText append(double v, int decimals) {
+        long scale = 1;
+        for (int d = 0; d < decimals; d++) scale *= 10;
+        long scaled = Math.round(Math.abs(v) * scale);
+        if (v < 0 && scaled != 0) append('-');
+        append(scaled / scale);
+        if (decimals > 0) {
+            append('.');
+            long frac = scaled % scale;
+            for (long div = scale / 10; div > 0; div /= 10) {
+                append((char) ('0' + (frac / div) % 10));
+            }
+        }
+        return this;
+    }
+
+    // "ocupación/plazas cola N" de la habitación k (texto de las que tienen varias plazas)
+    HudText roomText(RenderSnapshot snap, int k) {
+        return clear().append(snap.getRoomOccupancy(k)).append('/').append(snap.getRoomCapacity(k))
+                .append(" cola ").append(snap.getRoomQueueLength(k));
+    }
+
+    int width(FontMetrics fm) {
+        return fm.charsWidth(buf, 0, len);
+    }
+
+    void draw(Graphics2D g2, int x, int y) {
+        g2.drawChars(buf, 0, len, x, y);
+    }
+
+    @Override
+    public String toString() { return new String(buf, 0, len); }
+
+    private void ensure(int extra) {
+        if (len + extra > buf.length) buf = java.util.Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+    }
+}
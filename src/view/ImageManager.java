@@ -1,27 +1,80 @@
 package view;
 
+import model.Ball;
+import util.Debug;
+
 import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
 import java.io.File;
 import java.io.IOException;
-import java.awt.Dimension;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 // Clase sencilla para cargar y guardar imágenes usadas por la vista
 public class ImageManager {
-    private static BufferedImage background; // imagen de fondo (original)
+    private static volatile BufferedImage background; // imagen de fondo (original)
 
     // Ahora soportamos varias texturas de bolas (por ejemplo asteroid1/asteroid2)
     private static final List<BufferedImage> ballTextures = new ArrayList<>();
+    // copia que no cambia, para leer sin lock desde el pintado (se cambia entera)
+    private static volatile List<BufferedImage> texturesView = List.of();
+
+    // Fondo a varios tamaños:
+    // - backgroundMips: el original y sus mitades (se hacen en segundo plano al poner el fondo).
+    // - scaledBackgrounds: escalados buenos a tamaños exactos de ventana, LRU hasta
+    //   -Dgame.bg.cacheMB (48) de memoria.
+    // Si no está el tamaño pedido se devuelve el más cercano (se pinta estirado, rápido) y, cuando
+    // el tamaño lleva -Dgame.bg.settleMs (200) sin cambiar, se escala bien en image-worker.
+    private static List<BufferedImage> backgroundMips = List.of();
+    private static int backgroundVersion = 0;
+    private static final LinkedHashMap<Long, BufferedImage> scaledBackgrounds = new LinkedHashMap<>(16, 0.75f, true);
+    private static long scaledBackgroundBytes = 0;
+    private static final long BACKGROUND_BUDGET = Long.getLong("game.bg.cacheMB", 48) * 1024 * 1024;
+    private static final long SETTLE_MS = Long.getLong("game.bg.settleMs", 200);
+    private static long pendingBackgroundSize = -1;
+    // lo último devuelto por getScaledBackground (cada frame se pide lo mismo: sin buscar ni
+    // crear nada); lastBackgroundWidth = -1 cuando cambia algo de lo de arriba
+    private static int lastBackgroundWidth = -1, lastBackgroundHeight;
+    private static Image lastBackground;
+
+    // Atlas con todas las texturas ya escaladas a cada radio de Ball.MIN_RADIUS..MAX_RADIUS.
+    // Se rehace en segundo plano (hilo "image-worker") cada vez que cambian las texturas;
+    // mientras tanto es null y se pinta escalando al vuelo.
+    private static volatile SpriteAtlas ballAtlas;
+    private static int texturesVersion = 0;
+    private static final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "image-worker");
+        t.setDaemon(true);
+        return t;
+    });
 
-    // Cache: guardamos la versión escalada del fondo para el tamaño del panel actual
-    private static Image cachedScaledBackground;
-    private static Dimension cachedBgSize;
+    // Hash de los PNG originales (ver AssetCache) del fondo y de las texturas: con él se
+    // guardan/buscan en disco los escalados. null si vienen de otro sitio (menú): no se guardan.
+    private static String backgroundKey;
+    private static String texturesKey;
+    private static String atlasKey; // de qué texturas es el atlas puesto (null: no se sabe)
 
     // Cache: para cada radio, guardamos un array de imágenes escaladas por variante
-    // clave: radio -> array de escalados (mismo orden que ballTextures)
-    private static final Map<Integer, Image[]> ballScaledCache = new HashMap<>();
+    // (solo radios fuera del atlas, p. ej. de un checkpoint con otros tamaños)
+    // clave: radio -> escalados (mismo orden que las texturas de las que salieron).
+    // Como mucho MAX_SCALED_RADII radios (se va el menos usado); se usa con su propio lock.
+    private static final int MAX_SCALED_RADII = 16;
+    private static final Map<Integer, ScaledTextures> ballScaledCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ScaledTextures> eldest) {
+            return size() > MAX_SCALED_RADII;
+        }
+    };
+
+    private record ScaledTextures(List<BufferedImage> source, BufferedImage[] images) { }
 
     // Cargar una imagen desde un archivo (se usa en controlador para cargar texturas)
     public static BufferedImage loadImage(File file) throws IOException {
@@ -30,34 +83,159 @@ public class ImageManager {
     }
 
     // Fondo
-    public static void setBackground(BufferedImage img) {
+    // (synchronized: en modo activo el fondo se pide desde el hilo de render)
+    public static synchronized void setBackground(BufferedImage img) {
+        setBackground(img, null);
+    }
+
+    // sourceKey: hash del PNG original (los escalados de ese fondo que ya hubiera se conservan)
+    public static synchronized void setBackground(BufferedImage img, String sourceKey) {
         // Guardamos la referencia y limpiamos cache para recalcular el escalado
+        if (sourceKey == null || !sourceKey.equals(backgroundKey)) clearScaledBackgrounds();
         background = img;
-        cachedScaledBackground = null;
-        cachedBgSize = null;
+        backgroundKey = sourceKey;
+        backgroundMips = img == null ? List.of() : List.of(img);
+        pendingBackgroundSize = -1;
+        lastBackgroundWidth = -1;
+        int version = ++backgroundVersion;
+        if (img == null) return;
+        // las mitades, para que lo rápido (estirar el más cercano) no tenga que leer el original
+        worker.execute(() -> {
+            List<BufferedImage> mips = new ArrayList<>();
+            mips.add(img);
+            BufferedImage level = img;
+            while (level.getWidth() >= 2 * MIN_MIP && level.getHeight() >= 2 * MIN_MIP) {
+                level = drawScaled(level, level.getWidth() / 2, level.getHeight() / 2, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                mips.add(level);
+            }
+            synchronized (ImageManager.class) {
+                if (version == backgroundVersion) {
+                    backgroundMips = List.copyOf(mips);
+                    lastBackgroundWidth = -1;
+                }
+            }
+        });
+    }
+
+    private static final int MIN_MIP = 128;
+
+    // Escalados de un fondo que aún se está decodificando (sacados de AssetCache): se pintan
+    // ya, sin esperar al original (estirados si la ventana no tiene uno de esos tamaños).
+    public static synchronized void setPreScaledBackgrounds(String sourceKey, List<BufferedImage> scaled) {
+        if (!sourceKey.equals(backgroundKey)) {
+            background = null;
+            backgroundKey = sourceKey;
+            backgroundMips = List.of();
+            backgroundVersion++;
+            lastBackgroundWidth = -1;
+            clearScaledBackgrounds();
+        }
+        for (BufferedImage img : scaled) putScaledBackground(img);
     }
+
     public static BufferedImage getBackground() { return background; }
 
+    // hay fondo (aunque el original aún no esté decodificado)
+    public static synchronized boolean hasBackground() {
+        return background != null || !scaledBackgrounds.isEmpty();
+    }
+
     // Texturas de bolas (múltiples)
-    public static void clearBallTextures() {
+    public static synchronized void clearBallTextures() {
         // Limpio las texturas y la cache de escalados
         ballTextures.clear();
-        ballScaledCache.clear();
+        texturesChanged();
     }
 
-    public static void addBallTexture(BufferedImage img) {
+    public static synchronized void addBallTexture(BufferedImage img) {
         if (img == null) return;
         // Añadimos la textura y forzamos recalculo de escalados
         ballTextures.add(img);
-        ballScaledCache.clear(); // limpiar cache para recalcular escalados con el nuevo set
+        texturesChanged();
     }
 
     // Compatibilidad: si se usa un único set
-    public static void setBallTexture(BufferedImage img) {
+    public static synchronized void setBallTexture(BufferedImage img) {
         clearBallTextures();
         addBallTexture(img);
     }
 
+    // Todas las texturas de una vez (un solo atlas). sourceKey: hash de los PNG originales, para
+    // coger el atlas de AssetCache en vez de escalar (null: no se guarda)
+    public static synchronized void setBallTextures(List<BufferedImage> imgs, String sourceKey) {
+        ballTextures.clear();
+        for (BufferedImage img : imgs) {
+            if (img != null) ballTextures.add(img);
+        }
+        texturesKey = sourceKey;
+        texturesChanged();
+    }
+
+    // Atlas guardado en AssetCache, antes de tener las texturas decodificadas (ImageAssets ya
+    // sabe el hash de los PNG). Si luego llegan esas mismas texturas, se queda este.
+    public static void preloadBallAtlas(String sourceKey, int variants) {
+        int version;
+        synchronized (ImageManager.class) {
+            version = texturesVersion;
+        }
+        worker.execute(() -> {
+            SpriteAtlas atlas = loadAtlas(sourceKey, variants);
+            if (atlas == null) return;
+            synchronized (ImageManager.class) {
+                if (version == texturesVersion && ballAtlas == null) {
+                    ballAtlas = atlas;
+                    atlasKey = sourceKey;
+                }
+            }
+        });
+    }
+
+    // tira los escalados y encarga otro atlas (si llegan varios cambios seguidos, solo cuenta el último)
+    private static void texturesChanged() {
+        texturesView = List.copyOf(ballTextures);
+        synchronized (ballScaledCache) {
+            ballScaledCache.clear();
+        }
+        int version = ++texturesVersion;
+        // add/clear sueltos (menú) ya no son las texturas de la clave
+        String key = texturesKey;
+        texturesKey = null;
+        SpriteAtlas current = ballAtlas;
+        if (key != null && key.equals(atlasKey) && current != null && current.getVariants() == ballTextures.size()) {
+            return; // ya está (precargado de disco)
+        }
+        ballAtlas = null;
+        atlasKey = null;
+        if (ballTextures.isEmpty()) return;
+        List<BufferedImage> snapshot = List.copyOf(ballTextures);
+        worker.execute(() -> {
+            synchronized (ImageManager.class) {
+                if (version != texturesVersion) return; // ya hay otro cambio detrás
+            }
+            SpriteAtlas atlas = key == null ? null : loadAtlas(key, snapshot.size());
+            if (atlas == null) {
+                atlas = SpriteAtlas.build(snapshot, Ball.MIN_RADIUS, Ball.MAX_RADIUS);
+                if (key != null) AssetCache.save(atlasName(key), atlas.getImage());
+            }
+            synchronized (ImageManager.class) {
+                if (version == texturesVersion) {
+                    ballAtlas = atlas;
+                    atlasKey = key;
+                }
+            }
+        });
+    }
+
+    private static SpriteAtlas loadAtlas(String key, int variants) {
+        BufferedImage saved = AssetCache.load(atlasName(key));
+        return saved == null ? null : SpriteAtlas.fromImage(saved, Ball.MIN_RADIUS, Ball.MAX_RADIUS, variants);
+    }
+
+    // el atlas depende de las texturas y de los radios
+    private static String atlasName(String key) {
+        return "atlas-" + AssetCache.hash((key + ":" + Ball.MIN_RADIUS + "-" + Ball.MAX_RADIUS).getBytes(StandardCharsets.UTF_8));
+    }
+
     // Compatibilidad: devolver la primera textura (si existe)
     public static BufferedImage getBallTexture() {
         return ballTextures.isEmpty() ? null : ballTextures.get(0);
@@ -67,35 +245,170 @@ public class ImageManager {
         return ballTextures.size();
     }
 
+    // Pinta la textura de la bola (radio, variante) con la esquina en (x, y).
+    // Devuelve false si no hay texturas (entonces se pinta un círculo de color).
+    public static boolean drawBallTexture(Graphics2D g, int radius, int variantIndex, int x, int y, ImageObserver observer) {
+        SpriteAtlas atlas = ballAtlas;
+        if (atlas != null && atlas.covers(radius)) {
+            // lo normal: copia 1:1 desde el atlas
+            atlas.draw(g, radius, Math.floorMod(variantIndex, atlas.getVariants()), x, y);
+            return true;
+        }
+        List<BufferedImage> textures = texturesView;
+        int count = textures.size();
+        if (count == 0) return false;
+        if (radius >= Ball.MIN_RADIUS && radius <= Ball.MAX_RADIUS) {
+            // el atlas se está haciendo: escalamos al vuelo unos pocos frames
+            g.drawImage(textures.get(Math.floorMod(variantIndex, count)), x, y, radius * 2, radius * 2, observer);
+        } else {
+            g.drawImage(getBallTextureForRadiusVariant(radius, variantIndex), x, y, observer);
+        }
+        return true;
+    }
+
+    // atlas ya hecho (null si no hay texturas o aún se está haciendo)
+    static SpriteAtlas getBallAtlas() { return ballAtlas; }
+
     // Obtener la textura de bola escalada para un radio y variante concreta
+    // (se puede llamar desde cualquier hilo)
     public static Image getBallTextureForRadiusVariant(int radius, int variantIndex) {
-        if (ballTextures.isEmpty()) return null;
-        int count = ballTextures.size();
+        List<BufferedImage> textures = texturesView;
+        if (textures.isEmpty()) return null;
+        int count = textures.size();
         int idx = ((variantIndex % count) + count) % count; // asegurar 0..count-1
-        Image[] arr = ballScaledCache.get(radius);
-        if (arr == null || arr.length != count) {
-            // crear array y escalar todas las variantes a este radio una vez
-            arr = new Image[count];
-            int size = radius * 2;
-            for (int i = 0; i < count; i++) {
-                arr[i] = ballTextures.get(i).getScaledInstance(size, size, Image.SCALE_SMOOTH);
+        synchronized (ballScaledCache) {
+            ScaledTextures cached = ballScaledCache.get(radius);
+            // si las texturas cambiaron mientras tanto, lo guardado es de las viejas
+            if (cached == null || cached.source() != textures) {
+                // escalar todas las variantes a este radio una vez (imágenes ya hechas, no
+                // getScaledInstance, que se termina de escalar en otro hilo cuando quiere)
+                BufferedImage[] arr = new BufferedImage[count];
+                int size = Math.max(1, radius * 2);
+                for (int i = 0; i < count; i++) arr[i] = scaleSmooth(textures.get(i), size, size);
+                cached = new ScaledTextures(textures, arr);
+                ballScaledCache.put(radius, cached);
+            }
+            return cached.images()[idx];
+        }
+    }
+
+    // Fondo para una ventana de width x height. Si ya está escalado a ese tamaño, ese; si no, el
+    // más cercano que haya (hay que pintarlo estirado: drawImage(img, 0, 0, width, height, ...))
+    // y se encarga el bueno para cuando el tamaño deje de cambiar. null si no hay fondo.
+    public static synchronized Image getScaledBackground(int width, int height) {
+        if (width == lastBackgroundWidth && height == lastBackgroundHeight) return lastBackground;
+        Image img = scaledBackgrounds.get(sizeKey(width, height));
+        if (img == null) {
+            img = nearestBackground(width, height);
+            if (img != null && !backgroundMips.isEmpty()) scaleWhenSettled(width, height);
+        }
+        lastBackgroundWidth = width;
+        lastBackgroundHeight = height;
+        lastBackground = img;
+        return img;
+    }
+
+    // el más pequeño que sea al menos del tamaño pedido (se reduce bien); si ninguno, el mayor
+    private static BufferedImage nearestBackground(int width, int height) {
+        BufferedImage best = null;
+        BufferedImage largest = null;
+        for (BufferedImage img : backgroundMips) best = closer(best, img, width, height);
+        for (BufferedImage img : scaledBackgrounds.values()) best = closer(best, img, width, height);
+        if (best != null) return best;
+        for (BufferedImage img : backgroundMips) largest = larger(largest, img);
+        for (BufferedImage img : scaledBackgrounds.values()) largest = larger(largest, img);
+        return largest;
+    }
+
+    private static BufferedImage closer(BufferedImage best, BufferedImage img, int width, int height) {
+        if (img.getWidth() < width || img.getHeight() < height) return best;
+        if (best == null || (long) img.getWidth() * img.getHeight() < (long) best.getWidth() * best.getHeight()) return img;
+        return best;
+    }
+
+    private static BufferedImage larger(BufferedImage a, BufferedImage b) {
+        if (a == null || (long) b.getWidth() * b.getHeight() > (long) a.getWidth() * a.getHeight()) return b;
+        return a;
+    }
+
+    // Escalado bueno en image-worker cuando el tamaño lleve SETTLE_MS sin cambiar: cada tamaño
+    // nuevo deja viejo el encargo anterior (arrastrando el borde de la ventana no se escala
+    // nada hasta soltar). Se guarda en el LRU y, si se sabe el hash del PNG, en disco.
+    private static void scaleWhenSettled(int width, int height) {
+        long size = sizeKey(width, height);
+        if (pendingBackgroundSize == size) return; // ya encargado
+        pendingBackgroundSize = size;
+        int version = backgroundVersion;
+        worker.schedule(() -> {
+            BufferedImage src;
+            String key;
+            synchronized (ImageManager.class) {
+                if (pendingBackgroundSize != size || version != backgroundVersion) return;
+                // de la mitad más pequeña que aún sea mayor (menos trabajo que desde el original)
+                src = null;
+                for (BufferedImage img : backgroundMips) src = closer(src, img, width, height);
+                if (src == null) src = backgroundMips.get(0);
+                key = backgroundKey;
+            }
+            long t0 = System.nanoTime();
+            BufferedImage scaled = scaleSmooth(src, width, height);
+            if (key != null) AssetCache.save("bg-" + key + "-" + width + "x" + height, scaled);
+            synchronized (ImageManager.class) {
+                if (version != backgroundVersion) return;
+                putScaledBackground(scaled);
+                if (pendingBackgroundSize == size) pendingBackgroundSize = -1;
             }
-            ballScaledCache.put(radius, arr);
+            Debug.log("Assets", "Fondo escalado a {}x{} en {} ms", width, height, (System.nanoTime() - t0) / 1_000_000);
+        }, SETTLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // al LRU, sacando los menos usados hasta caber en BACKGROUND_BUDGET (el nuevo se queda siempre)
+    private static void putScaledBackground(BufferedImage img) {
+        lastBackgroundWidth = -1;
+        BufferedImage old = scaledBackgrounds.put(sizeKey(img.getWidth(), img.getHeight()), img);
+        if (old != null) scaledBackgroundBytes -= bytes(old);
+        scaledBackgroundBytes += bytes(img);
+        var it = scaledBackgrounds.values().iterator();
+        while (scaledBackgroundBytes > BACKGROUND_BUDGET && scaledBackgrounds.size() > 1) {
+            BufferedImage eldest = it.next();
+            it.remove();
+            scaledBackgroundBytes -= bytes(eldest);
         }
-        return arr[idx];
     }
 
-    // Fondo escalado cacheado
-    public static Image getScaledBackground(int width, int height) {
-        if (background == null) return null;
-        if (cachedScaledBackground != null && cachedBgSize != null
-                && cachedBgSize.width == width && cachedBgSize.height == height) {
-            return cachedScaledBackground;
+    private static void clearScaledBackgrounds() {
+        lastBackgroundWidth = -1;
+        scaledBackgrounds.clear();
+        scaledBackgroundBytes = 0;
+        pendingBackgroundSize = -1;
+    }
+
+    private static long bytes(BufferedImage img) {
+        return 4L * img.getWidth() * img.getHeight();
+    }
+
+    private static long sizeKey(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
+    // Como SCALE_SMOOTH pero sin getScaledInstance: mitades bilineales mientras sobre la mitad
+    // y el último paso bicúbico (igual que el atlas)
+    static BufferedImage scaleSmooth(BufferedImage src, int width, int height) {
+        BufferedImage img = src;
+        while (img.getWidth() / 2 >= width && img.getHeight() / 2 >= height) {
+            img = drawScaled(img, img.getWidth() / 2, img.getHeight() / 2, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
         }
-        // Escalamos la imagen y guardamos en cache para reusar
-        cachedScaledBackground = background.getScaledInstance(width, height, Image.SCALE_SMOOTH);
-        cachedBgSize = new Dimension(width, height);
-        return cachedScaledBackground;
+        return drawScaled(img, width, height, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    private static BufferedImage drawScaled(BufferedImage src, int w, int h, Object interpolation) {
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g.drawImage(src, 0, 0, w, h, null);
+        g.dispose();
+        return out;
     }
 
     // Utilidad genérica: crear una imagen escalada (seguimos dejándola por compatibilidad)
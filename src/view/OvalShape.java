@@ -0,0 +1,89 @@
+package view;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.PathIterator;
+
+// Elipse que reutiliza su PathIterator: Ellipse2D crea uno nuevo en cada fill/draw y con miles
+// de bolas por frame era casi toda la basura del pintado. Mismas curvas que java.awt.geom
+// (4 Béziers cúbicas). Solo para un hilo (el EDT) y un fill/draw a la vez.
+// (no se serializa nunca: sin serialVersionUID)
+@SuppressWarnings("serial")
+final class OvalShape extends Ellipse2D.Double {
+    private static final double CTRL = 0.5522847498307933;
+    private static final double PCV = 0.5 + CTRL * 0.5;
+    private static final double NCV = 0.5 - CTRL * 0.5;
+    private static final double[][] CTRL_PTS = {
+            {1.0, PCV, PCV, 1.0, 0.5, 1.0},
+            {NCV, 1.0, 0.0, PCV, 0.0, 0.5},
+            {0.0, NCV, NCV, 0.0, 0.5, 0.0},
+            {PCV, 0.0, 1.0, NCV, 1.0, 0.5}
+    };
+
+    private final Iter iter = new Iter();
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at) {
+        iter.reset(x, y, width, height, at);
+        return iter;
+    }
+
+    private static final class Iter implements PathIterator {
+        private double x, y, w, h;
+        private AffineTransform at;
+        private int index;
+
+        void reset(double x, double y, double w, double h, AffineTransform at) {
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+            this.at = at;
+            this.index = (w < 0 || h < 0) ? 6 : 0; // vacía: sin segmentos
+        }
+
+        @Override public int getWindingRule() { return WIND_NON_ZERO; }
+        @Override public boolean isDone() { return index > 5; }
+        @Override public void next() { index++; }
+
+        @Override
+        public int currentSegment(float[] coords) {
+            if (index == 5) return SEG_CLOSE;
+            double[] c = CTRL_PTS[index == 0 ? 3 : index - 1];
+            int n;
+            if (index == 0) {
+                coords[0] = (float) (x + c[4] * w);
+                coords[1] = (float) (y + c[5] * h);
+                n = 1;
+            } else {
+                for (int k = 0; k < 6; k += 2) {
+                    coords[k] = (float) (x + c[k] * w);
+                    coords[k + 1] = (float) (y + c[k + 1] * h);
+                }
+                n = 3;
+            }
+            if (at != null) at.transform(coords, 0, coords, 0, n);
+            return index == 0 ? SEG_MOVETO : SEG_CUBICTO;
+        }
+
+        @Override
+        public int currentSegment(double[] coords) {
+            if (index == 5) return SEG_CLOSE;
+            double[] c = CTRL_PTS[index == 0 ? 3 : index - 1];
+            int n;
+            if (index == 0) {
+                coords[0] = x + c[4] * w;
+                coords[1] = y + c[5] * h;
+                n = 1;
+            } else {
+                for (int k = 0; k < 6; k += 2) {
+                    coords[k] = x + c[k] * w;
+                    coords[k + 1] = y + c[k + 1] * h;
+                }
+                n = 3;
+            }
+            if (at != null) at.transform(coords, 0, coords, 0, n);
+            return index == 0 ? SEG_MOVETO : SEG_CUBICTO;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * RasterRenderer: pintado por software para muchísimas bolas (-Dgame.render.backend=raster, F4)
+ * - Con decenas de miles de bolas lo que cuesta es el fill/drawImage de Java2D por bola. Aquí
+ *   se escribe directamente en el int[] de una BufferedImage TYPE_INT_RGB: círculos con el borde
+ *   suavizado (cobertura según la distancia al centro) y sprites del atlas copiados píxel a píxel.
+ * - La ventana se parte en casillas de TILE px. Primero se reparten las bolas por casilla (CSR,
+ *   como la rejilla de colisiones) y luego cada casilla se pinta en paralelo en el common pool:
+ *   copia su trozo de la capa estática y pinta sus bolas recortadas a la casilla, en el mismo
+ *   orden que GamePanel (bolas y después los bordes de las que están en una habitación).
+ * - La capa estática (fondo + habitaciones) y los jugadores/HUD siguen con Java2D (son pocos).
+ * - Sin atlas todavía (o radios fuera de él) la bola sale como círculo de su color.
+ */
+package view;
+
+import model.RenderSnapshot;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+final class RasterRenderer {
+    static final int TILE = 64;
+
+    // game.render.backend: java2d (por defecto), raster, o auto (raster desde rasterAbove bolas)
+    static final int JAVA2D = 0;
+    static final int RASTER = 1;
+    static final int AUTO = 2;
+    static final int AUTO_ABOVE = Integer.getInteger("game.render.rasterAbove", 20_000);
+
+    private BufferedImage staticLayer;
+    private BufferedImage frame;
+    private Graphics2D frameGraphics;
+    private int[] staticPixels;
+    private int[] framePixels;
+    private int width, height, cols, rows;
+    private final FrameLayers.StaticKey staticKey = new FrameLayers.StaticKey();
+
+    // bolas por casilla (CSR): las de la casilla t son tileBalls[tileStart[t] .. tileStart[t + 1])
+    private int[] tileStart = new int[1];
+    private int[] tileFill = new int[0];
+    private int[] tileBalls = new int[0];
+    // centro redondeado de cada bola (igual que GamePanel)
+    private int[] centerX = new int[0];
+    private int[] centerY = new int[0];
+
+    // lo que leen los hilos mientras pintan las casillas
+    private RenderSnapshot snap;
+    private SpriteAtlas atlas;
+    private final IntConsumer tileBody = this::renderTile;
+
+    static int requestedBackend() {
+        String s = System.getProperty("game.render.backend", "java2d").trim();
+        if (s.equalsIgnoreCase("raster")) return RASTER;
+        if (s.equalsIgnoreCase("auto")) return AUTO;
+        return JAVA2D;
+    }
+
+    // Igual que FrameLayers.prepare: true si hay que volver a pintar la capa estática
+    boolean prepare(int w, int h, Image background, RenderSnapshot snap) {
+        boolean changed = false;
+        if (frame == null || w != width || h != height) {
+            if (frameGraphics != null) frameGraphics.dispose();
+            width = w;
+            height = h;
+            staticLayer = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            frame = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+            // coger el int[] hace que Java2D ya no la acelere, pero aquí se pinta a mano igualmente
+            staticPixels = ((DataBufferInt) staticLayer.getRaster().getDataBuffer()).getData();
+            framePixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+            frameGraphics = frame.createGraphics();
+            frameGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            cols = (w + TILE - 1) / TILE;
+            rows = (h + TILE - 1) / TILE;
+            tileStart = new int[cols * rows + 1];
+            tileFill = new int[cols * rows];
+            changed = true;
+        }
+        if (staticKey.changed(background, snap)) changed = true;
+        return changed;
+    }
+
+    Graphics2D staticGraphics() {
+        Graphics2D g = staticLayer.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        return g;
+    }
+
+    void retryStatic() { staticKey.reset(); }
+
+    // Pinta las bolas normales (no jugadores) de la foto en el frame y devuelve su Graphics
+    // para lo que va encima con Java2D.
+    Graphics2D render(RenderSnapshot snap) {
+        this.snap = snap;
+        this.atlas = ImageManager.getBallAtlas();
+        bin(snap);
+        IntStream.range(0, cols * rows).parallel().forEach(tileBody);
+        this.snap = null;
+        return frameGraphics;
+    }
+
+    Image getFrame() { return frame; }
+
+    // reparte las bolas por las casillas que toca su caja (con el borde de habitación)
+    private void bin(RenderSnapshot snap) {
+        int count = snap.getCount();
+        if (centerX.length < count) {
+            centerX = new int[Math.max(count, centerX.length * 2)];
+            centerY = new int[centerX.length];
+        }
+        int tiles = cols * rows;
+        Arrays.fill(tileStart, 0);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            if (snap.isPlayer(i)) continue;
+            int cx = (int) Math.round(snap.getX(i));
+            int cy = (int) Math.round(snap.getY(i));
+            centerX[i] = cx;
+            centerY[i] = cy;
+            int m = snap.getRadius(i) + 4;
+            if (cx + m < 0 || cy + m < 0 || cx - m >= width || cy - m >= height) continue;
+            int c0 = Math.max(0, cx - m) / TILE, c1 = Math.min(width - 1, cx + m) / TILE;
+            int r0 = Math.max(0, cy - m) / TILE, r1 = Math.min(height - 1, cy + m) / TILE;
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) tileStart[r * cols + c + 1]++;
+            }
+            total += (c1 - c0 + 1) * (r1 - r0 + 1);
+        }
+        for (int t = 0; t < tiles; t++) tileStart[t + 1] += tileStart[t];
+        if (tileBalls.length < total) tileBalls = new int[Math.max(total, tileBalls.length * 2)];
+        System.arraycopy(tileStart, 0, tileFill, 0, tiles);
+        // segunda pasada en el mismo orden: dentro de cada casilla quedan por índice
+        for (int i = 0; i < count; i++) {
+            if (snap.isPlayer(i)) continue;
+            int cx = centerX[i], cy = centerY[i];
+            int m = snap.getRadius(i) + 4;
+            if (cx + m < 0 || cy + m < 0 || cx - m >= width || cy - m >= height) continue;
+            int c0 = Math.max(0, cx - m) / TILE, c1 = Math.min(width - 1, cx + m) / TILE;
+            int r0 = Math.max(0, cy - m) / TILE, r1 = Math.min(height - 1, cy + m) / TILE;
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) tileBalls[tileFill[r * cols + c]++] = i;
+            }
+        }
+    }
+
+    private void renderTile(int t) {
+        int x0 = (t % cols) * TILE;
+        int y0 = (t / cols) * TILE;
+        int x1 = Math.min(width, x0 + TILE);
+        int y1 = Math.min(height, y0 + TILE);
+        int w = width;
+        int[] dst = framePixels;
+        for (int y = y0; y < y1; y++) System.arraycopy(staticPixels, y * w + x0, dst, y * w + x0, x1 - x0);
+
+        RenderSnapshot s = snap;
+        SpriteAtlas a = atlas;
+        int from = tileStart[t], to = tileStart[t + 1];
+        boolean anyInRoom = false;
+        for (int k = from; k < to; k++) {
+            int i = tileBalls[k];
+            int r = s.getRadius(i);
+            if (s.isInRoom(i)) anyInRoom = true;
+            if (a != null && a.covers(r)) {
+                sprite(a, r, Math.floorMod(s.getVariantIndex(i), a.getVariants()),
+                        centerX[i] - r, centerY[i] - r, x0, y0, x1, y1);
+            } else {
+                ring(centerX[i], centerY[i], -1, r, s.getRgb(i) & 0xFFFFFF, x0, y0, x1, y1);
+            }
+        }
+        // bordes de las que están en la habitación (trazo 2 sobre el círculo de radio r + 2; Java2D
+        // lleva los trazos al centro del píxel, por eso medio píxel más)
+        if (!anyInRoom) return;
+        for (int k = from; k < to; k++) {
+            int i = tileBalls[k];
+            if (!s.isInRoom(i)) continue;
+            int r = s.getRadius(i);
+            ring(centerX[i] + 0.5, centerY[i] + 0.5, r + 1, r + 3, 0x000000, x0, y0, x1, y1);
+        }
+    }
+
+    // copia el sprite (premultiplicado) con la esquina en (x, y), solo dentro de [x0,x1)x[y0,y1)
+    private void sprite(SpriteAtlas a, int radius, int variant, int x, int y, int x0, int y0, int x1, int y1) {
+        int size = 2 * radius;
+        int xs = Math.max(x0, x), xe = Math.min(x1, x + size);
+        int ys = Math.max(y0, y), ye = Math.min(y1, y + size);
+        if (xs >= xe || ys >= ye) return;
+        int[] src = a.getPixels();
+        int stride = a.getStride();
+        int sx = a.spriteX(radius) - x;
+        int sy = a.spriteY(variant) - y;
+        int[] dst = framePixels;
+        int w = width;
+        for (int py = ys; py < ye; py++) {
+            int srow = (py + sy) * stride + sx;
+            int drow = py * w;
+            for (int px = xs; px < xe; px++) {
+                int p = src[srow + px];
+                int alpha = p >>> 24;
+                if (alpha == 0) continue;
+                if (alpha == 255) {
+                    dst[drow + px] = p & 0xFFFFFF;
+                } else {
+                    dst[drow + px] = over(p, dst[drow + px], alpha);
+                }
+            }
+        }
+    }
+
+    // Anillo entre los radios rIn y rOut alrededor de (cx, cy), suavizado: cobertura = cuánto
+    // cae el centro de cada píxel dentro de cada borde (± medio píxel). rIn < 0: círculo lleno.
+    // Con (cx, cy) enteros es el mismo círculo que el fill de Java2D de (cx - r, cy - r, 2r, 2r).
+    private void ring(double cx, double cy, double rIn, double rOut, int rgb, int x0, int y0, int x1, int y1) {
+        int ext = (int) Math.ceil(rOut + 1);
+        int icx = (int) cx, icy = (int) cy;
+        int xs = Math.max(x0, icx - ext), xe = Math.min(x1, icx + ext);
+        int ys = Math.max(y0, icy - ext), ye = Math.min(y1, icy + ext);
+        if (xs >= xe || ys >= ye) return;
+        double outIn = rOut - 0.5, outOut = rOut + 0.5;
+        double outIn2 = outIn * outIn, outOut2 = outOut * outOut;
+        boolean hole = rIn >= 0;
+        double inIn = Math.max(0, rIn - 0.5), inOut = rIn + 0.5;
+        double inIn2 = inIn * inIn, inOut2 = inOut * inOut;
+        int[] dst = framePixels;
+        int w = width;
+        for (int py = ys; py < ye; py++) {
+            double dy = py + 0.5 - cy;
+            double dy2 = dy * dy;
+            if (dy2 >= outOut2) continue;
+            int drow = py * w;
+            for (int px = xs; px < xe; px++) {
+                double dx = px + 0.5 - cx;
+                double d2 = dx * dx + dy2;
+                if (d2 >= outOut2) continue;
+                if (hole && d2 <= inIn2) continue;
+                double cover = 1;
+                if (d2 > outIn2) cover = outOut - Math.sqrt(d2);
+                if (hole && d2 < inOut2) cover *= Math.sqrt(d2) - (rIn - 0.5);
+                int alpha = (int) (cover * 255 + 0.5);
+                if (alpha <= 0) continue;
+                dst[drow + px] = alpha >= 255 ? rgb : mix(rgb, dst[drow + px], alpha);
+            }
+        }
+    }
+
+    // src premultiplicado sobre dst
+    private static int over(int src, int dst, int alpha) {
+        int inv = 255 - alpha;
+        int r = ((src >> 16) & 0xFF) + ((dst >> 16) & 0xFF) * inv / 255;
+        int g = ((src >> 8) & 0xFF) + ((dst >> 8) & 0xFF) * inv / 255;
+        int b = (src & 0xFF) + (dst & 0xFF) * inv / 255;
+        return (r << 16) | (g << 8) | b;
+    }
+
+    // color opaco con cobertura alpha sobre dst
+    private static int mix(int rgb, int dst, int alpha) {
+        int inv = 255 - alpha;
+        int r = (((rgb >> 16) & 0xFF) * alpha + ((dst >> 16) & 0xFF) * inv) / 255;
+        int g = (((rgb >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inv) / 255;
+        int b = ((rgb & 0xFF) * alpha + (dst & 0xFF) * inv) / 255;
+        return (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,81 @@
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Stroke;
+
+// Todo lo que GamePanel usa para pintar, creado una sola vez (antes: new Color / new BasicStroke
+// / new Font en cada frame). Los colores de las bolas se guardan por rgb en colorFor.
+final class RenderState {
+    // habitaciones
+    static final Color ROOM_FILL = new Color(200, 200, 200, 180);
+    static final Color ROOM_BORDER = new Color(60, 60, 60);
+    static final Color ROOM_FULL_FILL = new Color(255, 200, 200, 180);
+    static final Color ROOM_FULL_BORDER = Color.RED;
+    static final Color ROOM_TEXT = Color.DARK_GRAY;
+    static final int ROOM_TEXT_X = 4, ROOM_TEXT_Y = 14; // desde la esquina de la habitación
+
+    // bolas y jugadores
+    static final Color IN_ROOM_OUTLINE = Color.BLACK;
+    static final Color PLAYER_OUTLINE = new Color(255, 220, 0);
+    static final Color PLAYER_DIRECTION = new Color(255, 200, 0);
+    static final Stroke STROKE_2 = new BasicStroke(2);
+    static final Stroke STROKE_3 = new BasicStroke(3);
+
+    // HUD
+    static final Color HUD_TEXT = new Color(30, 30, 30);
+    static final Font HUD_FONT = new Font("SansSerif", Font.PLAIN, 12);
+
+    // tabla rgb -> Color (direccionamiento abierto); crece hasta MAX_COLORS y luego se vacía
+    private static final int MAX_COLORS = 1 << 18;
+    private int[] keys = new int[1024];
+    private Color[] colors = new Color[1024];
+    private int used = 0;
+
+    // (solo desde el EDT)
+    Color colorFor(int rgb) {
+        int mask = keys.length - 1;
+        int k = mix(rgb) & mask;
+        while (true) {
+            Color c = colors[k];
+            if (c == null) break;
+            if (keys[k] == rgb) return c;
+            k = (k + 1) & mask;
+        }
+        if ((used + 1) * 2 > keys.length) {
+            grow();
+            return colorFor(rgb);
+        }
+        Color c = new Color(rgb);
+        keys[k] = rgb;
+        colors[k] = c;
+        used++;
+        return c;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Color[] oldColors = colors;
+        int cap = oldKeys.length * 2;
+        if (cap > MAX_COLORS) cap = oldKeys.length; // ya no crece: se empieza de cero
+        keys = new int[cap];
+        colors = new Color[cap];
+        used = 0;
+        if (cap == oldKeys.length) return;
+        int mask = cap - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldColors[j] == null) continue;
+            int k = mix(oldKeys[j]) & mask;
+            while (colors[k] != null) k = (k + 1) & mask;
+            keys[k] = oldKeys[j];
+            colors[k] = oldColors[j];
+            used++;
+        }
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
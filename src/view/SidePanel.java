@@ -12,6 +12,9 @@ public class SidePanel extends JPanel {
     // Nuevos botones para cargar imágenes
     public final JButton loadBgButton = new JButton("Cargar Fondo");
     public final JButton loadBallTexButton = new JButton("Cargar Textura Bola");
+    // Guardar / cargar el mundo entero (checkpoint)
+    public final JButton saveWorldButton = new JButton("Guardar Mundo");
+    public final JButton loadWorldButton = new JButton("Cargar Mundo");
 
     public SidePanel() {
         // GridBagLayout porque es fácil de alinear verticalmente sin complicarse mucho
@@ -33,6 +36,8 @@ public class SidePanel extends JPanel {
         add(new JSeparator(), gbc);
         add(loadBgButton, gbc);
         add(loadBallTexButton, gbc);
+        add(saveWorldButton, gbc);
+        add(loadWorldButton, gbc);
 
         // Añadimos un título (etiqueta). No tiene listener, es solo informativa.
         add(new JLabel("Juego Bolas MVC"), gbc);
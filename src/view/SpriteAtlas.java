@@ -0,0 +1,164 @@
+package view;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+// Atlas de texturas de bola ya escaladas: una fila por variante y, en cada fila, un sprite
+// por radio (minRadius..maxRadius) uno detrás de otro. Se pinta copiando el trozo tal cual
+// (sin escalar), y al ser una imagen compatible con la pantalla Java2D la guarda en la
+// tarjeta gráfica (imagen "gestionada") después de los primeros usos.
+final class SpriteAtlas {
+    private final BufferedImage image;
+    private final int minRadius;
+    private final int maxRadius;
+    private final int variants;
+    private final int[] columnX; // x del sprite de cada radio dentro de la fila
+    private final int rowHeight;
+    private final int[] pixels; // copia ARGB premultiplicada para RasterRenderer (fila a fila, ancho = image)
+
+    private SpriteAtlas(BufferedImage image, int minRadius, int maxRadius, int variants, int[] columnX, int rowHeight) {
+        this.image = image;
+        this.pixels = premultiplied(image);
+        this.minRadius = minRadius;
+        this.maxRadius = maxRadius;
+        this.variants = variants;
+        this.columnX = columnX;
+        this.rowHeight = rowHeight;
+    }
+
+    // escala todas las texturas a todos los radios (tarda: llamar fuera del EDT)
+    static SpriteAtlas build(List<BufferedImage> textures, int minRadius, int maxRadius) {
+        int n = textures.size();
+        int[] columnX = columns(minRadius, maxRadius);
+        int width = columnX[columnX.length - 1] + 2 * maxRadius;
+        int rowHeight = 2 * maxRadius;
+        BufferedImage atlas = createImage(width, rowHeight * n);
+        Graphics2D g = atlas.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        for (int v = 0; v < n; v++) {
+            List<BufferedImage> levels = halvings(textures.get(v), 2 * minRadius);
+            for (int r = minRadius; r <= maxRadius; r++) {
+                int size = 2 * r;
+                g.drawImage(levelFor(levels, size), columnX[r - minRadius], v * rowHeight, size, size, null);
+            }
+        }
+        g.dispose();
+        return new SpriteAtlas(atlas, minRadius, maxRadius, n, columnX, rowHeight);
+    }
+
+    // el mismo atlas guardado antes (AssetCache); null si no cuadra con estos radios/variantes
+    static SpriteAtlas fromImage(BufferedImage saved, int minRadius, int maxRadius, int variants) {
+        int[] columnX = columns(minRadius, maxRadius);
+        int width = columnX[columnX.length - 1] + 2 * maxRadius;
+        int rowHeight = 2 * maxRadius;
+        if (saved.getWidth() != width || saved.getHeight() != rowHeight * variants) return null;
+        BufferedImage atlas = createImage(width, rowHeight * variants);
+        Graphics2D g = atlas.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(saved, 0, 0, null);
+        g.dispose();
+        return new SpriteAtlas(atlas, minRadius, maxRadius, variants, columnX, rowHeight);
+    }
+
+    BufferedImage getImage() { return image; }
+
+    boolean covers(int radius) { return radius >= minRadius && radius <= maxRadius; }
+
+    int getVariants() { return variants; }
+
+    // pinta el sprite (radius, variant) con la esquina en (x, y); variant ya en 0..variants-1
+    void draw(Graphics2D g, int radius, int variant, int x, int y) {
+        int size = 2 * radius;
+        int sx = columnX[radius - minRadius];
+        int sy = variant * rowHeight;
+        g.drawImage(image, x, y, x + size, y + size, sx, sy, sx + size, sy + size, null);
+    }
+
+    // para pintar a mano en un int[]: esquina del sprite (radius, variant) dentro de getPixels()
+    int[] getPixels() { return pixels; }
+
+    int getStride() { return image.getWidth(); }
+
+    int spriteX(int radius) { return columnX[radius - minRadius]; }
+
+    int spriteY(int variant) { return variant * rowHeight; }
+
+    private static int[] premultiplied(BufferedImage img) {
+        int[] px = img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+        for (int k = 0; k < px.length; k++) {
+            int p = px[k];
+            int a = p >>> 24;
+            if (a == 255) continue;
+            if (a == 0) {
+                px[k] = 0;
+                continue;
+            }
+            int r = ((p >> 16) & 0xFF) * a / 255;
+            int g = ((p >> 8) & 0xFF) * a / 255;
+            int b = (p & 0xFF) * a / 255;
+            px[k] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+        return px;
+    }
+
+    // x de cada radio dentro de la fila (sprites de 2r uno detrás de otro)
+    private static int[] columns(int minRadius, int maxRadius) {
+        int[] columnX = new int[maxRadius - minRadius + 1];
+        int x = 0;
+        for (int r = minRadius; r <= maxRadius; r++) {
+            columnX[r - minRadius] = x;
+            x += 2 * r;
+        }
+        return columnX;
+    }
+
+    // imagen con transparencia en el formato de la pantalla (o ARGB normal sin pantalla)
+    private static BufferedImage createImage(int w, int h) {
+        if (!GraphicsEnvironment.isHeadless()) {
+            GraphicsConfiguration gc = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            return gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    // Reducir mucho de una vez con bicúbica deja dientes: se guarda la textura dividida entre 2
+    // una y otra vez (hasta minSize) y cada radio sale de la más pequeña que aún sea >= que él
+    // (parecido a SCALE_SMOOTH, pero rápido).
+    private static List<BufferedImage> halvings(BufferedImage src, int minSize) {
+        List<BufferedImage> levels = new ArrayList<>();
+        levels.add(src);
+        BufferedImage img = src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        while (w / 2 >= minSize && h / 2 >= minSize) {
+            w /= 2;
+            h /= 2;
+            BufferedImage half = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = half.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(img, 0, 0, w, h, null);
+            g.dispose();
+            levels.add(half);
+            img = half;
+        }
+        return levels;
+    }
+
+    private static BufferedImage levelFor(List<BufferedImage> levels, int size) {
+        for (int k = levels.size() - 1; k > 0; k--) {
+            BufferedImage l = levels.get(k);
+            if (l.getWidth() >= size && l.getHeight() >= size) return l;
+        }
+        return levels.get(0);
+    }
+}